@@ -0,0 +1,24 @@
+package com.github.antoniomacri.rosie.benchmark;
+
+import org.openjdk.jmh.Main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Runs JMH, writing the results as JSON to {@value #DEFAULT_RESULT_FILE} unless a result format or file is given.
+ */
+public class BenchmarkMain {
+    static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+
+    public static void main(String[] args) throws Exception {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        if (!arguments.contains("-rf") && !arguments.contains("-rff")) {
+            arguments.addAll(0, Arrays.asList("-rf", "json", "-rff", DEFAULT_RESULT_FILE));
+        }
+        Main.main(arguments.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,65 @@
+package com.github.antoniomacri.rosie.benchmark;
+
+import com.github.antoniomacri.rosie.Pattern;
+import com.github.antoniomacri.rosie.RosieEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Measures {@link RosieEngine#compile} for expressions of increasing complexity, with and without the compile
+ * cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CompileBenchmark {
+    @Param({"[:digit:]+", "net.ipv4", "findall:{net.any / date.any / time.any}"})
+    public String expression;
+
+    @Param({"false", "true"})
+    public boolean cached;
+
+    private RosieEngine rosie;
+
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        rosie = new RosieEngine();
+        rosie.importPackage("net");
+        rosie.importPackage("date");
+        rosie.importPackage("time");
+        if (cached) {
+            rosie.setCompileCacheSize(16, 16);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        rosie.close();
+    }
+
+
+    @Benchmark
+    public int compile() {
+        try (Pattern pattern = rosie.compile(expression)) {
+            return pattern.hashCode();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.github.antoniomacri.rosie.benchmark;
+
+import com.github.antoniomacri.rosie.RosieEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Measures creating an engine ready to match IPv4 addresses, importing a set of standard packages upfront against
+ * importing only the dependencies of the expression (see {@link RosieEngine#setAutoImport}).
+ * <p>
+ * Both benchmarks return the heap used by the engine at the end, in kilobytes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class EngineStartupBenchmark {
+    private static final String[] PACKAGES = {"net", "date", "time", "word", "num", "id", "os"};
+    private static final String EXPRESSION = "net.ipv4";
+
+
+    @Benchmark
+    public int importAll() {
+        try (RosieEngine rosie = new RosieEngine()) {
+            for (String packageName : PACKAGES) {
+                rosie.importPackage(packageName);
+            }
+            return compile(rosie);
+        }
+    }
+
+    @Benchmark
+    public int autoImport() {
+        try (RosieEngine rosie = new RosieEngine()) {
+            rosie.setAutoImport(true);
+            return compile(rosie);
+        }
+    }
+
+    private static int compile(RosieEngine rosie) {
+        rosie.compile(EXPRESSION).close();
+        return rosie.getAllocLimit().getUsage();
+    }
+}
@@ -0,0 +1,97 @@
+package com.github.antoniomacri.rosie.benchmark;
+
+import com.github.antoniomacri.rosie.Match;
+import com.github.antoniomacri.rosie.Pattern;
+import com.github.antoniomacri.rosie.RosieEngine;
+import com.github.antoniomacri.rosie.encoding.Decoders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Measures finding all the IPv4 addresses in an input, as a function of its size.
+ * <p>
+ * {@link #findAll} uploads the input once, and should grow linearly. {@link #matchLoop} calls
+ * {@link Pattern#match(String, int, com.github.antoniomacri.rosie.encoding.Decoder)} at each offset, copying the
+ * whole input each time, which is quadratic: it only runs on the smaller inputs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FindAllBenchmark {
+    @State(Scope.Benchmark)
+    public abstract static class Input {
+        RosieEngine rosie;
+        Pattern pattern;
+        String input;
+
+        void setUp(int inputSize) {
+            rosie = new RosieEngine();
+            rosie.importPackage("net");
+            pattern = rosie.compile("net.ipv4");
+            input = MatchBenchmark.input(inputSize);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            pattern.close();
+            rosie.close();
+        }
+    }
+
+    public static class LargeInput extends Input {
+        @Param({"1024", "65536", "1048576"})
+        public int inputSize;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            setUp(inputSize);
+        }
+    }
+
+    public static class SmallInput extends Input {
+        @Param({"1024", "16384", "65536"})
+        public int inputSize;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            setUp(inputSize);
+        }
+    }
+
+
+    @Benchmark
+    public long findAll(LargeInput state) {
+        return state.pattern.findAll(state.input, Decoders.BOOL).count();
+    }
+
+    @Benchmark
+    public long matchLoop(SmallInput state) {
+        long count = 0;
+        int start = 0;
+        while (start <= state.input.length()) {
+            Match match = state.pattern.match(state.input, start, Decoders.BOOL);
+            int end = state.input.length() - match.getRemainingBytes();
+            if (match.isMatched()) {
+                count++;
+            }
+            start = match.isMatched() && end > start ? end : start + 1;
+        }
+        return count;
+    }
+}
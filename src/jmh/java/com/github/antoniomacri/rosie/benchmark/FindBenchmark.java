@@ -0,0 +1,75 @@
+package com.github.antoniomacri.rosie.benchmark;
+
+import com.github.antoniomacri.rosie.Matcher;
+import com.github.antoniomacri.rosie.Pattern;
+import com.github.antoniomacri.rosie.RosieEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Measures searching for a number at the end of a line of words, as a function of the length of the line.
+ * <p>
+ * {@link #find()} makes a single native call with the search variant of the pattern; {@link #matcherFind()} makes
+ * one anchored call per character skipped.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FindBenchmark {
+    @Param({"64", "1024", "16384"})
+    public int inputSize;
+
+    private RosieEngine rosie;
+    private Pattern pattern;
+    private Matcher matcher;
+    private String input;
+
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        rosie = new RosieEngine();
+        pattern = rosie.compileFind("[:digit:]+");
+        matcher = pattern.matcher();
+        StringBuilder builder = new StringBuilder(inputSize);
+        while (builder.length() < inputSize - 4) {
+            builder.append("lorem ipsum ");
+        }
+        builder.setLength(inputSize - 4);
+        input = builder.append("1234").toString();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        matcher.close();
+        pattern.close();
+        rosie.close();
+    }
+
+
+    @Benchmark
+    public int find() {
+        return pattern.find(input).getStart();
+    }
+
+    @Benchmark
+    public int matcherFind() {
+        return matcher.reset(input).find() ? matcher.start() : -1;
+    }
+}
@@ -0,0 +1,86 @@
+package com.github.antoniomacri.rosie.benchmark;
+
+import com.github.antoniomacri.rosie.Match;
+import com.github.antoniomacri.rosie.MatchBatch;
+import com.github.antoniomacri.rosie.Pattern;
+import com.github.antoniomacri.rosie.RosieEngine;
+import com.github.antoniomacri.rosie.encoding.Decoders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Measures the throughput of {@link Pattern#matchBatch} on short lines as a function of the batch size, against
+ * one {@link Pattern#match} call per line.
+ * <p>
+ * Scores are per input line. Without {@code librosiebatch} installed, batches fall back to a Java loop over the
+ * packed buffer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MatchBatchBenchmark {
+    private static final int LINES = 4096;
+
+    @Param({"1", "16", "64", "256", "1024", "4096"})
+    public int batchSize;
+
+    @Param({"bool", "json"})
+    public String encoding;
+
+    private RosieEngine rosie;
+    private Pattern pattern;
+    private List<String> lines;
+
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        rosie = new RosieEngine();
+        pattern = rosie.compile("[:digit:]+");
+        lines = new ArrayList<>(LINES);
+        for (int i = 0; i < LINES; i++) {
+            lines.add(i % 2 == 0 ? i + " heartbeat ok" : "heartbeat " + i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pattern.close();
+        rosie.close();
+    }
+
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public MatchBatch<Match> matchBatch() {
+        return pattern.matchBatch(lines, "bool".equals(encoding) ? Decoders.BOOL : Decoders.JSON, batchSize);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void matchEach(Blackhole blackhole) {
+        for (String line : lines) {
+            blackhole.consume(pattern.match(line, "bool".equals(encoding) ? Decoders.BOOL : Decoders.JSON));
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.github.antoniomacri.rosie.benchmark;
+
+import com.github.antoniomacri.rosie.Match;
+import com.github.antoniomacri.rosie.Matcher;
+import com.github.antoniomacri.rosie.Pattern;
+import com.github.antoniomacri.rosie.RosieEngine;
+import com.github.antoniomacri.rosie.encoding.Decoder;
+import com.github.antoniomacri.rosie.encoding.Decoders;
+import com.github.antoniomacri.rosie.lib.RosieString;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Measures the latency of a single match as a function of the output decoder and of the input size, through the
+ * different entry points of the binding.
+ * <p>
+ * The pattern finds all the IPv4 addresses in the input, so that the size of the encoded output grows with the
+ * input. {@link #createString()} isolates the cost of marshalling the input into a {@code RosieString}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MatchBenchmark {
+    @Param({"bool", "line", "json", "color"})
+    public String encoding;
+
+    @Param({"50", "1024", "65536", "1048576"})
+    public int inputSize;
+
+    private RosieEngine rosie;
+    private Pattern pattern;
+    private Decoder<Match> decoder;
+    private String input;
+    private ByteBuffer directInput;
+    private Matcher matcher;
+
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        rosie = new RosieEngine();
+        rosie.importPackage("net");
+        pattern = rosie.compile("findall:net.ipv4");
+        decoder = decoder(encoding);
+        input = input(inputSize);
+        byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+        directInput = ByteBuffer.allocateDirect(bytes.length);
+        directInput.put(bytes).flip();
+        matcher = pattern.matcher().reset(input);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        matcher.close();
+        pattern.close();
+        rosie.close();
+    }
+
+
+    @Benchmark
+    public Match matchString() {
+        return pattern.match(input, decoder);
+    }
+
+    @Benchmark
+    public Match matchDirectBuffer() {
+        return pattern.match(directInput, decoder);
+    }
+
+    @Benchmark
+    public Match matchWithMatcher() {
+        return matcher.match(decoder);
+    }
+
+    @Benchmark
+    public int createString() {
+        try (RosieString string = RosieString.create(input)) {
+            return string.len.intValue();
+        }
+    }
+
+
+    static Decoder<Match> decoder(String encoding) {
+        switch (encoding) {
+            case "bool":
+                return Decoders.BOOL;
+            case "line":
+                return Decoders.LINE;
+            case "json":
+                return Decoders.JSON;
+            case "color":
+                return Decoders.COLOR;
+            default:
+                throw new IllegalArgumentException(encoding);
+        }
+    }
+
+    /**
+     * Builds an ASCII input of the given size, made of log-like lines holding IPv4 addresses.
+     */
+    static String input(int size) {
+        StringBuilder builder = new StringBuilder(size);
+        for (int i = 0; builder.length() < size; i++) {
+            builder.append("10.0.").append(i % 256).append('.').append(i / 256 % 256).append(" GET /index.html 200 ");
+        }
+        builder.setLength(size);
+        return builder.toString();
+    }
+}
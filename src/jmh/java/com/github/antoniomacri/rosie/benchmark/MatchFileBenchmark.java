@@ -0,0 +1,133 @@
+package com.github.antoniomacri.rosie.benchmark;
+
+import com.github.antoniomacri.rosie.MatchFileResult;
+import com.github.antoniomacri.rosie.Matcher;
+import com.github.antoniomacri.rosie.Pattern;
+import com.github.antoniomacri.rosie.RosieEngine;
+import com.github.antoniomacri.rosie.encoding.Decoders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Compares {@link Pattern#matchFile} with matching the lines of a file one by one from Java.
+ * <p>
+ * Every variant writes matching lines to an output file and the others to an error file, like
+ * {@code rosie_matchfile} does with the {@code line} encoder.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MatchFileBenchmark {
+    @Param({"10000", "100000"})
+    public int lines;
+
+    private RosieEngine rosie;
+    private Pattern pattern;
+    private Path input;
+    private Path output;
+    private Path errors;
+
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        rosie = new RosieEngine();
+        rosie.importPackage("net");
+        pattern = rosie.compile("net.ipv4");
+
+        input = Files.createTempFile("rosie-bench", ".log");
+        output = Files.createTempFile("rosie-bench", ".out");
+        errors = Files.createTempFile("rosie-bench", ".err");
+        try (BufferedWriter writer = Files.newBufferedWriter(input, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < lines; i++) {
+                if (i % 3 == 0) {
+                    writer.write("GET /index.html 200 from host-" + i);
+                } else {
+                    writer.write("10." + (i % 256) + "." + (i / 256 % 256) + ".1 - - GET /index.html 200");
+                }
+                writer.newLine();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        pattern.close();
+        rosie.close();
+        Files.deleteIfExists(input);
+        Files.deleteIfExists(output);
+        Files.deleteIfExists(errors);
+    }
+
+
+    @Benchmark
+    public MatchFileResult matchFile() {
+        return pattern.matchFile(input, output, errors, Decoders.LINE, false);
+    }
+
+    @Benchmark
+    public int lineByLine() throws IOException {
+        int matched = 0;
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8);
+             BufferedWriter out = Files.newBufferedWriter(output, StandardCharsets.UTF_8);
+             BufferedWriter err = Files.newBufferedWriter(errors, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String data = pattern.match(line, Decoders.LINE).getData();
+                if (data != null) {
+                    out.write(data);
+                    out.newLine();
+                    matched++;
+                } else {
+                    err.write(line);
+                    err.newLine();
+                }
+            }
+        }
+        return matched;
+    }
+
+    @Benchmark
+    public int lineByLineWithMatcher() throws IOException {
+        int matched = 0;
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8);
+             BufferedWriter out = Files.newBufferedWriter(output, StandardCharsets.UTF_8);
+             BufferedWriter err = Files.newBufferedWriter(errors, StandardCharsets.UTF_8);
+             Matcher matcher = pattern.matcher()) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (matcher.reset(line).matches()) {
+                    out.write(line);
+                    out.newLine();
+                    matched++;
+                } else {
+                    err.write(line);
+                    err.newLine();
+                }
+            }
+        }
+        return matched;
+    }
+}
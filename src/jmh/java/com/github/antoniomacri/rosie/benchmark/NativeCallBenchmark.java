@@ -0,0 +1,105 @@
+package com.github.antoniomacri.rosie.benchmark;
+
+import com.github.antoniomacri.rosie.Match;
+import com.github.antoniomacri.rosie.Pattern;
+import com.github.antoniomacri.rosie.RosieEngine;
+import com.github.antoniomacri.rosie.encoding.Decoders;
+import com.github.antoniomacri.rosie.lib.NativeMatch;
+import com.github.antoniomacri.rosie.lib.RosieLib;
+import com.github.antoniomacri.rosie.lib.RosieMatch;
+import com.github.antoniomacri.rosie.lib.RosieString;
+import com.sun.jna.Memory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Measures the per-call overhead of the binding on short inputs, where it dominates the time spent matching.
+ * <p>
+ * {@link #structures()} and {@link #fixedOffsets()} isolate the cost of preparing the input and reading the results
+ * of {@code rosie_match}, respectively through JNA structures marshalled by reflection (as {@link Pattern} used to
+ * do) and through preallocated native memory read at fixed offsets (as {@link Pattern} and
+ * {@link com.github.antoniomacri.rosie.Matcher} do now). {@link #matches()} and {@link #match()} measure the whole
+ * call, and can be compared with the same benchmarks run on earlier versions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class NativeCallBenchmark {
+    @Param({"8", "64"})
+    public int inputSize;
+
+    private RosieEngine rosie;
+    private Pattern pattern;
+    private String input;
+    private byte[] inputBytes;
+    private Memory inputMemory;
+    private NativeMatch Cmatch;
+
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        rosie = new RosieEngine();
+        pattern = rosie.compile("[:alnum:]+");
+        StringBuilder builder = new StringBuilder(inputSize);
+        while (builder.length() < inputSize) {
+            builder.append("abc123");
+        }
+        input = builder.substring(0, inputSize);
+        inputBytes = input.getBytes(StandardCharsets.UTF_8);
+        inputMemory = new Memory(inputBytes.length);
+        Cmatch = new NativeMatch();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pattern.close();
+        rosie.close();
+    }
+
+
+    @Benchmark
+    public int structures() {
+        try (RosieString Cinput = RosieLib.rosie_new_string(input, inputBytes.length)) {
+            RosieMatch Cmatch = new RosieMatch();
+            Cinput.write();
+            Cmatch.write();
+            Cmatch.read();
+            return Cmatch.leftover + Cmatch.dataLen.intValue();
+        }
+    }
+
+    @Benchmark
+    public int fixedOffsets() {
+        inputMemory.write(0, inputBytes, 0, inputBytes.length);
+        Cmatch.setInput(inputMemory, inputBytes.length);
+        return Cmatch.getLeftover() + Cmatch.getDataLen();
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return pattern.matches(input);
+    }
+
+    @Benchmark
+    public Match match() {
+        return pattern.match(input, Decoders.LINE);
+    }
+}
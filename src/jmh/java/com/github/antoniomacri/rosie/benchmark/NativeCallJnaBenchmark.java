@@ -0,0 +1,13 @@
+package com.github.antoniomacri.rosie.benchmark;
+
+import com.github.antoniomacri.rosie.lib.NativeBackend;
+import org.openjdk.jmh.annotations.Fork;
+
+
+/**
+ * Runs {@link NativeCallBenchmark} with the {@code jna} backend, to compare with the {@code ffm} backend selected by
+ * default on Java 22 or later.
+ */
+@Fork(value = 1, jvmArgsAppend = "-D" + NativeBackend.PROPERTY + "=" + NativeBackend.JNA)
+public class NativeCallJnaBenchmark extends NativeCallBenchmark {
+}
@@ -0,0 +1,92 @@
+package com.github.antoniomacri.rosie.benchmark;
+
+import com.github.antoniomacri.rosie.Match;
+import com.github.antoniomacri.rosie.Pattern;
+import com.github.antoniomacri.rosie.RosieEngine;
+import com.github.antoniomacri.rosie.encoding.Decoder;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Compares the time of a match as seen from Java with the times reported by librosie.
+ * <p>
+ * Besides the score, each run reports the secondary counters {@code calls}, {@code totalMicros} (time spent in
+ * {@code rosie_match}, encoding included) and {@code matchMicros} (time spent matching). The overhead of the binding
+ * (JNA marshalling, copying and decoding the results) is the score minus {@code totalMicros / calls}. librosie
+ * measures times with the resolution of the platform clock, so short inputs are better compared on large counts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class OverheadBenchmark {
+    @Param({"bool", "json"})
+    public String encoding;
+
+    @Param({"50", "1024", "65536"})
+    public int inputSize;
+
+    private RosieEngine rosie;
+    private Pattern pattern;
+    private Decoder<Match> decoder;
+    private String input;
+
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Times {
+        public long calls;
+        public long totalMicros;
+        public long matchMicros;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            calls = 0;
+            totalMicros = 0;
+            matchMicros = 0;
+        }
+    }
+
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        rosie = new RosieEngine();
+        rosie.importPackage("net");
+        pattern = rosie.compile("findall:net.ipv4");
+        decoder = MatchBenchmark.decoder(encoding);
+        input = MatchBenchmark.input(inputSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pattern.close();
+        rosie.close();
+    }
+
+
+    @Benchmark
+    public Match match(Times times) {
+        Match match = pattern.match(input, decoder);
+        times.calls++;
+        times.totalMicros += match.getTotalMillis();
+        times.matchMicros += match.getMatchMillis();
+        return match;
+    }
+}
@@ -0,0 +1,84 @@
+package com.github.antoniomacri.rosie.benchmark;
+
+import com.github.antoniomacri.rosie.ParallelFileMatcher;
+import com.github.antoniomacri.rosie.RosieEnginePool;
+import com.github.antoniomacri.rosie.encoding.Decoders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Measures how {@link ParallelFileMatcher} scales with the number of engines on a large file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParallelFileMatcherBenchmark {
+    private static final int LINES = 1_000_000;
+
+    @Param({"1", "2", "4", "8"})
+    public int engines;
+
+    @Param({"true", "false"})
+    public boolean ordered;
+
+    private RosieEnginePool pool;
+    private ParallelFileMatcher matcher;
+    private Path file;
+
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        pool = new RosieEnginePool(engines);
+        pool.importPackage("net");
+        matcher = new ParallelFileMatcher(pool, "net.ipv4");
+        file = Files.createTempFile("rosie-bench", ".log");
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < LINES; i++) {
+                writer.write("10." + (i % 256) + "." + (i / 256 % 256) + ".1 - - [10/Oct/2000:13:55:36] GET /a.gif 200");
+                writer.newLine();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        matcher.close();
+        pool.close();
+        Files.deleteIfExists(file);
+    }
+
+
+    @Benchmark
+    public long matchFile() throws IOException {
+        LongAdder matched = new LongAdder();
+        matcher.match(file, Decoders.BOOL_VALUE, ordered, result -> {
+            if (result) {
+                matched.increment();
+            }
+        });
+        return matched.sum();
+    }
+}
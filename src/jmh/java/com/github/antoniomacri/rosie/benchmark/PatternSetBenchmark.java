@@ -0,0 +1,101 @@
+package com.github.antoniomacri.rosie.benchmark;
+
+import com.github.antoniomacri.rosie.Pattern;
+import com.github.antoniomacri.rosie.PatternSet;
+import com.github.antoniomacri.rosie.RosieEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Compares classifying a log line with a {@link PatternSet} against matching each pattern in turn.
+ * <p>
+ * Member {@code i} matches lines starting with {@code "event<i>:"}; the input matches the member in the middle of
+ * the set, so that the loops stop half-way on average.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PatternSetBenchmark {
+    @Param({"10", "100", "500"})
+    public int members;
+
+    private RosieEngine rosie;
+    private Pattern[] patterns;
+    private PatternSet set;
+    private String input;
+
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        rosie = new RosieEngine();
+        Map<String, String> expressions = new LinkedHashMap<>();
+        patterns = new Pattern[members];
+        for (int i = 0; i < members; i++) {
+            String expression = "{\"event" + i + ":\" [:digit:]+}";
+            expressions.put("event" + i, expression);
+            patterns[i] = rosie.compile(expression);
+        }
+        set = rosie.compileSet(expressions);
+        input = "event" + members / 2 + ":200 GET /index.html HTTP/1.1 from 10.0.0.1 in 35 ms";
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        set.close();
+        for (Pattern pattern : patterns) {
+            pattern.close();
+        }
+        rosie.close();
+    }
+
+
+    @Benchmark
+    public int loopFirst() {
+        for (int i = 0; i < patterns.length; i++) {
+            if (patterns[i].matches(input)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Benchmark
+    public int setFirst() {
+        return set.matchFirst(input);
+    }
+
+    @Benchmark
+    public int loopAll() {
+        int count = 0;
+        for (Pattern pattern : patterns) {
+            if (pattern.matches(input)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int setAll() {
+        return set.matchAll(input).length;
+    }
+}
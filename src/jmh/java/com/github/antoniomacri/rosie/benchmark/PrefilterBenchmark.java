@@ -0,0 +1,86 @@
+package com.github.antoniomacri.rosie.benchmark;
+
+import com.github.antoniomacri.rosie.Pattern;
+import com.github.antoniomacri.rosie.RosieEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Measures matching log lines against a pattern requiring a literal, with and without the literal prefilter.
+ * <p>
+ * One line in {@code 1 / matchRate} contains the literal; the others are rejected by the prefilter without calling
+ * librosie.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PrefilterBenchmark {
+    private static final int LINES = 100;
+
+    @Param({"0.01", "0.1", "0.5"})
+    public double matchRate;
+
+    private RosieEngine plain;
+    private RosieEngine prefiltered;
+    private Pattern plainPattern;
+    private Pattern prefilteredPattern;
+    private String[] lines;
+    private int next;
+
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String expression = "[:alpha:]+ \"sshd[\" [:digit:]+ \"]:\"";
+        plain = new RosieEngine();
+        plainPattern = plain.compile(expression);
+        prefiltered = new RosieEngine();
+        prefiltered.setPrefilterEnabled(true);
+        prefilteredPattern = prefiltered.compile(expression);
+        lines = new String[LINES];
+        for (int i = 0; i < LINES; i++) {
+            String daemon = i < LINES * matchRate ? "sshd" : "cron";
+            lines[i] = "host " + daemon + "[" + (1000 + i) + "]: session opened for user root by (uid=0)";
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        plainPattern.close();
+        prefilteredPattern.close();
+        plain.close();
+        prefiltered.close();
+    }
+
+
+    @Benchmark
+    public boolean withoutPrefilter() {
+        return plainPattern.matches(nextLine());
+    }
+
+    @Benchmark
+    public boolean withPrefilter() {
+        return prefilteredPattern.matches(nextLine());
+    }
+
+    private String nextLine() {
+        next = next + 1 == LINES ? 0 : next + 1;
+        return lines[next];
+    }
+}
@@ -0,0 +1,85 @@
+package com.github.antoniomacri.rosie.benchmark;
+
+import com.github.antoniomacri.rosie.Match;
+import com.github.antoniomacri.rosie.Pattern;
+import com.github.antoniomacri.rosie.ResultCache;
+import com.github.antoniomacri.rosie.RosieEngine;
+import com.github.antoniomacri.rosie.encoding.Decoders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Measures matching a stream of log lines, of which only {@code distinct} are different, with and without a
+ * {@link ResultCache} holding up to 1024 results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ResultCacheBenchmark {
+    private static final int LINES = 4096;
+
+    @Param({"16", "1024", "4096"})
+    public int distinct;
+
+    private RosieEngine rosie;
+    private Pattern plain;
+    private Pattern cached;
+    private String[] lines;
+    private int next;
+
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String expression = "net.ipv4 [:space:]+ \"GET\" [:space:]+ {[:alnum:] / [/.]}+";
+        rosie = new RosieEngine();
+        rosie.importPackage("net");
+        plain = rosie.compile(expression);
+        cached = rosie.compile(expression);
+        cached.setResultCache(new ResultCache(1024, 16 * 1024 * 1024));
+        lines = new String[LINES];
+        for (int i = 0; i < LINES; i++) {
+            // new strings, as read from a stream
+            lines[i] = new String("10.0.0." + (i % distinct % 256) + " GET /health/" + (i % distinct));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        plain.close();
+        cached.close();
+        rosie.close();
+    }
+
+
+    @Benchmark
+    public Match withoutCache() {
+        return plain.match(nextLine(), Decoders.JSON);
+    }
+
+    @Benchmark
+    public Match withCache() {
+        return cached.match(nextLine(), Decoders.JSON);
+    }
+
+    private String nextLine() {
+        next = next + 1 == LINES ? 0 : next + 1;
+        return lines[next];
+    }
+}
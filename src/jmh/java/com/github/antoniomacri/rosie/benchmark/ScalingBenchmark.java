@@ -0,0 +1,81 @@
+package com.github.antoniomacri.rosie.benchmark;
+
+import com.github.antoniomacri.rosie.Pattern;
+import com.github.antoniomacri.rosie.RosieEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Measures how the throughput of matching scales with the number of threads, each with its own engine.
+ * <p>
+ * Scores are the aggregate throughput of all threads.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ScalingBenchmark {
+    @Param({"64", "4096"})
+    public int inputSize;
+
+    private RosieEngine rosie;
+    private Pattern pattern;
+    private String input;
+
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        rosie = new RosieEngine();
+        rosie.importPackage("net");
+        pattern = rosie.compile("findall:net.ipv4");
+        input = MatchBenchmark.input(inputSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pattern.close();
+        rosie.close();
+    }
+
+
+    @Benchmark
+    @Threads(1)
+    public boolean threads1() {
+        return pattern.matches(input);
+    }
+
+    @Benchmark
+    @Threads(2)
+    public boolean threads2() {
+        return pattern.matches(input);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean threads4() {
+        return pattern.matches(input);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean threads8() {
+        return pattern.matches(input);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Batch matching shim for the Java binding of librosie.
+ *
+ * Crossing from Java into native code has a fixed cost which, for short inputs, is comparable to
+ * the matching itself.  rosie_match_batch() matches one compiled pattern against many inputs
+ * packed into a single buffer, so that the transition is paid once per batch instead of once per
+ * input.
+ *
+ * Build with the Makefile in this directory; the resulting librosiebatch is picked up by
+ * com.github.antoniomacri.rosie.lib.RosieBatchLib when found on the JNA library path.
+ */
+
+#include <stdint.h>
+#include <string.h>
+
+#include "librosie.h"
+
+
+/* Number of int32 slots written into the results table for every input. */
+#define RESULT_FIELDS 6
+
+/* Value of the status slot when the encoder produced data (otherwise it is the librosie status code). */
+#define STATUS_DATA (-1)
+
+
+/*
+ * Matches pattern pat against the n inputs stored in input, where input i spans the bytes
+ * [offsets[i], offsets[i+1]).  For each input i, the slots results[RESULT_FIELDS*i ...] receive
+ * the status, leftover, abend, ttotal, tmatch and data length.  The encoded data of successive
+ * inputs is appended to out, which has room for outcap bytes; *outlen receives the number of
+ * bytes written.
+ *
+ * Returns the number of inputs processed, which is less than n when out is full (the caller
+ * continues with the remaining inputs), or -1-i when rosie_match fails on input i.
+ */
+int rosie_match_batch(void *e, int pat, int start, char *encoder,
+                      uint8_t *input, int32_t *offsets, int32_t n,
+                      int32_t *results, uint8_t *out, int32_t outcap, int32_t *outlen) {
+  match m;
+  str s;
+  int32_t i, used = 0;
+
+  memset(&m, 0, sizeof(m));
+  for (i = 0; i < n; i++) {
+    int32_t *r = results + RESULT_FIELDS * i;
+    int32_t datalen = 0;
+
+    s.ptr = input + offsets[i];
+    s.len = (uint32_t) (offsets[i + 1] - offsets[i]);
+    if (rosie_match(e, pat, start, encoder, &s, &m) != 0) {
+      *outlen = used;
+      return -1 - i;
+    }
+    if (m.data.ptr != NULL) {
+      datalen = (int32_t) m.data.len;
+      if (datalen > outcap - used) {
+        /* out is full: report what has been done so far */
+        break;
+      }
+      memcpy(out + used, m.data.ptr, (size_t) datalen);
+      used += datalen;
+      r[0] = STATUS_DATA;
+    } else {
+      r[0] = (int32_t) m.data.len;
+    }
+    r[1] = m.leftover;
+    r[2] = m.abend;
+    r[3] = m.ttotal;
+    r[4] = m.tmatch;
+    r[5] = datalen;
+  }
+  *outlen = used;
+  return i;
+}
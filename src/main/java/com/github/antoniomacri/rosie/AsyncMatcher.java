@@ -0,0 +1,353 @@
+package com.github.antoniomacri.rosie;
+
+import com.github.antoniomacri.rosie.encoding.Decoder;
+import com.github.antoniomacri.rosie.encoding.Decoders;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+
+/**
+ * Runs matches asynchronously on dedicated threads, each confined to one engine.
+ * <p>
+ * Native calls block the thread making them: on a virtual thread, a long match pins its carrier thread, and on an
+ * event loop it stalls every other task. This class moves the native work to a fixed number of platform threads,
+ * each owning an engine (all set up in the same way, by an {@link EngineTemplate}) and the patterns compiled on it,
+ * so that engines are never shared nor oversubscribed. Callers get a {@link CompletableFuture}, and may wait for it
+ * from a virtual thread without pinning.
+ * <p>
+ * Requests are queued in a bounded queue. When the queue is full, the {@link RejectionPolicy} decides what happens;
+ * requests which wait in the queue for longer than the configured timeout are completed with a
+ * {@link RejectedExecutionException} instead of running.
+ * <p>
+ * Futures are completed on the engine threads: dependent actions which are long, or which wait for other matches,
+ * should be given an executor (for instance with {@link CompletableFuture#thenApplyAsync(Function)}).
+ */
+public class AsyncMatcher implements Closeable {
+    /**
+     * Default capacity of the queue of requests.
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    /**
+     * Default maximum time a request waits in the queue, in milliseconds.
+     */
+    public static final long DEFAULT_MAX_WAIT_MILLIS = RosieEnginePool.DEFAULT_MAX_WAIT_MILLIS;
+
+
+    /**
+     * What to do with a request when the queue is full.
+     */
+    public enum RejectionPolicy {
+        /**
+         * Completes the future of the new request with a {@link RejectedExecutionException}.
+         */
+        ABORT,
+        /**
+         * Blocks the submitting thread until there is room in the queue, up to the maximum wait time; then aborts.
+         * Not suited to event loops.
+         */
+        WAIT,
+        /**
+         * Completes the future of the oldest queued request with a {@link RejectedExecutionException}, and queues
+         * the new one.
+         */
+        DISCARD_OLDEST
+    }
+
+
+    private final RosieEnginePool.Slot[] slots;
+    private final Thread[] threads;
+    private final BlockingQueue<Task<?>> queue;
+    private final RejectionPolicy policy;
+    private final long maxWaitNanos;
+    private final Map<String, ResultCache> resultCaches = new ConcurrentHashMap<>();
+
+    private final AtomicLong completions = new AtomicLong();
+    private final AtomicLong rejections = new AtomicLong();
+
+    private volatile boolean closed;
+
+
+    /**
+     * Creates a matcher with the given number of bare engines, a queue of {@link #DEFAULT_QUEUE_CAPACITY} requests
+     * and the {@link RejectionPolicy#ABORT} policy.
+     *
+     * @param engines the number of engines, and of threads
+     */
+    public AsyncMatcher(int engines) {
+        this(null, engines, DEFAULT_QUEUE_CAPACITY, RejectionPolicy.ABORT, DEFAULT_MAX_WAIT_MILLIS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a matcher with the given number of engines.
+     *
+     * @param template      the template creating the engines, or {@code null} to create them bare
+     * @param engines       the number of engines, and of threads
+     * @param queueCapacity the maximum number of requests waiting for an engine
+     * @param policy        what to do with a request when the queue is full
+     * @param maxWait       the maximum time a request waits in the queue (or, with {@link RejectionPolicy#WAIT},
+     *                      for room in the queue)
+     * @param unit          the time unit of {@code maxWait}
+     */
+    public AsyncMatcher(EngineTemplate template, int engines, int queueCapacity, RejectionPolicy policy, long maxWait,
+                        TimeUnit unit) {
+        if (engines <= 0) {
+            throw new IllegalArgumentException("number of engines must be positive");
+        }
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("queue capacity must be positive");
+        }
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.policy = policy;
+        this.maxWaitNanos = unit.toNanos(maxWait);
+        this.slots = new RosieEnginePool.Slot[engines];
+        this.threads = new Thread[engines];
+        try {
+            for (int i = 0; i < engines; i++) {
+                slots[i] = new RosieEnginePool.Slot(i, template != null ? template.newEngine() : new RosieEngine(),
+                        resultCaches);
+            }
+        } catch (RuntimeException e) {
+            for (RosieEnginePool.Slot slot : slots) {
+                if (slot != null) {
+                    slot.close();
+                }
+            }
+            throw e;
+        }
+        for (int i = 0; i < engines; i++) {
+            RosieEnginePool.Slot slot = slots[i];
+            threads[i] = new Thread(() -> run(slot), "rosie-async-" + i);
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+    }
+
+
+    /**
+     * Matches the given expression against an input string, on any engine.
+     * <p>
+     * The expression is compiled once per engine, the first time it is used on that engine.
+     *
+     * @return a future completed with the result, or exceptionally if the request is rejected or the match fails
+     * @see Pattern#match(String, int, Decoder)
+     */
+    public <T> CompletableFuture<T> matchAsync(String expression, String input, int start, Decoder<T> decoder) {
+        return submit(slot -> {
+            T result = slot.pattern(expression).match(input, start, decoder);
+            slot.matchCount.incrementAndGet();
+            return result;
+        });
+    }
+
+    /**
+     * Matches the given expression against an input string, on any engine.
+     *
+     * @see #matchAsync(String, String, int, Decoder)
+     */
+    public <T> CompletableFuture<T> matchAsync(String expression, String input, Decoder<T> decoder) {
+        return matchAsync(expression, input, 0, decoder);
+    }
+
+    /**
+     * Matches the given expression against an input string, on any engine, and completes with {@code true} if the
+     * match succeeds.
+     *
+     * @see #matchAsync(String, String, int, Decoder)
+     */
+    public CompletableFuture<Boolean> matchesAsync(String expression, String input) {
+        return matchAsync(expression, input, 0, Decoders.BOOL_VALUE);
+    }
+
+    /**
+     * Runs the given function with an engine, on the thread owning it.
+     * <p>
+     * The engine must not be used after the function returns.
+     *
+     * @return a future completed with the value returned by the function
+     */
+    public <T> CompletableFuture<T> executeAsync(Function<RosieEngine, T> function) {
+        return submit(slot -> function.apply(slot.engine));
+    }
+
+
+    /**
+     * Attaches a cache to the patterns compiled from the given expression by every engine, so that they share the
+     * results of matching strings, or detaches it.
+     *
+     * @param expression  the RPL expression, as passed to {@link #matchAsync}
+     * @param resultCache the cache, or {@code null} to disable caching
+     * @see Pattern#setResultCache(ResultCache)
+     */
+    public void setResultCache(String expression, ResultCache resultCache) {
+        if (resultCache != null) {
+            resultCaches.put(expression, resultCache);
+        } else {
+            resultCaches.remove(expression);
+        }
+    }
+
+
+    /**
+     * The number of engines, and of threads.
+     */
+    public int getSize() {
+        return slots.length;
+    }
+
+    /**
+     * The number of requests waiting for an engine.
+     */
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    /**
+     * The number of requests which ran, successfully or not.
+     */
+    public long getCompletedCount() {
+        return completions.get();
+    }
+
+    /**
+     * The number of requests rejected because the queue was full or because they waited too long.
+     */
+    public long getRejectedCount() {
+        return rejections.get();
+    }
+
+
+    /**
+     * Stops accepting requests, waits for the queued ones to complete, and closes the engines.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+        boolean interrupted = false;
+        for (Thread thread : threads) {
+            while (thread.isAlive()) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        // requests submitted while closing
+        Task<?> task;
+        while ((task = queue.poll()) != null) {
+            task.future.completeExceptionally(new IllegalStateException("matcher is closed"));
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    /**
+     * Queues the given function, to be run with an engine and the patterns compiled on it.
+     */
+    <T> CompletableFuture<T> submit(Function<RosieEnginePool.Slot, T> function) {
+        Task<T> task = new Task<>(function);
+        if (closed) {
+            task.future.completeExceptionally(new IllegalStateException("matcher is closed"));
+            return task.future;
+        }
+        if (!queue.offer(task)) {
+            switch (policy) {
+                case WAIT:
+                    try {
+                        if (!queue.offer(task, maxWaitNanos, TimeUnit.NANOSECONDS)) {
+                            reject(task, "timed out waiting for room in the queue");
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        reject(task, "interrupted while waiting for room in the queue");
+                    }
+                    break;
+                case DISCARD_OLDEST:
+                    do {
+                        Task<?> oldest = queue.poll();
+                        if (oldest != null) {
+                            reject(oldest, "discarded to make room for a newer request");
+                        }
+                    } while (!queue.offer(task));
+                    break;
+                default:
+                    reject(task, "too many requests waiting for an engine");
+                    break;
+            }
+        }
+        if (closed && queue.remove(task)) {
+            // queued after close() drained the queue: no thread would ever run it
+            task.future.completeExceptionally(new IllegalStateException("matcher is closed"));
+        }
+        return task.future;
+    }
+
+    private void reject(Task<?> task, String message) {
+        rejections.incrementAndGet();
+        task.future.completeExceptionally(new RejectedExecutionException(message));
+    }
+
+    private void run(RosieEnginePool.Slot slot) {
+        try {
+            while (!closed || !queue.isEmpty()) {
+                Task<?> task;
+                try {
+                    task = queue.poll(1, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    // woken up by close(): drain the queue before exiting
+                    continue;
+                }
+                if (task == null || task.future.isDone()) {
+                    // cancelled by the caller
+                    continue;
+                }
+                if (System.nanoTime() - task.submitted > maxWaitNanos) {
+                    reject(task, "timed out waiting for an engine");
+                    continue;
+                }
+                task.run(slot);
+                completions.incrementAndGet();
+            }
+        } finally {
+            slot.close();
+        }
+    }
+
+
+    private static class Task<T> {
+        final Function<RosieEnginePool.Slot, T> function;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        final long submitted = System.nanoTime();
+
+        Task(Function<RosieEnginePool.Slot, T> function) {
+            this.function = function;
+        }
+
+        void run(RosieEnginePool.Slot slot) {
+            T result;
+            try {
+                result = function.apply(slot);
+            } catch (RuntimeException | Error e) {
+                future.completeExceptionally(e);
+                return;
+            }
+            future.complete(result);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.github.antoniomacri.rosie;
+
+import com.github.antoniomacri.rosie.encoding.Decoder;
+import com.github.antoniomacri.rosie.lib.NativeMatch;
+import com.github.antoniomacri.rosie.lib.RosieBatchLib;
+import com.sun.jna.Memory;
+
+import java.nio.ByteBuffer;
+
+
+/**
+ * Matches a pattern against many inputs, packed into one contiguous native buffer with an offsets table.
+ * <p>
+ * When the native shim is available, each batch is matched with a single downcall; otherwise, the inputs of the
+ * packed buffer are matched one by one, which still avoids copying each input separately through librosie.
+ */
+final class BatchMatcher {
+    private static final int INT_SIZE = 4;
+    private static final int INITIAL_OUTPUT_CAPACITY = 64 * 1024;
+
+
+    /**
+     * A list of inputs to be packed.
+     */
+    interface Inputs {
+        int size();
+
+        int length(int index);
+
+        void write(int index, ByteBuffer target);
+    }
+
+
+    private final Pattern pattern;
+    private final int batchSize;
+
+    private Memory input;
+    private ByteBuffer inputView;
+    private final Memory offsets;
+    private final Memory results;
+    private final Memory outputLength = new Memory(INT_SIZE);
+    private Memory output;
+    private byte[] transfer = new byte[0];
+    private final NativeMatch Cmatch = new NativeMatch();
+
+
+    BatchMatcher(Pattern pattern, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batch size must be positive");
+        }
+        this.pattern = pattern;
+        this.batchSize = batchSize;
+        this.offsets = new Memory((long) INT_SIZE * (batchSize + 1));
+        this.results = new Memory((long) INT_SIZE * RosieBatchLib.RESULT_FIELDS * batchSize);
+    }
+
+
+    <T> MatchBatch<T> match(Inputs inputs, Decoder<T> decoder) {
+        int count = inputs.size();
+        MatchBatch<T> batch = new MatchBatch<>(decoder, count);
+        for (int from = 0; from < count; from += batchSize) {
+            int to = Math.min(count, from + batchSize);
+            pack(inputs, from, to);
+            if (RosieBatchLib.isAvailable()) {
+                matchNative(batch, from, to - from, decoder.getEncodingName());
+            } else {
+                matchLoop(batch, from, to - from, decoder.getEncodingName());
+            }
+        }
+        return batch;
+    }
+
+
+    private void pack(Inputs inputs, int from, int to) {
+        long total = 0;
+        for (int i = from; i < to; i++) {
+            offsets.setInt((long) INT_SIZE * (i - from), (int) total);
+            total += inputs.length(i);
+        }
+        if (total > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("batch too large, reduce the batch size");
+        }
+        offsets.setInt((long) INT_SIZE * (to - from), (int) total);
+        if (input == null || input.size() < total) {
+            input = new Memory(Math.max(total, input == null ? 1 : input.size() * 2));
+            inputView = input.getByteBuffer(0, input.size());
+        }
+        inputView.clear();
+        for (int i = from; i < to; i++) {
+            inputs.write(i, inputView);
+        }
+    }
+
+    private void matchNative(MatchBatch<?> batch, int first, int n, String encoding) {
+        if (output == null) {
+            output = new Memory(INITIAL_OUTPUT_CAPACITY);
+        }
+        MatchMetrics metrics = pattern.getMetrics();
+        int done = 0;
+        while (done < n) {
+            long begin = metrics == MatchMetrics.NONE ? 0 : System.nanoTime();
+            int processed = pattern.matchBatch(encoding, input, offsets.share((long) INT_SIZE * done), n - done,
+                    results, output, (int) output.size(), outputLength);
+            long elapsed = metrics == MatchMetrics.NONE ? 0 : System.nanoTime() - begin;
+            if (processed < 0) {
+                throw new RuntimeException("match() failed (please report this as a bug)");
+            }
+            if (processed == 0) {
+                // a single result does not fit into the output buffer
+                output = new Memory(output.size() * 2);
+                continue;
+            }
+            int length = outputLength.getInt(0);
+            if (transfer.length < length) {
+                transfer = new byte[Math.max(length, transfer.length * 2)];
+            }
+            output.read(0, transfer, 0, length);
+            int dataOffset = 0;
+            for (int i = 0; i < processed; i++) {
+                long slot = (long) INT_SIZE * RosieBatchLib.RESULT_FIELDS * i;
+                int status = results.getInt(slot);
+                int dataLength = results.getInt(slot + 5 * INT_SIZE);
+                boolean hasData = status == RosieBatchLib.STATUS_DATA;
+                boolean matched = hasData || Pattern.isMatched(status);
+                int totalMicros = results.getInt(slot + 3 * INT_SIZE);
+                int matchMicros = results.getInt(slot + 4 * INT_SIZE);
+                int index = first + done + i;
+                batch.set(index, matched, results.getInt(slot + INT_SIZE), results.getInt(slot + 2 * INT_SIZE),
+                        totalMicros, matchMicros);
+                batch.setData(index, transfer, dataOffset, hasData ? dataLength : -1);
+                dataOffset += dataLength;
+                if (metrics != MatchMetrics.NONE) {
+                    long offset = (long) INT_SIZE * (done + i);
+                    int inputBytes = offsets.getInt(offset + INT_SIZE) - offsets.getInt(offset);
+                    // the inputs share the time of the call
+                    metrics.record(pattern, inputBytes, matched, totalMicros, matchMicros, elapsed / processed);
+                }
+            }
+            done += processed;
+        }
+    }
+
+    private void matchLoop(MatchBatch<?> batch, int first, int n, String encoding) {
+        for (int i = 0; i < n; i++) {
+            int begin = offsets.getInt((long) INT_SIZE * i);
+            int end = offsets.getInt((long) INT_SIZE * (i + 1));
+            Cmatch.setInput(input.share(begin), end - begin);
+            boolean matched = pattern.match(Cmatch, 0, encoding);
+            int index = first + i;
+            batch.set(index, matched, Cmatch.getLeftover(), Cmatch.getAbend(), Cmatch.getTtotal(), Cmatch.getTmatch());
+            if (Cmatch.hasData()) {
+                int length = Cmatch.getDataLen();
+                if (transfer.length < length) {
+                    transfer = new byte[Math.max(length, transfer.length * 2)];
+                }
+                Cmatch.getDataPtr().read(0, transfer, 0, length);
+                batch.setData(index, transfer, 0, length);
+            } else {
+                batch.setData(index, transfer, 0, -1);
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.github.antoniomacri.rosie;
+
+/**
+ * A snapshot of the time spent by a setup step of an {@link EngineTemplate}, over all the engines created.
+ */
+public class BootstrapStatistics {
+    private final String step;
+    private final long count;
+    private final long totalNanos;
+    private final long maxNanos;
+    private final long cacheHits;
+
+
+    BootstrapStatistics(String step, long count, long totalNanos, long maxNanos, long cacheHits) {
+        this.step = step;
+        this.count = count;
+        this.totalNanos = totalNanos;
+        this.maxNanos = maxNanos;
+        this.cacheHits = cacheHits;
+    }
+
+
+    /**
+     * A description of the step (for instance, {@code "import net"}).
+     */
+    public String getStep() {
+        return step;
+    }
+
+    /**
+     * The number of times the step was run.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * The total time (in nanoseconds) spent running the step.
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * The longest time (in nanoseconds) spent running the step.
+     */
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    /**
+     * The average time (in nanoseconds) spent running the step.
+     */
+    public double getAverageNanos() {
+        return count == 0 ? 0 : (double) totalNanos / count;
+    }
+
+    /**
+     * The number of times the step used an RPL source from the in-memory cache instead of reading it from disk.
+     */
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+
+    @Override
+    public String toString() {
+        return "BootstrapStatistics{step=" + step + ", count=" + count + ", averageNanos=" + (long) getAverageNanos()
+                + ", maxNanos=" + maxNanos + ", cacheHits=" + cacheHits + "}";
+    }
+}
@@ -0,0 +1,177 @@
+package com.github.antoniomacri.rosie;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+
+/**
+ * A cache of the patterns compiled by an engine, and of the errors reported compiling invalid expressions.
+ * <p>
+ * Patterns are shared: each {@link #compile} returns a new handle to the cached pattern, if any, and increments its
+ * reference count, which {@link Pattern#close()} decrements once per handle. A pattern no longer referenced stays in
+ * the cache until evicted in least-recently-used order, which frees its native rplx; a pattern evicted while still
+ * referenced is freed when its last handle is closed.
+ * <p>
+ * Keys are normalized expressions. The cache is invalidated whenever the environment of the engine changes, since
+ * the same expression could then compile to a different pattern.
+ * <p>
+ * As with the engine, instances are not thread-safe.
+ */
+class CompileCache {
+    private final int maxPatterns;
+    private final LinkedHashMap<String, Pattern> patterns = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, String> errors;
+
+    private long generation;
+    private long hits;
+    private long misses;
+    private long errorHits;
+    private long evictions;
+
+
+    CompileCache(int maxPatterns, int maxErrors) {
+        if (maxPatterns <= 0 || maxErrors < 0) {
+            throw new IllegalArgumentException("invalid cache size");
+        }
+        this.maxPatterns = maxPatterns;
+        this.errors = new LinkedHashMap<String, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > maxErrors;
+            }
+        };
+    }
+
+
+    /**
+     * Gets the pattern for the given expression, compiling it on a miss.
+     *
+     * @param compiler compiles an expression, throwing a {@link RosieException} if it is invalid
+     */
+    Pattern compile(String expression, Function<String, Pattern> compiler) {
+        String key = normalize(expression);
+        Pattern pattern = patterns.get(key);
+        if (pattern != null) {
+            hits++;
+            pattern.references++;
+            return pattern.share();
+        }
+        String cachedErrors = errors.get(key);
+        if (cachedErrors != null) {
+            errorHits++;
+            throw new RosieException("Errors reported", cachedErrors);
+        }
+
+        misses++;
+        try {
+            pattern = compiler.apply(expression);
+        } catch (RosieException e) {
+            if (e.getErrors() != null) {
+                errors.put(key, e.getErrors());
+            }
+            throw e;
+        }
+        pattern.cache = this;
+        pattern.cached = true;
+        pattern.references = 1;
+        patterns.put(key, pattern);
+        evict();
+        return pattern.share();
+    }
+
+    /**
+     * Releases a reference to a cached pattern, on close of one of its handles, freeing it if it was evicted.
+     */
+    void release(Pattern pattern) {
+        if (pattern.references > 0) {
+            pattern.references--;
+        }
+        if (pattern.references == 0 && !pattern.cached) {
+            pattern.free();
+        }
+    }
+
+    /**
+     * Drops all the entries, after a change in the environment of the engine.
+     */
+    void invalidate() {
+        generation++;
+        errors.clear();
+        for (Pattern pattern : patterns.values()) {
+            detach(pattern);
+        }
+        patterns.clear();
+    }
+
+    CompileCacheStatistics getStatistics() {
+        return new CompileCacheStatistics(patterns.size(), errors.size(), generation, hits, misses, errorHits,
+                evictions);
+    }
+
+
+    private void evict() {
+        Iterator<Pattern> iterator = patterns.values().iterator();
+        while (patterns.size() > maxPatterns && iterator.hasNext()) {
+            Pattern eldest = iterator.next();
+            iterator.remove();
+            evictions++;
+            detach(eldest);
+        }
+    }
+
+    private void detach(Pattern pattern) {
+        pattern.cached = false;
+        if (pattern.references == 0) {
+            pattern.free();
+        }
+    }
+
+
+    /**
+     * Normalizes white space outside of string literals and character sets, unless the expression has comments
+     * (which extend to the end of the line).
+     */
+    static String normalize(String expression) {
+        String trimmed = expression.trim();
+        if (trimmed.contains("--")) {
+            return trimmed;
+        }
+        StringBuilder builder = new StringBuilder(trimmed.length());
+        boolean quoted = false;
+        int brackets = 0;
+        boolean space = false;
+        for (int i = 0; i < trimmed.length(); i++) {
+            char c = trimmed.charAt(i);
+            if (quoted) {
+                builder.append(c);
+                if (c == '\\' && i + 1 < trimmed.length()) {
+                    builder.append(trimmed.charAt(++i));
+                } else if (c == '"') {
+                    quoted = false;
+                }
+                continue;
+            }
+            if (brackets == 0 && Character.isWhitespace(c)) {
+                space = true;
+                continue;
+            }
+            if (space) {
+                builder.append(' ');
+                space = false;
+            }
+            builder.append(c);
+            if (c == '\\' && i + 1 < trimmed.length()) {
+                builder.append(trimmed.charAt(++i));
+            } else if (c == '"' && brackets == 0) {
+                quoted = true;
+            } else if (c == '[') {
+                brackets++;
+            } else if (c == ']' && brackets > 0) {
+                brackets--;
+            }
+        }
+        return builder.toString();
+    }
+}
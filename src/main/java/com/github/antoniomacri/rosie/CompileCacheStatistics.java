@@ -0,0 +1,84 @@
+package com.github.antoniomacri.rosie;
+
+/**
+ * A snapshot of the statistics of the compile cache of a {@link RosieEngine}.
+ */
+public class CompileCacheStatistics {
+    private final int size;
+    private final int errorCount;
+    private final long generation;
+    private final long hits;
+    private final long misses;
+    private final long errorHits;
+    private final long evictions;
+
+
+    CompileCacheStatistics(int size, int errorCount, long generation, long hits, long misses, long errorHits,
+                           long evictions) {
+        this.size = size;
+        this.errorCount = errorCount;
+        this.generation = generation;
+        this.hits = hits;
+        this.misses = misses;
+        this.errorHits = errorHits;
+        this.evictions = evictions;
+    }
+
+
+    /**
+     * The number of compiled patterns in the cache.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * The number of compile errors in the cache.
+     */
+    public int getErrorCount() {
+        return errorCount;
+    }
+
+    /**
+     * The number of times the cache was invalidated because the environment of the engine changed.
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * The number of compilations served by a cached pattern.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * The number of expressions actually compiled.
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * The number of compilations failed because of a cached error, without compiling again.
+     */
+    public long getErrorHits() {
+        return errorHits;
+    }
+
+    /**
+     * The number of patterns evicted because the cache was full.
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+
+    @Override
+    public String toString() {
+        return "CompileCacheStatistics{size=" + size + ", errors=" + errorCount + ", generation=" + generation
+                + ", hits=" + hits + ", misses=" + misses + ", errorHits=" + errorHits
+                + ", evictions=" + evictions + "}";
+    }
+}
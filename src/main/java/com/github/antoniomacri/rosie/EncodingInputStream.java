@@ -0,0 +1,79 @@
+package com.github.antoniomacri.rosie;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * An input stream reading the UTF-8 encoding of the characters of a reader.
+ */
+final class EncodingInputStream extends InputStream {
+    private final Reader reader;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final CharBuffer chars = CharBuffer.allocate(8192);
+    private final ByteBuffer bytes = ByteBuffer.allocate(3 * 8192 + 4);
+    private boolean eof;
+
+
+    EncodingInputStream(Reader reader) {
+        this.reader = reader;
+        chars.flip();
+        bytes.flip();
+    }
+
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (!bytes.hasRemaining()) {
+            if (!fill()) {
+                return -1;
+            }
+        }
+        int n = Math.min(len, bytes.remaining());
+        bytes.get(b, off, n);
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+
+    private boolean fill() throws IOException {
+        if (eof && !chars.hasRemaining()) {
+            return false;
+        }
+        if (!eof) {
+            chars.compact();
+            int read = reader.read(chars);
+            chars.flip();
+            eof = read < 0;
+        }
+        bytes.clear();
+        CoderResult result = encoder.encode(chars, bytes, eof);
+        if (eof && result.isUnderflow()) {
+            encoder.flush(bytes);
+        }
+        bytes.flip();
+        return bytes.hasRemaining() || !eof || chars.hasRemaining();
+    }
+}
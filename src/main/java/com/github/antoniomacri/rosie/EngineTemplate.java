@@ -0,0 +1,270 @@
+package com.github.antoniomacri.rosie;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * A recipe to create engines all set up in the same way.
+ * <p>
+ * Setup operations ({@link #setLibpath}, {@link #importPackage}, {@link #loadFile}, {@link #load}) are recorded,
+ * and replayed onto each engine created by {@link #newEngine()}. The sources of imported packages and loaded files
+ * are read once and kept in memory, keyed by path and last modification time: they are then loaded into new engines
+ * with {@code rosie_load}, so that librosie does not search the libpath nor read files again. Only the modification
+ * time of the files is checked, to reload sources changed on disk.
+ * <p>
+ * Packages imported by the cached sources themselves are still resolved by librosie. Imports with an alias are
+ * always delegated to librosie, since loading the source of a package also binds its own name.
+ * <p>
+ * Once recorded, a template can be used by many threads at the same time.
+ */
+public class EngineTemplate {
+    private static final String NEW_ENGINE = "new";
+
+
+    private final List<Step> steps = new ArrayList<>();
+    private final Timer creation = new Timer(NEW_ENGINE);
+    private final ConcurrentMap<Path, Source> sources = new ConcurrentHashMap<>();
+
+
+    /**
+     * Records setting the libpath.
+     *
+     * @see RosieEngine#setLibpath(String)
+     */
+    public EngineTemplate setLibpath(String libpath) {
+        return add(new Step("libpath " + libpath) {
+            @Override
+            void apply(RosieEngine engine, Context context) {
+                engine.setLibpath(libpath);
+                context.libpath = null;
+            }
+        });
+    }
+
+    /**
+     * Records importing the given package.
+     *
+     * @see RosieEngine#importPackage(String)
+     */
+    public EngineTemplate importPackage(String packageName) {
+        return add(new Step("import " + packageName) {
+            @Override
+            void apply(RosieEngine engine, Context context) {
+                Path file = context.resolve(engine, packageName);
+                String source = file == null ? null : read(file, this);
+                if (source != null) {
+                    engine.load(source);
+                } else {
+                    engine.importPackage(packageName);
+                }
+            }
+        });
+    }
+
+    /**
+     * Records importing the given package, bound to an alias.
+     *
+     * @see RosieEngine#importPackage(String, String)
+     */
+    public EngineTemplate importPackage(String packageName, String asName) {
+        if (asName == null) {
+            return importPackage(packageName);
+        }
+        return add(new Step("import " + packageName + " as " + asName) {
+            @Override
+            void apply(RosieEngine engine, Context context) {
+                engine.importPackage(packageName, asName);
+            }
+        });
+    }
+
+    /**
+     * Records loading RPL code from a file.
+     *
+     * @see RosieEngine#loadFile(String)
+     */
+    public EngineTemplate loadFile(String rplFile) {
+        return add(new Step("loadfile " + rplFile) {
+            @Override
+            void apply(RosieEngine engine, Context context) {
+                String source = read(Paths.get(rplFile), this);
+                if (source != null) {
+                    engine.load(source);
+                } else {
+                    engine.loadFile(rplFile);
+                }
+            }
+        });
+    }
+
+    /**
+     * Records loading RPL code.
+     *
+     * @see RosieEngine#load(String)
+     */
+    public EngineTemplate load(String rplCode) {
+        return add(new Step("load") {
+            @Override
+            void apply(RosieEngine engine, Context context) {
+                engine.load(rplCode);
+            }
+        });
+    }
+
+
+    /**
+     * Creates a new engine and replays the recorded setup operations onto it.
+     *
+     * @throws RosieException if a setup operation fails
+     */
+    public RosieEngine newEngine() {
+        List<Step> steps;
+        synchronized (this) {
+            steps = new ArrayList<>(this.steps);
+        }
+
+        long begin = System.nanoTime();
+        RosieEngine engine = new RosieEngine();
+        creation.record(System.nanoTime() - begin);
+        try {
+            Context context = new Context();
+            for (Step step : steps) {
+                begin = System.nanoTime();
+                step.apply(engine, context);
+                step.record(System.nanoTime() - begin);
+            }
+            return engine;
+        } catch (RuntimeException e) {
+            engine.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the time spent by each step to set up the engines created so far, starting with the creation of the
+     * engine itself.
+     */
+    public List<BootstrapStatistics> getStatistics() {
+        List<BootstrapStatistics> statistics = new ArrayList<>();
+        statistics.add(creation.snapshot());
+        synchronized (this) {
+            for (Step step : steps) {
+                statistics.add(step.snapshot());
+            }
+        }
+        return statistics;
+    }
+
+
+    private synchronized EngineTemplate add(Step step) {
+        steps.add(step);
+        return this;
+    }
+
+    /**
+     * Reads a source file through the cache.
+     *
+     * @return the source, or null if the file cannot be read (librosie will then report the error)
+     */
+    private String read(Path file, Timer timer) {
+        Path key = file.toAbsolutePath().normalize();
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(key, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return null;
+        }
+        Source cached = sources.get(key);
+        if (cached != null && cached.modified.equals(attributes.lastModifiedTime()) && cached.size == attributes.size()) {
+            timer.cacheHits.incrementAndGet();
+            return cached.text;
+        }
+        try {
+            String text = new String(Files.readAllBytes(key), StandardCharsets.UTF_8);
+            sources.put(key, new Source(attributes.lastModifiedTime(), attributes.size(), text));
+            return text;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+
+    private static class Source {
+        final FileTime modified;
+        final long size;
+        final String text;
+
+        Source(FileTime modified, long size, String text) {
+            this.modified = modified;
+            this.size = size;
+            this.text = text;
+        }
+    }
+
+    /**
+     * State of an engine being set up.
+     */
+    private static class Context {
+        /**
+         * The directories of the libpath of the engine, queried when first needed.
+         */
+        String[] libpath;
+
+        Path resolve(RosieEngine engine, String packageName) {
+            if (libpath == null) {
+                libpath = engine.getLibpath().split(File.pathSeparator);
+            }
+            for (String directory : libpath) {
+                if (!directory.isEmpty()) {
+                    Path file = Paths.get(directory, packageName + ".rpl");
+                    if (Files.isRegularFile(file)) {
+                        return file;
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+    private static class Timer {
+        final String description;
+        final AtomicLong count = new AtomicLong();
+        final AtomicLong totalNanos = new AtomicLong();
+        final AtomicLong maxNanos = new AtomicLong();
+        final AtomicLong cacheHits = new AtomicLong();
+
+        Timer(String description) {
+            this.description = description;
+        }
+
+        void record(long nanos) {
+            count.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        BootstrapStatistics snapshot() {
+            return new BootstrapStatistics(description, count.get(), totalNanos.get(), maxNanos.get(), cacheHits.get());
+        }
+    }
+
+    private abstract static class Step extends Timer {
+        Step(String description) {
+            super(description);
+        }
+
+        abstract void apply(RosieEngine engine, Context context);
+    }
+}
@@ -0,0 +1,48 @@
+package com.github.antoniomacri.rosie;
+
+/**
+ * The position of the first match of a pattern found in an input (see {@link Pattern#find}).
+ */
+public class FindResult {
+    static final FindResult NOT_FOUND = new FindResult(false, -1, -1);
+
+
+    private final boolean found;
+    private final int start;
+    private final int end;
+
+
+    FindResult(boolean found, int start, int end) {
+        this.found = found;
+        this.start = start;
+        this.end = end;
+    }
+
+
+    /**
+     * Returns {@code true} if the pattern was found.
+     */
+    public boolean isFound() {
+        return found;
+    }
+
+    /**
+     * The 0-based offset of the beginning of the match (inclusive), or -1 if the pattern was not found.
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * The 0-based offset of the end of the match (exclusive), or -1 if the pattern was not found.
+     */
+    public int getEnd() {
+        return end;
+    }
+
+
+    @Override
+    public String toString() {
+        return found ? "FindResult{start=" + start + ", end=" + end + "}" : "FindResult{not found}";
+    }
+}
@@ -0,0 +1,333 @@
+package com.github.antoniomacri.rosie;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+
+/**
+ * Tunes the soft limit of the Lua heap of the engines of a pool, and collects garbage while engines are idle.
+ * <p>
+ * librosie collects garbage when a match or a trace finds the heap beyond the limit (see
+ * {@link RosieEngine#getAllocLimit()}): a limit too low makes matches slow, one too high wastes memory. At each
+ * {@linkplain #tick() tick}, the governor samples the heap of each idle engine and:
+ * <ul>
+ * <li>caps the heap to the budget if the engine has no limit;</li>
+ * <li>raises the limit (up to the budget) if the heap shrank since the previous tick, which means a collection
+ * happened during a match, and some matches were slower than the latency target;</li>
+ * <li>lowers the limit (down to twice the usage) if the heap uses less than half of it and no match was slow;</li>
+ * <li>collects garbage if the heap uses most of the limit, so that it does not happen during the next match.</li>
+ * </ul>
+ * Garbage is collected by lowering the limit to the minimum and running a trivial match, then restoring the limit.
+ * <p>
+ * Match latencies are observed through the {@link MatchMetrics} of the engines, which the governor wraps: metrics
+ * must therefore be set on the pool before creating the governor. Busy engines are skipped, and the governor holds
+ * an engine only for the duration of its checks.
+ */
+public class HeapGovernor implements Closeable {
+    /**
+     * Minimum value of the limit accepted by librosie, in kilobytes.
+     */
+    public static final int MIN_LIMIT = 8192;
+
+    /**
+     * Maximum number of decisions kept for {@link #getDecisions()}.
+     */
+    public static final int MAX_DECISIONS = 256;
+
+    private static final String TRIVIAL_PATTERN = "\"\"";
+    private static final double COLLECT_THRESHOLD = 0.75;
+
+
+    /**
+     * What the governor did with an engine.
+     */
+    public enum Action {
+        /**
+         * The engine had no limit, and was given the budget as its limit.
+         */
+        CAP,
+        /**
+         * The limit was raised, to avoid collections during matches.
+         */
+        RAISE,
+        /**
+         * The limit was lowered, to save memory.
+         */
+        LOWER,
+        /**
+         * Garbage was collected.
+         */
+        COLLECT
+    }
+
+    /**
+     * A decision of the governor.
+     */
+    public static class Decision {
+        private final long timeMillis;
+        private final int engineIndex;
+        private final Action action;
+        private final int limitBefore;
+        private final int limitAfter;
+        private final int usageBefore;
+        private final int usageAfter;
+
+        Decision(int engineIndex, Action action, int limitBefore, int limitAfter, int usageBefore, int usageAfter) {
+            this.timeMillis = System.currentTimeMillis();
+            this.engineIndex = engineIndex;
+            this.action = action;
+            this.limitBefore = limitBefore;
+            this.limitAfter = limitAfter;
+            this.usageBefore = usageBefore;
+            this.usageAfter = usageAfter;
+        }
+
+        /**
+         * When the decision was taken, in milliseconds since the epoch.
+         */
+        public long getTimeMillis() {
+            return timeMillis;
+        }
+
+        /**
+         * The index of the engine in the pool.
+         */
+        public int getEngineIndex() {
+            return engineIndex;
+        }
+
+        public Action getAction() {
+            return action;
+        }
+
+        /**
+         * The limit before the decision, in kilobytes.
+         */
+        public int getLimitBefore() {
+            return limitBefore;
+        }
+
+        /**
+         * The limit after the decision, in kilobytes.
+         */
+        public int getLimitAfter() {
+            return limitAfter;
+        }
+
+        /**
+         * The heap usage before the decision, in kilobytes.
+         */
+        public int getUsageBefore() {
+            return usageBefore;
+        }
+
+        /**
+         * The heap usage after the decision, in kilobytes.
+         */
+        public int getUsageAfter() {
+            return usageAfter;
+        }
+
+        @Override
+        public String toString() {
+            return "Decision{engine=" + engineIndex + ", action=" + action + ", limit=" + limitBefore + "->"
+                    + limitAfter + ", usage=" + usageBefore + "->" + usageAfter + "}";
+        }
+    }
+
+
+    private final RosieEnginePool pool;
+    private final int budget;
+    private final long latencyTargetNanos;
+    final EngineState[] states;
+    private final Deque<Decision> decisions = new ArrayDeque<>();
+    private volatile Consumer<Decision> listener = decision -> {
+    };
+    private ScheduledExecutorService scheduler;
+
+
+    /**
+     * Creates a governor for the engines of the given pool.
+     *
+     * @param pool          the pool
+     * @param budget        the maximum limit of the heap of each engine, in kilobytes
+     * @param latencyTarget the duration above which a match is considered slow
+     * @param unit          the time unit of {@code latencyTarget}
+     */
+    public HeapGovernor(RosieEnginePool pool, int budget, long latencyTarget, TimeUnit unit) {
+        if (budget < MIN_LIMIT) {
+            throw new IllegalArgumentException("budget must be " + MIN_LIMIT + " KB or higher");
+        }
+        this.pool = pool;
+        this.budget = budget;
+        this.latencyTargetNanos = unit.toNanos(latencyTarget);
+        this.states = new EngineState[pool.getSize()];
+        for (int i = 0; i < states.length; i++) {
+            RosieEngine engine = pool.getSlot(i).engine;
+            states[i] = new EngineState(engine.getMetrics());
+            engine.setMetrics(states[i]);
+        }
+    }
+
+
+    /**
+     * Runs {@link #tick()} periodically, in a background thread.
+     */
+    public synchronized void start(long period, TimeUnit unit) {
+        if (scheduler != null) {
+            throw new IllegalStateException("already started");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rosie-heap-governor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::tick, period, period, unit);
+    }
+
+    /**
+     * Samples the heap of each idle engine, adjusting its limit and collecting garbage as needed.
+     */
+    public void tick() {
+        for (int i = 0; i < states.length; i++) {
+            RosieEnginePool.Slot slot = pool.pollIdle(i);
+            if (slot != null) {
+                try {
+                    govern(slot, states[i]);
+                } finally {
+                    pool.release(slot);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets a function called with each decision, on the thread running {@link #tick()}.
+     */
+    public void setListener(Consumer<Decision> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Gets the most recent decisions, oldest first.
+     */
+    public List<Decision> getDecisions() {
+        synchronized (decisions) {
+            return new ArrayList<>(decisions);
+        }
+    }
+
+    /**
+     * Gets the heap limit and usage of the engine with the given index, as of the last tick it was idle, or
+     * {@code null} if it was never sampled.
+     */
+    public AllocLimitResult getHeap(int engineIndex) {
+        return states[engineIndex].heap;
+    }
+
+    /**
+     * Stops ticking, and gives back the original metrics to the engines.
+     * <p>
+     * Limits are left as set by the governor.
+     */
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        for (int i = 0; i < states.length; i++) {
+            RosieEngine engine = pool.getSlot(i).engine;
+            if (engine.getMetrics() == states[i]) {
+                engine.setMetrics(states[i].delegate);
+            }
+        }
+    }
+
+
+    private void govern(RosieEnginePool.Slot slot, EngineState state) {
+        RosieEngine engine = slot.engine;
+        AllocLimitResult heap = state.sample(engine);
+        int limit = heap.getLimit();
+        int usage = heap.getUsage();
+        long slow = state.slow.getAndSet(0);
+        boolean collectedDuringMatch = state.heap != null && usage < state.heap.getUsage();
+
+        int target = limit;
+        if (limit == 0) {
+            target = budget;
+        } else if (collectedDuringMatch && slow > 0) {
+            target = Math.min(budget, limit + limit / 2);
+        } else if (slow == 0 && usage < limit / 2) {
+            target = Math.max(MIN_LIMIT, 2 * usage);
+        }
+        if (target != limit) {
+            engine.setAllocLimit(target);
+            Action action = limit == 0 ? Action.CAP : target > limit ? Action.RAISE : Action.LOWER;
+            decide(slot.index, action, limit, target, usage, usage);
+            limit = target;
+        }
+
+        if (usage >= limit * COLLECT_THRESHOLD && usage > MIN_LIMIT) {
+            engine.setAllocLimit(MIN_LIMIT);
+            try {
+                slot.pattern(TRIVIAL_PATTERN).matches("");
+            } finally {
+                engine.setAllocLimit(limit);
+            }
+            heap = state.sample(engine);
+            decide(slot.index, Action.COLLECT, limit, limit, usage, heap.getUsage());
+        }
+        state.heap = new AllocLimitResult(limit, heap.getUsage());
+    }
+
+    private void decide(int engineIndex, Action action, int limitBefore, int limitAfter, int usageBefore,
+                        int usageAfter) {
+        Decision decision = new Decision(engineIndex, action, limitBefore, limitAfter, usageBefore, usageAfter);
+        synchronized (decisions) {
+            if (decisions.size() == MAX_DECISIONS) {
+                decisions.removeFirst();
+            }
+            decisions.addLast(decision);
+        }
+        listener.accept(decision);
+    }
+
+
+    /**
+     * What the governor knows about an engine; observes its matches to count the slow ones.
+     */
+    class EngineState implements MatchMetrics {
+        final MatchMetrics delegate;
+        final AtomicLong slow = new AtomicLong();
+        volatile AllocLimitResult heap;
+
+        EngineState(MatchMetrics delegate) {
+            this.delegate = delegate;
+        }
+
+        /**
+         * Reads the current limit and usage of the heap of the engine.
+         */
+        AllocLimitResult sample(RosieEngine engine) {
+            return engine.getAllocLimit();
+        }
+
+        @Override
+        public void record(Pattern pattern, int inputBytes, boolean matched, int totalMicros, int matchMicros,
+                           long elapsedNanos) {
+            if (elapsedNanos > latencyTargetNanos) {
+                slow.incrementAndGet();
+            }
+            delegate.record(pattern, inputBytes, matched, totalMicros, matchMicros, elapsedNanos);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.github.antoniomacri.rosie;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+
+/**
+ * Aggregates match measurements per pattern expression into counters and lock-free histograms.
+ * <p>
+ * Recording a match costs a map lookup and a few atomic increments, so this can be left enabled in production.
+ * The same instance can be shared by many engines (for instance, by all the engines of a pool).
+ */
+public class HistogramMatchMetrics implements MatchMetrics {
+    private final ConcurrentMap<String, PatternMetrics> patterns = new ConcurrentHashMap<>();
+
+
+    @Override
+    public void record(Pattern pattern, int inputBytes, boolean matched, int totalMicros, int matchMicros,
+                       long elapsedNanos) {
+        String expression = pattern.toString();
+        PatternMetrics metrics = patterns.get(expression);
+        if (metrics == null) {
+            metrics = patterns.computeIfAbsent(expression, PatternMetrics::new);
+        }
+        metrics.record(inputBytes, matched, totalMicros, matchMicros, elapsedNanos);
+    }
+
+
+    /**
+     * Gets the measurements for the given expression, or {@code null} if it was never matched.
+     */
+    public PatternMetrics get(String expression) {
+        return patterns.get(expression);
+    }
+
+    /**
+     * Gets the measurements for all the expressions matched.
+     */
+    public List<PatternMetrics> getAll() {
+        return new ArrayList<>(patterns.values());
+    }
+
+    /**
+     * Clears all the measurements.
+     */
+    public void reset() {
+        patterns.values().forEach(PatternMetrics::reset);
+    }
+}
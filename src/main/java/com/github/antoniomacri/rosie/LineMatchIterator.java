@@ -0,0 +1,229 @@
+package com.github.antoniomacri.rosie;
+
+import com.github.antoniomacri.rosie.encoding.Decoder;
+import com.github.antoniomacri.rosie.lib.NativeMatch;
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+
+/**
+ * Matches a pattern against each line of a stream, using two native buffers alternately.
+ * <p>
+ * A background thread fills one buffer with the next chunk of the stream while the consuming thread matches the
+ * lines of the other, in place. A chunk always ends at a line boundary: the partial line at its end is carried over
+ * to the next chunk. Memory use is therefore bounded by twice the buffer size, unless a single line is longer than
+ * the buffer, in which case the buffer grows to hold it.
+ */
+final class LineMatchIterator<T> implements Iterator<T>, Closeable {
+    private static final Object END = new Object();
+
+
+    private static class Chunk {
+        ByteBuffer buffer;
+        Pointer address;
+
+        Chunk(int capacity) {
+            allocate(capacity);
+        }
+
+        void allocate(int capacity) {
+            buffer = ByteBuffer.allocateDirect(capacity);
+            address = Native.getDirectBufferPointer(buffer);
+        }
+    }
+
+    private static class Failure {
+        final Throwable cause;
+
+        Failure(Throwable cause) {
+            this.cause = cause;
+        }
+    }
+
+
+    private final Pattern pattern;
+    private final Decoder<T> decoder;
+    private final InputStream input;
+    private final BlockingQueue<Chunk> free = new ArrayBlockingQueue<>(2);
+    private final BlockingQueue<Object> filled = new ArrayBlockingQueue<>(3);
+    private final NativeMatch Cmatch = new NativeMatch();
+    private final Thread reader;
+
+    private Chunk current;
+    private T next;
+    private boolean hasNext;
+    private boolean finished;
+    private volatile boolean closed;
+
+
+    LineMatchIterator(Pattern pattern, InputStream input, Decoder<T> decoder, int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("buffer size must be positive");
+        }
+        this.pattern = pattern;
+        this.decoder = decoder;
+        this.input = input;
+        free.add(new Chunk(bufferSize));
+        free.add(new Chunk(bufferSize));
+        reader = new Thread(this::read, "rosie-line-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+
+    @Override
+    public boolean hasNext() {
+        if (!hasNext && !finished) {
+            hasNext = advance();
+        }
+        return hasNext;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        hasNext = false;
+        T result = next;
+        next = null;
+        return result;
+    }
+
+    /**
+     * Stops reading the stream.
+     * <p>
+     * The stream itself is not closed: a read already blocked on it completes in the background.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        finished = true;
+        reader.interrupt();
+    }
+
+
+    private boolean advance() {
+        while (current == null || !current.buffer.hasRemaining()) {
+            if (current != null) {
+                free.add(current);
+                current = null;
+            }
+            Object item = take();
+            if (item == END) {
+                finished = true;
+                return false;
+            }
+            if (item instanceof Failure) {
+                finished = true;
+                Throwable cause = ((Failure) item).cause;
+                if (cause instanceof IOException) {
+                    throw new UncheckedIOException((IOException) cause);
+                }
+                throw new IllegalStateException("failed reading input", cause);
+            }
+            current = (Chunk) item;
+        }
+
+        ByteBuffer buffer = current.buffer;
+        int begin = buffer.position();
+        int end = begin;
+        int limit = buffer.limit();
+        while (end < limit && buffer.get(end) != '\n') {
+            end++;
+        }
+        buffer.position(end < limit ? end + 1 : end);
+        if (end > begin && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+
+        Cmatch.setInput(current.address.share(begin), end - begin);
+        boolean matched = pattern.match(Cmatch, 0, decoder.getEncodingName());
+        next = Pattern.decode(Cmatch, matched, decoder);
+        return true;
+    }
+
+    private Object take() {
+        try {
+            return filled.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new IllegalStateException("interrupted while waiting for input", e);
+        }
+    }
+
+
+    /**
+     * Body of the reader thread.
+     */
+    private void read() {
+        byte[] staging = new byte[8192];
+        byte[] carry = new byte[0];
+        int carryLength = 0;
+        try {
+            while (!closed) {
+                Chunk chunk = free.take();
+                if (carryLength >= chunk.buffer.capacity()) {
+                    chunk.allocate(Math.max(carryLength * 2, chunk.buffer.capacity() * 2));
+                }
+                ByteBuffer buffer = chunk.buffer;
+                buffer.clear();
+                buffer.put(carry, 0, carryLength);
+                boolean eof = false;
+                while (buffer.hasRemaining()) {
+                    int read = input.read(staging, 0, Math.min(staging.length, buffer.remaining()));
+                    if (read < 0) {
+                        eof = true;
+                        break;
+                    }
+                    buffer.put(staging, 0, read);
+                }
+                buffer.flip();
+
+                int lastNewline = buffer.limit() - 1;
+                while (lastNewline >= 0 && buffer.get(lastNewline) != '\n') {
+                    lastNewline--;
+                }
+                if (eof) {
+                    carryLength = 0;
+                } else {
+                    // keep the partial line for the next chunk
+                    int tail = lastNewline + 1;
+                    carryLength = buffer.limit() - tail;
+                    if (carry.length < carryLength) {
+                        carry = new byte[carryLength];
+                    }
+                    ByteBuffer duplicate = buffer.duplicate();
+                    duplicate.position(tail);
+                    duplicate.get(carry, 0, carryLength);
+                    buffer.limit(tail);
+                }
+
+                if (buffer.hasRemaining()) {
+                    filled.put(chunk);
+                } else {
+                    free.put(chunk);
+                }
+                if (eof) {
+                    filled.put(END);
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            // closed
+        } catch (IOException | RuntimeException e) {
+            filled.offer(new Failure(e));
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.github.antoniomacri.rosie;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Rejects, without calling librosie, inputs which cannot match a pattern because they lack the literals it requires.
+ * <p>
+ * The literals are extracted from the parse tree of the expression (see {@link RosieEngine#parseExpression}): a
+ * literal is required by a sequence if it is required by any of its elements, and a set of literals is required by
+ * a choice if each alternative requires one of them. Anything else (references, character sets, predicates,
+ * optional repetitions, macros) requires nothing, so that the prefilter is conservative: an input is rejected only
+ * if it contains none of the literals of the set, which the pattern could not match anyway. Among the sets
+ * required by a sequence, the one whose shortest literal is the longest is kept.
+ * <p>
+ * Inputs are searched with {@link String#indexOf(String, int)}, or byte by byte for UTF-8 encoded inputs.
+ */
+public class LiteralPrefilter {
+    /**
+     * Maximum number of literals in the set, above which the prefilter is not worth it.
+     */
+    public static final int MAX_LITERALS = 16;
+
+    private static final Set<String> SEQUENCES = new LinkedHashSet<>(Arrays.asList(
+            "rpl_expression", "sequence", "raw", "cooked", "raw_exp", "cooked_exp"));
+
+
+    private final List<String> literals;
+    private final byte[][] encoded;
+    private final AtomicLong checks = new AtomicLong();
+    private final AtomicLong skips = new AtomicLong();
+
+
+    LiteralPrefilter(List<String> literals) {
+        this.literals = Collections.unmodifiableList(new ArrayList<>(literals));
+        this.encoded = new byte[literals.size()][];
+        for (int i = 0; i < encoded.length; i++) {
+            encoded[i] = literals.get(i).getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Builds the prefilter for the given parse tree.
+     *
+     * @return the prefilter, or {@code null} if the expression does not require any literal
+     */
+    static LiteralPrefilter of(JsonNode tree) {
+        List<String> literals = required(tree);
+        return literals == null ? null : new LiteralPrefilter(literals);
+    }
+
+
+    /**
+     * The literals of which the input must contain at least one.
+     */
+    public List<String> getLiterals() {
+        return literals;
+    }
+
+    /**
+     * The number of inputs checked.
+     */
+    public long getCheckCount() {
+        return checks.get();
+    }
+
+    /**
+     * The number of inputs rejected without calling librosie.
+     */
+    public long getSkipCount() {
+        return skips.get();
+    }
+
+    /**
+     * The fraction of the inputs checked which were rejected, or 0 if none was checked.
+     */
+    public double getSkipRate() {
+        long checked = checks.get();
+        return checked == 0 ? 0 : (double) skips.get() / checked;
+    }
+
+
+    /**
+     * Returns {@code false} if the input, from the given index, contains none of the literals.
+     */
+    boolean mayMatch(String input, int from) {
+        checks.incrementAndGet();
+        for (String literal : literals) {
+            if (input.indexOf(literal, from) >= 0) {
+                return true;
+            }
+        }
+        skips.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Returns {@code false} if the UTF-8 encoded input, between the given indexes, contains none of the literals.
+     */
+    boolean mayMatch(byte[] input, int from, int to) {
+        checks.incrementAndGet();
+        for (byte[] literal : encoded) {
+            if (indexOf(input, from, to, literal) >= 0) {
+                return true;
+            }
+        }
+        skips.incrementAndGet();
+        return false;
+    }
+
+
+    private static int indexOf(byte[] input, int from, int to, byte[] literal) {
+        byte first = literal[0];
+        int last = to - literal.length;
+        for (int i = from; i <= last; i++) {
+            if (input[i] != first) {
+                continue;
+            }
+            int j = 1;
+            while (j < literal.length && input[i + j] == literal[j]) {
+                j++;
+            }
+            if (j == literal.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the literals of which any input matched by the given node must contain at least one.
+     *
+     * @return the literals, or {@code null} if there is no such set
+     */
+    private static List<String> required(JsonNode node) {
+        String type = node.path("type").asText();
+        JsonNode subs = node.path("subs");
+        if (type.equals("literal")) {
+            String literal = unescape(node.path("data").asText());
+            return literal == null || literal.isEmpty() ? null : Collections.singletonList(literal);
+        } else if (type.equals("choice")) {
+            Set<String> union = new LinkedHashSet<>();
+            for (JsonNode alternative : subs) {
+                List<String> literals = required(alternative);
+                if (literals == null) {
+                    return null;
+                }
+                union.addAll(literals);
+            }
+            return union.isEmpty() || union.size() > MAX_LITERALS ? null : new ArrayList<>(union);
+        } else if (type.equals("quantified_exp")) {
+            // only one or more repetitions require their expression
+            boolean plus = false;
+            JsonNode expression = null;
+            for (JsonNode sub : subs) {
+                String subType = sub.path("type").asText();
+                if (subType.equals("plus")) {
+                    plus = true;
+                } else if (expression == null) {
+                    expression = sub;
+                }
+            }
+            return plus && expression != null ? required(expression) : null;
+        } else if (SEQUENCES.contains(type)) {
+            List<String> best = null;
+            for (JsonNode element : subs) {
+                List<String> literals = required(element);
+                if (literals != null && (best == null || shortest(literals) > shortest(best))) {
+                    best = literals;
+                }
+            }
+            return best;
+        }
+        return null;
+    }
+
+    private static int shortest(List<String> literals) {
+        int shortest = Integer.MAX_VALUE;
+        for (String literal : literals) {
+            shortest = Math.min(shortest, literal.length());
+        }
+        return shortest;
+    }
+
+    /**
+     * Gets the characters matched by an RPL literal, with or without the surrounding quotes.
+     *
+     * @return the characters, or {@code null} if the literal cannot be searched for safely
+     */
+    static String unescape(String literal) {
+        if (literal.length() >= 2 && literal.charAt(0) == '"' && literal.charAt(literal.length() - 1) == '"') {
+            literal = literal.substring(1, literal.length() - 1);
+        }
+        StringBuilder builder = new StringBuilder(literal.length());
+        for (int i = 0; i < literal.length(); i++) {
+            char c = literal.charAt(i);
+            if (c == '?') {
+                // invalid characters of the input are encoded as '?': the literal could match them
+                return null;
+            }
+            if (c != '\\') {
+                builder.append(c);
+                continue;
+            }
+            if (++i == literal.length()) {
+                return null;
+            }
+            c = literal.charAt(i);
+            switch (c) {
+                case '"':
+                case '\\':
+                    builder.append(c);
+                    break;
+                case 'n':
+                    builder.append('\n');
+                    break;
+                case 'r':
+                    builder.append('\r');
+                    break;
+                case 't':
+                    builder.append('\t');
+                    break;
+                default:
+                    // byte and code point escapes are left to librosie
+                    return null;
+            }
+        }
+        return builder.toString();
+    }
+
+
+    @Override
+    public String toString() {
+        return "LiteralPrefilter" + literals;
+    }
+}
@@ -1,17 +1,10 @@
 package com.github.antoniomacri.rosie;
 
-import lombok.AccessLevel;
-import lombok.AllArgsConstructor;
-import lombok.Builder;
-
-
 /**
  * An immutable object describing a match result.
  */
-@AllArgsConstructor(access = AccessLevel.PRIVATE)
-@Builder(access = AccessLevel.PRIVATE)
 public class Match {
-    private final Boolean bool;
+    private final boolean matched;
     private final String data;
     private final int leftover;
     private final int abend;
@@ -19,25 +12,33 @@ public class Match {
     private final int tmatch;
 
 
+    private Match(boolean matched, String data, int leftover, int abend, int ttotal, int tmatch) {
+        this.matched = matched;
+        this.data = data;
+        this.leftover = leftover;
+        this.abend = abend;
+        this.ttotal = ttotal;
+        this.tmatch = tmatch;
+    }
+
+
     static Match failed(int leftover, int abend, int ttotal, int tmatch) {
-        return builder()
-                .bool(false)
-                .leftover(leftover).abend(abend).ttotal(ttotal).tmatch(tmatch)
-                .build();
+        return new Match(false, null, leftover, abend, ttotal, tmatch);
     }
 
     static Match noData(int leftover, int abend, int ttotal, int tmatch) {
-        return builder()
-                .bool(true)
-                .leftover(leftover).abend(abend).ttotal(ttotal).tmatch(tmatch)
-                .build();
+        return new Match(true, null, leftover, abend, ttotal, tmatch);
     }
 
     static Match withData(String data, int leftover, int abend, int ttotal, int tmatch) {
-        return builder()
-                .data(data)
-                .leftover(leftover).abend(abend).ttotal(ttotal).tmatch(tmatch)
-                .build();
+        return new Match(true, data, leftover, abend, ttotal, tmatch);
+    }
+
+    /**
+     * Returns a copy of this successful match, with the given data.
+     */
+    Match withData(String data) {
+        return new Match(true, data, leftover, abend, ttotal, tmatch);
     }
 
 
@@ -45,7 +46,7 @@ public class Match {
      * Returns {@code true} if the pattern matched.
      */
     public boolean isMatched() {
-        return Boolean.TRUE.equals(bool) || data != null;
+        return matched;
     }
 
     /**
@@ -0,0 +1,135 @@
+package com.github.antoniomacri.rosie;
+
+import com.github.antoniomacri.rosie.encoding.Decoder;
+import com.github.antoniomacri.rosie.encoding.RawDecoder;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+
+/**
+ * The results of matching a pattern against a batch of inputs (see {@link Pattern#matchBatch}).
+ * <p>
+ * Results are stored in a compact form (a few primitive arrays, plus one byte array holding the encoded data of all
+ * the inputs); {@link Match} objects are only created when requested.
+ */
+public class MatchBatch<T> {
+    private final Decoder<T> decoder;
+    private final boolean[] matched;
+    private final int[] leftover;
+    private final int[] abend;
+    private final int[] ttotal;
+    private final int[] tmatch;
+    private final boolean[] hasData;
+    private final int[] dataOffsets;
+    private byte[] data;
+
+
+    MatchBatch(Decoder<T> decoder, int size) {
+        this.decoder = decoder;
+        this.matched = new boolean[size];
+        this.leftover = new int[size];
+        this.abend = new int[size];
+        this.ttotal = new int[size];
+        this.tmatch = new int[size];
+        this.hasData = new boolean[size];
+        this.dataOffsets = new int[size + 1];
+        this.data = new byte[0];
+    }
+
+
+    /**
+     * The number of inputs in the batch.
+     */
+    public int size() {
+        return matched.length;
+    }
+
+    /**
+     * Returns {@code true} if the pattern matched the input with the given index.
+     */
+    public boolean isMatched(int index) {
+        return matched[index];
+    }
+
+    /**
+     * Returns the number of bytes left unmatched in the input with the given index.
+     */
+    public int getRemainingBytes(int index) {
+        return leftover[index];
+    }
+
+    /**
+     * Returns the encoder-specific data for the input with the given index, or {@code null} if there is none.
+     */
+    public String getData(int index) {
+        if (!hasData[index]) {
+            return null;
+        }
+        return new String(data, dataOffsets[index], dataOffsets[index + 1] - dataOffsets[index]);
+    }
+
+    /**
+     * Returns the match result for the input with the given index.
+     */
+    public Match getMatch(int index) {
+        if (hasData[index]) {
+            return Match.withData(getData(index), leftover[index], abend[index], ttotal[index], tmatch[index]);
+        } else if (matched[index]) {
+            return Match.noData(leftover[index], abend[index], ttotal[index], tmatch[index]);
+        } else {
+            return Match.failed(leftover[index], abend[index], ttotal[index], tmatch[index]);
+        }
+    }
+
+    /**
+     * Returns the result for the input with the given index, constructed using the decoder of the batch.
+     */
+    public T get(int index) {
+        if (decoder instanceof RawDecoder && hasData[index]) {
+            ByteBuffer buffer = ByteBuffer.wrap(data, dataOffsets[index], dataOffsets[index + 1] - dataOffsets[index]);
+            Match match = Match.noData(leftover[index], abend[index], ttotal[index], tmatch[index]);
+            return ((RawDecoder<T>) decoder).decode(buffer, match);
+        }
+        return decoder.decode(getMatch(index));
+    }
+
+    /**
+     * The number of microseconds spent by librosie in matching all the inputs, excluding encoding.
+     */
+    public long getTotalMatchMicros() {
+        long total = 0;
+        for (int t : tmatch) {
+            total += t;
+        }
+        return total;
+    }
+
+
+    void set(int index, boolean matched, int leftover, int abend, int ttotal, int tmatch) {
+        this.matched[index] = matched;
+        this.leftover[index] = leftover;
+        this.abend[index] = abend;
+        this.ttotal[index] = ttotal;
+        this.tmatch[index] = tmatch;
+    }
+
+    /**
+     * Stores the data of the input with the given index, which must be the one following the last stored.
+     *
+     * @param length the length of the data, or -1 if there is no data
+     */
+    void setData(int index, byte[] source, int offset, int length) {
+        int begin = dataOffsets[index];
+        if (length < 0) {
+            dataOffsets[index + 1] = begin;
+            return;
+        }
+        if (begin + length > data.length) {
+            data = Arrays.copyOf(data, Math.max(begin + length, data.length * 2));
+        }
+        System.arraycopy(source, offset, data, begin, length);
+        dataOffsets[index + 1] = begin + length;
+        hasData[index] = true;
+    }
+}
@@ -0,0 +1,45 @@
+package com.github.antoniomacri.rosie;
+
+/**
+ * Counters describing the result of matching a whole file (see {@link Pattern#matchFile}).
+ */
+public class MatchFileResult {
+    private final int inputLines;
+    private final int matchedLines;
+    private final int failedLines;
+
+
+    MatchFileResult(int inputLines, int matchedLines, int failedLines) {
+        this.inputLines = inputLines;
+        this.matchedLines = matchedLines;
+        this.failedLines = failedLines;
+    }
+
+
+    /**
+     * The number of lines read from the input file (1 if the file was matched as a whole).
+     */
+    public int getInputLines() {
+        return inputLines;
+    }
+
+    /**
+     * The number of lines that matched, whose encoded results were written to the output file.
+     */
+    public int getMatchedLines() {
+        return matchedLines;
+    }
+
+    /**
+     * The number of lines that did not match, which were written to the error file.
+     */
+    public int getFailedLines() {
+        return failedLines;
+    }
+
+
+    @Override
+    public String toString() {
+        return "MatchFileResult{in=" + inputLines + ", out=" + matchedLines + ", err=" + failedLines + "}";
+    }
+}
@@ -0,0 +1,37 @@
+package com.github.antoniomacri.rosie;
+
+/**
+ * Receives the measurements of each match done by the patterns of an engine (see {@link RosieEngine#setMetrics}).
+ * <p>
+ * Implementations are called on the matching thread, once per match, and must be thread-safe and cheap.
+ * {@link HistogramMatchMetrics} aggregates the measurements per pattern.
+ */
+public interface MatchMetrics {
+    /**
+     * Discards all the measurements. This is the default: the clock is not even read.
+     */
+    MatchMetrics NONE = (pattern, inputBytes, matched, totalMicros, matchMicros, elapsedNanos) -> {
+    };
+
+
+    /**
+     * Records a match.
+     * <p>
+     * {@code totalMicros - matchMicros} is the time spent by librosie encoding the results, and
+     * {@code elapsedNanos - 1000 * totalMicros} the overhead of the binding.
+     * <p>
+     * For the {@code match} methods of {@link Pattern}, {@code elapsedNanos} runs from before the input is written to
+     * native memory (encoding strings to UTF-8) to after the results are decoded, so that the overhead includes the
+     * copies, JNA marshalling and decoding. For matchers, iterators and batches, which write the input and decode the
+     * results themselves, it covers the native call only; a batch matched with a single native call shares its time
+     * evenly among the inputs.
+     *
+     * @param pattern      the pattern matched
+     * @param inputBytes   the length in bytes of the input
+     * @param matched      whether the pattern matched
+     * @param totalMicros  the time spent in librosie, as reported by it (see {@link Match#getTotalMillis()})
+     * @param matchMicros  the time spent matching, as reported by librosie (see {@link Match#getMatchMillis()})
+     * @param elapsedNanos the time elapsed in Java, as described above
+     */
+    void record(Pattern pattern, int inputBytes, boolean matched, int totalMicros, int matchMicros, long elapsedNanos);
+}
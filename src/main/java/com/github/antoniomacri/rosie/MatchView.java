@@ -0,0 +1,162 @@
+package com.github.antoniomacri.rosie;
+
+import com.github.antoniomacri.rosie.encoding.Decoder;
+import com.github.antoniomacri.rosie.lib.NativeMatch;
+import com.sun.jna.Pointer;
+
+import java.nio.ByteBuffer;
+
+
+/**
+ * A lightweight, mutable view of a match result.
+ * <p>
+ * A view returned by {@link Matcher#view(Decoder)} exposes the result data in place, as a slice of the native memory
+ * owned by the engine: it is only valid until the next match on the same engine, and it is overwritten by the next
+ * call to the matcher. No {@link String} nor any other object is created for each match, as long as librosie keeps
+ * writing results at the same address, which is the common case. Use {@link #copy()} or {@link #copy(ResultArena)}
+ * to keep a result for longer.
+ */
+public class MatchView {
+    private boolean matched;
+    private int leftover;
+    private int abend;
+    private int ttotal;
+    private int tmatch;
+
+    private ByteBuffer data;
+    private long address;
+    private ByteBuffer view;
+
+
+    MatchView() {
+    }
+
+
+    /**
+     * Returns {@code true} if the pattern matched.
+     */
+    public boolean isMatched() {
+        return matched;
+    }
+
+    /**
+     * Returns {@code true} if the result has encoder-specific data.
+     */
+    public boolean hasData() {
+        return data != null;
+    }
+
+    /**
+     * Encoder-specific data of the match result, between the position and the limit of the buffer, or {@code null}
+     * if there is none.
+     * <p>
+     * The position and the limit may be changed by the caller: they are set again by the next match.
+     */
+    public ByteBuffer getData() {
+        return data;
+    }
+
+    /**
+     * The length in bytes of the data, or 0 if there is none.
+     */
+    public int getDataLength() {
+        return data == null ? 0 : data.limit();
+    }
+
+    /**
+     * Indicates whether the match ended abnormally by encountering an RPL {@code error} macro.
+     */
+    public boolean isAborted() {
+        return abend != 0;
+    }
+
+    /**
+     * When the match succeeded, indicates the number of bytes left unmatched.
+     */
+    public int getRemainingBytes() {
+        return leftover;
+    }
+
+    /**
+     * The number of microseconds spent in the call.
+     */
+    public int getTotalMicros() {
+        return ttotal;
+    }
+
+    /**
+     * The number of microseconds spent actually doing the matching.
+     */
+    public int getMatchMicros() {
+        return tmatch;
+    }
+
+
+    /**
+     * Copies this result to the Java heap.
+     */
+    public MatchView copy() {
+        return copyTo(data == null ? null : ByteBuffer.allocate(data.limit()));
+    }
+
+    /**
+     * Copies this result to memory allocated from the given arena, valid until the arena is reset.
+     */
+    public MatchView copy(ResultArena arena) {
+        return copyTo(data == null ? null : arena.allocate(data.limit()));
+    }
+
+    /**
+     * Converts this result to a {@link Match}, decoding the data into a string.
+     */
+    public Match toMatch() {
+        if (data == null) {
+            return matched ? Match.noData(leftover, abend, ttotal, tmatch) : Match.failed(leftover, abend, ttotal, tmatch);
+        }
+        byte[] bytes = new byte[data.limit()];
+        ((ByteBuffer) data.duplicate().clear()).get(bytes);
+        return Match.withData(new String(bytes), leftover, abend, ttotal, tmatch);
+    }
+
+
+    private MatchView copyTo(ByteBuffer target) {
+        MatchView copy = new MatchView();
+        copy.matched = matched;
+        copy.leftover = leftover;
+        copy.abend = abend;
+        copy.ttotal = ttotal;
+        copy.tmatch = tmatch;
+        if (target != null) {
+            target.put((ByteBuffer) data.duplicate().clear());
+            target.flip();
+            copy.data = target;
+        }
+        return copy;
+    }
+
+    /**
+     * Points this view at the results stored into {@code Cmatch}.
+     */
+    MatchView set(NativeMatch Cmatch, boolean matched) {
+        this.matched = matched;
+        this.leftover = Cmatch.getLeftover();
+        this.abend = Cmatch.getAbend();
+        this.ttotal = Cmatch.getTtotal();
+        this.tmatch = Cmatch.getTmatch();
+
+        long dataAddress = Cmatch.getDataAddress();
+        if (dataAddress == 0) {
+            data = null;
+            return this;
+        }
+        int length = Cmatch.getDataLen();
+        if (view == null || dataAddress != address || view.capacity() < length) {
+            // librosie reuses its output buffer, so this is rare once the buffer has grown
+            view = new Pointer(dataAddress).getByteBuffer(0, length);
+            address = dataAddress;
+        }
+        view.clear().limit(length);
+        data = view;
+        return this;
+    }
+}
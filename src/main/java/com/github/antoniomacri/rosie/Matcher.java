@@ -0,0 +1,381 @@
+package com.github.antoniomacri.rosie;
+
+import com.github.antoniomacri.rosie.encoding.Decoder;
+import com.github.antoniomacri.rosie.lib.NativeMatch;
+import com.sun.jna.Memory;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * A reusable object that matches a {@link Pattern} against a sequence of inputs.
+ * <p>
+ * A matcher is created by {@link Pattern#matcher()}; like {@link java.util.regex.Matcher}, it is then
+ * {@linkplain #reset(CharSequence) reset} with each new input. The input is encoded into a native buffer that is
+ * grown as needed and reused across inputs, and match results are written into a native structure reused across
+ * calls, so that {@link #matches()} and the span accessors do not allocate on the Java heap once the buffer is
+ * large enough.
+ * <p>
+ * As with patterns, a matcher must not be used by more than one thread at a time.
+ */
+public class Matcher implements Closeable {
+    private static final int INITIAL_CAPACITY = 256;
+
+
+    private final Pattern pattern;
+    private final NativeMatch Cmatch = new NativeMatch();
+    private final MatchView view = new MatchView();
+
+    private Memory buffer;
+    private ByteBuffer bufferView;
+
+    /**
+     * The current input, when given as characters (otherwise null, and offsets are in bytes).
+     */
+    private CharSequence chars;
+    private int length;
+    private boolean ascii;
+
+    private boolean matched;
+    private int matchStart;
+    private int matchEnd;
+
+    /**
+     * The byte offset where the next {@link #find()} starts, or -1 when the input is exhausted.
+     */
+    private int findFrom;
+
+    /**
+     * A character index and the corresponding byte offset, from which offsets are converted forward.
+     */
+    private int cursorChar;
+    private int cursorByte;
+
+
+    Matcher(Pattern pattern) {
+        this.pattern = pattern;
+        ensureCapacity(INITIAL_CAPACITY);
+    }
+
+
+    /**
+     * Gets the pattern matched by this matcher.
+     */
+    public Pattern pattern() {
+        return pattern;
+    }
+
+    /**
+     * Resets this matcher with a new input.
+     * <p>
+     * Offsets ({@link #start()}, {@link #end()} and the start arguments) are indexes of the characters of the input.
+     *
+     * @param input the input characters
+     */
+    public Matcher reset(CharSequence input) {
+        int bytes = Utf8.encodedLength(input, 0, input.length());
+        ensureCapacity(bytes);
+        bufferView.clear();
+        Utf8.encode(input, bufferView);
+        setInput(input, bytes);
+        ascii = bytes == input.length();
+        return this;
+    }
+
+    /**
+     * Resets this matcher with a new UTF-8 encoded input.
+     * <p>
+     * Offsets ({@link #start()}, {@link #end()} and the start arguments) are in bytes, relative to {@code offset}.
+     *
+     * @param input  the input bytes
+     * @param offset index of the first byte of the input
+     * @param length number of bytes of the input
+     */
+    public Matcher reset(byte[] input, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > input.length - length) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", array length " + input.length);
+        }
+        ensureCapacity(length);
+        buffer.write(0, input, offset, length);
+        setInput(null, length);
+        return this;
+    }
+
+    /**
+     * Resets this matcher with a new UTF-8 encoded input, given by the bytes between the position and the limit of
+     * the buffer. The position of the buffer is not changed.
+     * <p>
+     * Offsets ({@link #start()}, {@link #end()} and the start arguments) are in bytes, relative to the position.
+     *
+     * @param input the input bytes
+     */
+    public Matcher reset(ByteBuffer input) {
+        int length = input.remaining();
+        ensureCapacity(length);
+        bufferView.clear();
+        bufferView.put(input.duplicate());
+        setInput(null, length);
+        return this;
+    }
+
+
+    /**
+     * Matches the pattern against the current input and returns {@code true} if the match succeeds.
+     */
+    public boolean matches() {
+        return matches(0);
+    }
+
+    /**
+     * Matches the pattern against the current input, starting at the given offset, and returns {@code true} if
+     * the match succeeds.
+     *
+     * @param start 0-based beginning offset (inclusive)
+     */
+    public boolean matches(int start) {
+        run(start, "bool");
+        return matched;
+    }
+
+    /**
+     * Matches the pattern against the current input and constructs a result using the specified output decoder.
+     *
+     * @param decoder the output decoder
+     */
+    public <T> T match(Decoder<T> decoder) {
+        return match(0, decoder);
+    }
+
+    /**
+     * Matches the pattern against the current input, starting at the given offset, and constructs a result using
+     * the specified output decoder.
+     *
+     * @param start   0-based beginning offset (inclusive)
+     * @param decoder the output decoder
+     */
+    public <T> T match(int start, Decoder<T> decoder) {
+        run(start, decoder.getEncodingName());
+        return Pattern.decode(Cmatch, matched, decoder);
+    }
+
+    /**
+     * Matches the pattern against the current input and returns a view of the result.
+     *
+     * @param decoder the output decoder, whose encoder name determines the format of the data
+     * @see #view(int, Decoder)
+     */
+    public MatchView view(Decoder<?> decoder) {
+        return view(0, decoder);
+    }
+
+    /**
+     * Matches the pattern against the current input, starting at the given offset, and returns a view of the
+     * result.
+     * <p>
+     * The view is owned by this matcher and overwritten by its next match; its data is valid only until the next
+     * match on the same engine. No object is created for each match.
+     *
+     * @param start   0-based beginning offset (inclusive)
+     * @param decoder the output decoder, whose encoder name determines the format of the data
+     */
+    public MatchView view(int start, Decoder<?> decoder) {
+        run(start, decoder.getEncodingName());
+        return view.set(Cmatch, matched);
+    }
+
+
+    /**
+     * Finds the next match in the current input, and returns {@code true} if there is one.
+     * <p>
+     * The first call after a reset searches from the beginning of the input; each following call resumes at the end
+     * of the previous match, so that matches do not overlap. Each search is a single native call of the search
+     * variant of the pattern (see {@link Pattern#find(String, int)}), which skips the input up to the next match.
+     */
+    public boolean find() {
+        return find("bool");
+    }
+
+    /**
+     * Finds the next match in the current input, and constructs a result using the specified output decoder.
+     *
+     * @param decoder the output decoder
+     * Unlike {@link #find()}, each match found is matched again at its offset to produce data for the decoder.
+     *
+     * @return the result, or {@code null} if there are no more matches
+     * @see #find()
+     */
+    public <T> T find(Decoder<T> decoder) {
+        return find(decoder.getEncodingName()) ? decode(decoder) : null;
+    }
+
+
+    /**
+     * Returns {@code true} if the last match succeeded.
+     */
+    public boolean hasMatch() {
+        return matched;
+    }
+
+    /**
+     * Returns the offset of the beginning of the last match (inclusive).
+     *
+     * @throws IllegalStateException if the last match did not succeed
+     */
+    public int start() {
+        ensureMatched();
+        return toOffset(matchStart);
+    }
+
+    /**
+     * Returns the offset of the end of the last match (exclusive).
+     *
+     * @throws IllegalStateException if the last match did not succeed
+     */
+    public int end() {
+        ensureMatched();
+        return toOffset(matchEnd);
+    }
+
+    /**
+     * Returns the portion of the input matched by the last match.
+     *
+     * @throws IllegalStateException if the last match did not succeed
+     */
+    public String group() {
+        ensureMatched();
+        if (chars != null) {
+            return chars.subSequence(toOffset(matchStart), toOffset(matchEnd)).toString();
+        }
+        return new String(buffer.getByteArray(matchStart, matchEnd - matchStart), StandardCharsets.UTF_8);
+    }
+
+
+    /**
+     * Releases the native buffers of this matcher.
+     */
+    @Override
+    public void close() {
+        buffer = null;
+        bufferView = null;
+        chars = null;
+        matched = false;
+    }
+
+
+    private void run(int start, String encoding) {
+        int byteStart = toByteOffset(start);
+        if (byteStart < 0 || byteStart > length) {
+            throw new IndexOutOfBoundsException("start " + start + ", input length " + length);
+        }
+        runAt(byteStart, encoding);
+    }
+
+    private void runAt(int byteStart, String encoding) {
+        if (buffer == null) {
+            throw new IllegalStateException("matcher is closed");
+        }
+        matched = pattern.match(Cmatch, byteStart, encoding);
+        matchStart = byteStart;
+        matchEnd = matched ? length - Cmatch.getLeftover() : byteStart;
+    }
+
+    boolean find(String encoding) {
+        if (buffer == null) {
+            throw new IllegalStateException("matcher is closed");
+        }
+        matched = false;
+        if (findFrom < 0) {
+            return false;
+        }
+        FindResult result = pattern.find(buffer, length, findFrom);
+        if (!result.isFound()) {
+            findFrom = -1;
+            return false;
+        }
+        int start = result.getStart();
+        if ("bool".equals(encoding)) {
+            matched = true;
+            matchStart = start;
+            matchEnd = result.getEnd();
+        } else {
+            runAt(start, encoding);
+        }
+        // an empty match is not found again at the same offset
+        findFrom = matchEnd > start ? matchEnd : nextChar(start);
+        return matched;
+    }
+
+    /**
+     * Constructs the result of the last match using the given decoder, whose encoder name must be the one used by
+     * the match.
+     */
+    <T> T decode(Decoder<T> decoder) {
+        return Pattern.decode(Cmatch, matched, decoder);
+    }
+
+    /**
+     * Gets the byte offset of the character following the one at the given offset, or -1 at the end of the input.
+     */
+    private int nextChar(int byteOffset) {
+        if (byteOffset >= length) {
+            return -1;
+        }
+        int next = byteOffset + 1;
+        while (next < length && (buffer.getByte(next) & 0xC0) == 0x80) {
+            next++;
+        }
+        return next;
+    }
+
+    private void setInput(CharSequence chars, int length) {
+        this.chars = chars;
+        this.length = length;
+        this.ascii = true;
+        this.matched = false;
+        this.findFrom = 0;
+        this.cursorChar = 0;
+        this.cursorByte = 0;
+        Cmatch.setInput(buffer, length);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (buffer == null || buffer.size() < capacity) {
+            long size = buffer == null ? INITIAL_CAPACITY : buffer.size();
+            while (size < capacity) {
+                size *= 2;
+            }
+            buffer = new Memory(Math.min(size, Integer.MAX_VALUE));
+            bufferView = buffer.getByteBuffer(0, buffer.size());
+        }
+    }
+
+    private int toOffset(int byteOffset) {
+        if (chars == null || ascii) {
+            return byteOffset;
+        }
+        if (byteOffset < cursorByte) {
+            cursorChar = 0;
+            cursorByte = 0;
+        }
+        // offsets are mostly asked in increasing order, as when finding all matches: convert from the last one
+        int index = Utf8.charIndex(chars, cursorChar, cursorByte, byteOffset);
+        cursorByte = byteOffset;
+        cursorChar = index;
+        return index;
+    }
+
+    private int toByteOffset(int offset) {
+        if (chars == null || ascii || offset <= 0) {
+            return offset;
+        }
+        return offset > chars.length() ? length + 1 : Utf8.encodedLength(chars, 0, offset);
+    }
+
+    private void ensureMatched() {
+        if (!matched) {
+            throw new IllegalStateException("no match available");
+        }
+    }
+}
@@ -0,0 +1,419 @@
+package com.github.antoniomacri.rosie;
+
+import com.github.antoniomacri.rosie.encoding.Decoder;
+import com.github.antoniomacri.rosie.lib.NativeMatch;
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+
+/**
+ * Matches a pattern against each line of a file, using all the engines of a {@link RosieEnginePool} in parallel.
+ * <p>
+ * The file is split into newline-aligned chunks of about {@link #DEFAULT_CHUNK_SIZE} bytes. Each chunk is
+ * memory-mapped and its lines are matched in place by one engine of the pool, on which the pattern is compiled
+ * once. Results can be delivered in input order, or chunk by chunk as soon as they are ready; the same chunks are
+ * also exposed as a {@link Spliterator}, for use in parallel streams.
+ * <p>
+ * Line terminators ({@code \n} or {@code \r\n}) are not part of the matched input.
+ */
+public class ParallelFileMatcher implements Closeable {
+    /**
+     * Default size of the chunks into which files are split.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+
+    private static final int BOUNDARY_SCAN_SIZE = 8 * 1024;
+
+
+    private final RosieEnginePool pool;
+    private final String expression;
+    private final int chunkSize;
+    private final ExecutorService executor;
+
+
+    /**
+     * Creates a matcher using the given pool, with one worker thread per engine.
+     *
+     * @param pool       the pool providing the engines
+     * @param expression the RPL expression to match
+     */
+    public ParallelFileMatcher(RosieEnginePool pool, String expression) {
+        this(pool, expression, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates a matcher using the given pool, with one worker thread per engine.
+     *
+     * @param pool       the pool providing the engines
+     * @param expression the RPL expression to match
+     * @param chunkSize  the approximate size of the chunks into which files are split
+     */
+    public ParallelFileMatcher(RosieEnginePool pool, String expression, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunk size must be positive");
+        }
+        this.pool = pool;
+        this.expression = expression;
+        this.chunkSize = chunkSize;
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(pool.getSize(), runnable -> {
+            Thread thread = new Thread(runnable, "rosie-file-matcher-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+
+    /**
+     * Matches each line of the file and passes the results to the given action, on the calling thread.
+     *
+     * @param file    the file
+     * @param decoder the output decoder
+     * @param ordered {@code true} to deliver results in the order of the lines; {@code false} to deliver the
+     *                results of each chunk as soon as it is ready
+     * @param action  the action receiving the results
+     */
+    public <T> void match(Path file, Decoder<T> decoder, boolean ordered, Consumer<? super T> action) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] boundaries = boundaries(channel);
+            int chunks = boundaries.length - 1;
+            int window = 2 * pool.getSize();
+            Deque<Future<List<T>>> pending = new ArrayDeque<>();
+            try {
+                if (ordered) {
+                    int submitted = 0;
+                    while (submitted < chunks || !pending.isEmpty()) {
+                        while (submitted < chunks && pending.size() < window) {
+                            long begin = boundaries[submitted];
+                            long end = boundaries[++submitted];
+                            pending.add(executor.submit(() -> matchChunk(channel, begin, end, decoder)));
+                        }
+                        await(pending.poll()).forEach(action);
+                    }
+                } else {
+                    CompletionService<List<T>> completion = new ExecutorCompletionService<>(executor);
+                    int submitted = 0;
+                    while (submitted < chunks || !pending.isEmpty()) {
+                        while (submitted < chunks && pending.size() < window) {
+                            long begin = boundaries[submitted];
+                            long end = boundaries[++submitted];
+                            pending.add(completion.submit(() -> matchChunk(channel, begin, end, decoder)));
+                        }
+                        Future<List<T>> done;
+                        try {
+                            done = completion.take();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new IllegalStateException("interrupted while matching", e);
+                        }
+                        pending.remove(done);
+                        await(done).forEach(action);
+                    }
+                }
+            } finally {
+                // on failure, stop the chunks still queued or running before the file is closed
+                for (Future<List<T>> future : pending) {
+                    future.cancel(true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a spliterator over the results of matching each line of the file, in input order.
+     * <p>
+     * The spliterator splits at chunk boundaries. The file is kept open until the spliterator is exhausted.
+     *
+     * @param file    the file
+     * @param decoder the output decoder
+     */
+    public <T> Spliterator<T> spliterator(Path file, Decoder<T> decoder) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new ChunkSpliterator<>(channel, boundaries(channel), decoder);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a stream of the results of matching each line of the file, in input order.
+     * <p>
+     * The stream should be closed to release the file.
+     *
+     * @param file     the file
+     * @param decoder  the output decoder
+     * @param parallel {@code true} to create a parallel stream
+     * @see #spliterator(Path, Decoder)
+     */
+    public <T> Stream<T> stream(Path file, Decoder<T> decoder, boolean parallel) throws IOException {
+        ChunkSpliterator<T> spliterator = (ChunkSpliterator<T>) spliterator(file, decoder);
+        return StreamSupport.stream(spliterator, parallel).onClose(spliterator::close);
+    }
+
+
+    /**
+     * Shuts down the worker threads. The pool is not closed.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+
+    /**
+     * Computes the chunk boundaries: each chunk but the last ends just after a newline.
+     */
+    private long[] boundaries(FileChannel channel) throws IOException {
+        long size = channel.size();
+        List<Long> boundaries = new ArrayList<>();
+        boundaries.add(0L);
+        ByteBuffer scan = ByteBuffer.allocate(BOUNDARY_SCAN_SIZE);
+        long position = 0;
+        while (size - position > chunkSize) {
+            long candidate = position + chunkSize;
+            long boundary = -1;
+            while (boundary < 0 && candidate < size) {
+                scan.clear();
+                int read = channel.read(scan, candidate);
+                if (read <= 0) {
+                    break;
+                }
+                for (int i = 0; i < read; i++) {
+                    if (scan.get(i) == '\n') {
+                        boundary = candidate + i + 1;
+                        break;
+                    }
+                }
+                candidate += read;
+            }
+            if (boundary < 0 || boundary >= size) {
+                break;
+            }
+            boundaries.add(boundary);
+            position = boundary;
+        }
+        boundaries.add(size);
+        long[] result = new long[boundaries.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = boundaries.get(i);
+        }
+        return result;
+    }
+
+    private <T> List<T> matchChunk(FileChannel channel, long begin, long end, Decoder<T> decoder) throws IOException {
+        List<T> results = new ArrayList<>();
+        if (end - begin > Integer.MAX_VALUE) {
+            throw new IOException("line too long to be mapped");
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, begin, end - begin);
+        try (PooledEngine pooled = acquire()) {
+            int lines = matchLines(pooled.getPattern(expression), buffer, decoder, results::add);
+            pooled.countMatches(lines);
+        }
+        return results;
+    }
+
+    private PooledEngine acquire() {
+        try {
+            return pool.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for an engine", e);
+        }
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while matching", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw new UncheckedIOException((IOException) cause);
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("matching failed", cause);
+        }
+    }
+
+    /**
+     * Matches each line of a direct buffer in place.
+     *
+     * @return the number of lines
+     */
+    static <T> int matchLines(Pattern pattern, ByteBuffer buffer, Decoder<T> decoder, Consumer<? super T> action) {
+        NativeMatch Cmatch = new NativeMatch();
+        Pointer address = Native.getDirectBufferPointer(buffer);
+        String encoding = decoder.getEncodingName();
+        int limit = buffer.limit();
+        int begin = buffer.position();
+        int lines = 0;
+        while (begin < limit) {
+            int end = begin;
+            while (end < limit && buffer.get(end) != '\n') {
+                end++;
+            }
+            int next = end < limit ? end + 1 : end;
+            if (end > begin && buffer.get(end - 1) == '\r') {
+                end--;
+            }
+            Cmatch.setInput(address.share(begin), end - begin);
+            boolean matched = pattern.match(Cmatch, 0, encoding);
+            action.accept(Pattern.decode(Cmatch, matched, decoder));
+            lines++;
+            begin = next;
+        }
+        return lines;
+    }
+
+
+    private class ChunkSpliterator<T> implements Spliterator<T> {
+        private static final int ESTIMATED_LINE_LENGTH = 80;
+
+        private final FileChannel channel;
+        private final long[] boundaries;
+        private final Decoder<T> decoder;
+        private final AtomicInteger open;
+        private int next;
+        private final int fence;
+        private final Deque<T> buffered = new ArrayDeque<>();
+        private boolean finished;
+
+        ChunkSpliterator(FileChannel channel, long[] boundaries, Decoder<T> decoder) {
+            this(channel, boundaries, decoder, new AtomicInteger(1), 0, boundaries.length - 1);
+        }
+
+        private ChunkSpliterator(FileChannel channel, long[] boundaries, Decoder<T> decoder, AtomicInteger open,
+                                 int origin, int fence) {
+            this.channel = channel;
+            this.boundaries = boundaries;
+            this.decoder = decoder;
+            this.open = open;
+            this.next = origin;
+            this.fence = fence;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            while (buffered.isEmpty()) {
+                if (next >= fence) {
+                    done();
+                    return false;
+                }
+                buffered.addAll(matchAll(next++));
+            }
+            action.accept(buffered.poll());
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            while (!buffered.isEmpty()) {
+                action.accept(buffered.poll());
+            }
+            if (next < fence) {
+                try (PooledEngine pooled = acquire()) {
+                    Pattern pattern = pooled.getPattern(expression);
+                    while (next < fence) {
+                        int lines = matchLines(pattern, map(next++), decoder, action);
+                        pooled.countMatches(lines);
+                    }
+                }
+            }
+            done();
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            int remaining = fence - next;
+            if (remaining < 2 || !buffered.isEmpty()) {
+                return null;
+            }
+            int middle = next + remaining / 2;
+            open.incrementAndGet();
+            ChunkSpliterator<T> prefix = new ChunkSpliterator<>(channel, boundaries, decoder, open, next, middle);
+            next = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            long bytes = boundaries[fence] - boundaries[next];
+            return buffered.size() + (bytes + ESTIMATED_LINE_LENGTH - 1) / ESTIMATED_LINE_LENGTH;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED;
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private List<T> matchAll(int chunk) {
+            List<T> results = new ArrayList<>();
+            try (PooledEngine pooled = acquire()) {
+                int lines = matchLines(pooled.getPattern(expression), map(chunk), decoder, results::add);
+                pooled.countMatches(lines);
+            }
+            return results;
+        }
+
+        private MappedByteBuffer map(int chunk) {
+            long begin = boundaries[chunk];
+            long end = boundaries[chunk + 1];
+            if (end - begin > Integer.MAX_VALUE) {
+                throw new IllegalStateException("line too long to be mapped");
+            }
+            try {
+                return channel.map(FileChannel.MapMode.READ_ONLY, begin, end - begin);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void done() {
+            if (!finished) {
+                finished = true;
+                if (open.decrementAndGet() == 0) {
+                    close();
+                }
+            }
+        }
+    }
+}
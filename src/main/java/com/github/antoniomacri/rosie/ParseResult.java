@@ -1,7 +1,17 @@
 package com.github.antoniomacri.rosie;
 
+/**
+ * The result of parsing RPL code (see {@link RosieEngine#parseExpression}).
+ */
 public class ParseResult {
+    /**
+     * The parse tree, in JSON format.
+     */
     public final String result;
+
+    /**
+     * The warnings reported by the parser, or {@code null} if none.
+     */
     public final String messages;
 
     public ParseResult(String result, String messages) {
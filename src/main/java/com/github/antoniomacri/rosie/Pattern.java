@@ -2,20 +2,75 @@ package com.github.antoniomacri.rosie;
 
 import com.github.antoniomacri.rosie.encoding.Decoder;
 import com.github.antoniomacri.rosie.encoding.Decoders;
+import com.github.antoniomacri.rosie.encoding.RawDecoder;
+import com.github.antoniomacri.rosie.encoding.SpanDecoder;
+import com.github.antoniomacri.rosie.encoding.Spans;
+import com.github.antoniomacri.rosie.lib.NativeMatch;
+import com.github.antoniomacri.rosie.lib.RosieBatchLib;
 import com.github.antoniomacri.rosie.lib.RosieLib;
-import com.github.antoniomacri.rosie.lib.RosieMatch;
 import com.github.antoniomacri.rosie.lib.RosieString;
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
 import com.sun.jna.Pointer;
 import com.sun.jna.ptr.IntByReference;
 
 import java.io.Closeable;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.List;
 import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 
 /**
  * Represents a compiled RPL pattern that can be matched against input strings.
+ * <p>
+ * Calls to {@code rosie_match} and {@code rosie_trace} go through native structures and an input buffer owned by the
+ * pattern and reused across calls, read and written at fixed offsets: a match does not marshal JNA structures by
+ * reflection, nor allocate native memory once the buffer is large enough. Therefore, a pattern must not be used by
+ * more than one thread at a time.
  */
 public class Pattern implements Closeable {
+    /**
+     * Default number of inputs matched with each native call by {@link #matchBatch}.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    /**
+     * Default size of each of the buffers used by {@link #matchLines}.
+     */
+    public static final int DEFAULT_LINE_BUFFER_SIZE = 1024 * 1024;
+
+    private static final int INITIAL_CAPACITY = 256;
+
+
+    /**
+     * The engine which compiled this pattern.
+     */
+    private final RosieEngine rosie;
+
+    /**
+     * Native structures reused by {@link #match} and {@link #trace}, allocated on first use.
+     */
+    private NativeMatch Cmatch;
+
+    /**
+     * Native buffer holding the input of {@link #match} and {@link #trace}, grown as needed.
+     */
+    private Memory buffer;
+    private ByteBuffer bufferView;
+
+    /**
+     * The search variant of this pattern, compiled on first use by {@link #find}, and its decoder.
+     */
+    private Pattern search;
+    private SpanDecoder searchDecoder;
 
     /**
      * Pointer to the rosie engine.
@@ -32,18 +87,60 @@ public class Pattern implements Closeable {
      */
     private int pat;
 
+    /**
+     * The prefilter rejecting inputs without calling librosie, or null (see {@link RosieEngine#setPrefilterEnabled}).
+     */
+    LiteralPrefilter prefilter;
+
+    /**
+     * The cache of the results of {@link #match(String, int, Decoder)}, or null.
+     */
+    private volatile ResultCache resultCache;
+
+    /**
+     * The cache which compiled this pattern, or null if not compiled through a cache (see {@link CompileCache}).
+     */
+    CompileCache cache;
+
+    /**
+     * For a handle given out by a cache, the cached pattern owning the rplx; null otherwise.
+     */
+    private Pattern owner;
 
-    Pattern(Pointer engine, String expression, int pat) {
+    /**
+     * Whether this pattern is still held by its cache.
+     */
+    boolean cached;
+
+    /**
+     * The number of handles to a pattern compiled through a cache which are not closed yet.
+     */
+    int references;
+
+
+    Pattern(RosieEngine rosie, Pointer engine, String expression, int pat) {
         Objects.requireNonNull(engine);
         if (pat <= 0) {
             throw new RuntimeException("Invalid pattern");
         }
+        this.rosie = rosie;
         this.engine = engine;
         this.expression = expression;
         this.pat = pat;
     }
 
 
+    /**
+     * Creates a reusable matcher for this pattern.
+     * <p>
+     * A matcher keeps its native input and result buffers across calls, which makes it the cheapest way to match
+     * many inputs one after the other.
+     */
+    public Matcher matcher() {
+        return new Matcher(this);
+    }
+
+
     /**
      * Matches the pattern against an input string and returns {@code true} if the match succeeds.
      *
@@ -87,36 +184,482 @@ public class Pattern implements Closeable {
      * @param decoder the output decoder
      */
     public <T> T match(String input, int start, Decoder<T> decoder) {
-        try (RosieString Cinput = RosieString.create(input)) {
-            RosieMatch Cmatch = new RosieMatch();
-            int ok = RosieLib.rosie_match(engine, pat, start + 1, decoder.getEncodingName(), Cinput, Cmatch);
-            if (ok != 0) {
-                throw new RuntimeException("match() failed (please report this as a bug)");
+        if (prefilter != null && !prefilter.mayMatch(input, start <= 0 ? 0 : Utf8.charIndex(input, start))) {
+            return skipped(Utf8.encodedLength(input, 0, input.length()), start, decoder);
+        }
+        ResultCache resultCache = this.resultCache;
+        if (resultCache != null) {
+            return matchCached(resultCache, input, start, decoder);
+        }
+        MatchMetrics metrics = rosie.getMetrics();
+        long begin = metrics == MatchMetrics.NONE ? 0 : System.nanoTime();
+        int length = encode(input);
+        return match(buffer, length, start, decoder, metrics, begin);
+    }
+
+    private <T> T matchCached(ResultCache resultCache, String input, int start, Decoder<T> decoder) {
+        String encoding = decoder.getEncodingName();
+        ResultCache.Result result = resultCache.get(input, start, encoding);
+        if (result == null) {
+            MatchMetrics metrics = rosie.getMetrics();
+            long begin = System.nanoTime();
+            NativeMatch Cmatch = nativeMatch();
+            Cmatch.setInput(buffer, encode(input));
+            boolean matched = matchNative(Cmatch, start, encoding);
+            if (Cmatch.hasData()) {
+                // keep the bytes: binary encodings do not survive a conversion to string
+                byte[] data = Cmatch.getDataPtr().getByteArray(0, Cmatch.getDataLen());
+                result = new ResultCache.Result(Match.noData(Cmatch.getLeftover(), Cmatch.getAbend(),
+                        Cmatch.getTtotal(), Cmatch.getTmatch()), data);
+            } else {
+                result = new ResultCache.Result(toMatch(Cmatch, matched), null);
             }
+            resultCache.put(input, start, encoding, result, System.nanoTime() - begin);
+            T decoded = result.decode(decoder);
+            record(metrics, Cmatch, matched, begin);
+            return decoded;
+        }
+        return result.decode(decoder);
+    }
 
-            int left = Cmatch.leftover;
-            int abend = Cmatch.abend;
-            int ttotal = Cmatch.ttotal;
-            int tmatch = Cmatch.tmatch;
+    /**
+     * Matches the pattern against UTF-8 encoded input and constructs a result using the specified output decoder.
+     * <p>
+     * The input is given by the bytes between the position and the limit of the buffer. When the buffer is direct,
+     * librosie reads them in place, without any copy.
+     *
+     * @param input   the input bytes
+     * @param decoder the output decoder
+     */
+    public <T> T match(ByteBuffer input, Decoder<T> decoder) {
+        return match(input, 0, decoder);
+    }
 
-            Match match;
-            if (Cmatch.dataPtr == null) {
-                if (Cmatch.dataLen.intValue() == MatchStatus.NO_MATCH) {
-                    match = Match.failed(left, abend, ttotal, tmatch);
-                } else if (Cmatch.dataLen.intValue() == MatchStatus.MATCH_WITHOUT_DATA) {
-                    match = Match.noData(left, abend, ttotal, tmatch);
-                } else if (Cmatch.dataLen.intValue() == MatchStatus.ERR_NO_ENCODER) {
-                    throw new IllegalArgumentException("invalid output encoder");
-                } else if (Cmatch.dataLen.intValue() == MatchStatus.ERR_NO_PATTERN) {
-                    throw new IllegalStateException("invalid compiled pattern");
-                } else {
-                    throw new IllegalStateException("Unexpected result from librosie");
+    /**
+     * Matches the pattern against UTF-8 encoded input and constructs a result using the specified output decoder.
+     * <p>
+     * The input is given by the bytes between the position and the limit of the buffer. When the buffer is direct,
+     * librosie reads them in place, without any copy.
+     *
+     * @param input   the input bytes
+     * @param start   0-based beginning index (inclusive), relative to the position of the buffer
+     * @param decoder the output decoder
+     */
+    public <T> T match(ByteBuffer input, int start, Decoder<T> decoder) {
+        if (input.isDirect()) {
+            Pointer address = Native.getDirectBufferPointer(input);
+            return match(address.share(input.position()), input.remaining(), start, decoder);
+        }
+        if (input.hasArray()) {
+            return match(input.array(), input.arrayOffset() + input.position(), input.remaining(), start, decoder);
+        }
+        byte[] bytes = new byte[input.remaining()];
+        input.duplicate().get(bytes);
+        return match(bytes, 0, bytes.length, start, decoder);
+    }
+
+    /**
+     * Matches the pattern against a range of UTF-8 encoded bytes and constructs a result using the specified output
+     * decoder.
+     * <p>
+     * Java arrays cannot be read in place by native code: the range is copied once into native memory, without
+     * any decoding.
+     *
+     * @param input   the input bytes
+     * @param offset  index of the first byte of the input
+     * @param length  number of bytes of the input
+     * @param decoder the output decoder
+     */
+    public <T> T match(byte[] input, int offset, int length, Decoder<T> decoder) {
+        return match(input, offset, length, 0, decoder);
+    }
+
+    /**
+     * Matches the pattern against a range of UTF-8 encoded bytes and constructs a result using the specified output
+     * decoder.
+     *
+     * @param input   the input bytes
+     * @param offset  index of the first byte of the input
+     * @param length  number of bytes of the input
+     * @param start   0-based beginning index (inclusive), relative to {@code offset}
+     * @param decoder the output decoder
+     * @see #match(byte[], int, int, Decoder)
+     */
+    public <T> T match(byte[] input, int offset, int length, int start, Decoder<T> decoder) {
+        if (offset < 0 || length < 0 || offset > input.length - length) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", array length " + input.length);
+        }
+        if (prefilter != null && !prefilter.mayMatch(input, offset + Math.max(start, 0), offset + length)) {
+            return skipped(length, start, decoder);
+        }
+        MatchMetrics metrics = rosie.getMetrics();
+        long begin = metrics == MatchMetrics.NONE ? 0 : System.nanoTime();
+        ensureCapacity(length);
+        buffer.write(0, input, offset, length);
+        return match(buffer, length, start, decoder, metrics, begin);
+    }
+
+    /**
+     * Matches the pattern against UTF-8 encoded input stored in native memory and constructs a result using the
+     * specified output decoder.
+     * <p>
+     * librosie reads the input in place: the memory must stay valid for the duration of the call.
+     *
+     * @param input   pointer to the first byte of the input
+     * @param length  number of bytes of the input
+     * @param start   0-based beginning index (inclusive)
+     * @param decoder the output decoder
+     */
+    public <T> T match(Pointer input, int length, int start, Decoder<T> decoder) {
+        Objects.requireNonNull(input);
+        if (length < 0) {
+            throw new IllegalArgumentException("negative input length");
+        }
+        MatchMetrics metrics = rosie.getMetrics();
+        return match(input, length, start, decoder, metrics, metrics == MatchMetrics.NONE ? 0 : System.nanoTime());
+    }
+
+    /**
+     * Matches and decodes the input, recording the time elapsed since {@code begin}, taken before the input was
+     * written to native memory.
+     */
+    private <T> T match(Pointer input, int length, int start, Decoder<T> decoder, MatchMetrics metrics, long begin) {
+        NativeMatch Cmatch = nativeMatch();
+        Cmatch.setInput(input, length);
+        boolean matched = matchNative(Cmatch, start, decoder.getEncodingName());
+        T result = decode(Cmatch, matched, decoder);
+        record(metrics, Cmatch, matched, begin);
+        return result;
+    }
+
+
+    /**
+     * Finds the first match of the pattern in an input string.
+     *
+     * @param input the input string
+     * @see #find(String, int)
+     */
+    public FindResult find(String input) {
+        return find(input, 0);
+    }
+
+    /**
+     * Finds the first match of the pattern in an input string, at or after the given index.
+     * <p>
+     * Unlike {@link #match}, which is anchored at the start index, this searches the whole input with a single
+     * native call, using a search variant of the pattern: the expression wrapped in the {@code find} macro, which
+     * skips characters up to the first match. The variant is compiled by the first search, or by
+     * {@link RosieEngine#compileFind}, and kept with this pattern.
+     *
+     * @param input the input string
+     * @param start 0-based index of the first character to search (inclusive)
+     * @return the character indexes of the match
+     */
+    public FindResult find(String input, int start) {
+        if (start < 0 || start > input.length()) {
+            throw new IndexOutOfBoundsException("start " + start + ", input length " + input.length());
+        }
+        if (prefilter != null && !prefilter.mayMatch(input, start)) {
+            return FindResult.NOT_FOUND;
+        }
+        int length = encode(input);
+        if (length == input.length()) {
+            return find(buffer, length, start);
+        }
+        FindResult result = find(buffer, length, Utf8.encodedLength(input, 0, start));
+        if (!result.isFound()) {
+            return result;
+        }
+        int startChar = Utf8.charIndex(input, result.getStart());
+        int endChar = Utf8.charIndex(input, startChar, result.getStart(), result.getEnd());
+        return new FindResult(true, startChar, endChar);
+    }
+
+    /**
+     * Finds the first match of the pattern in UTF-8 encoded input, given by the bytes between the position and the
+     * limit of the buffer.
+     * <p>
+     * When the buffer is direct, librosie reads the bytes in place, without any copy.
+     *
+     * @param input the input bytes
+     * @return the byte offsets of the match, relative to the position of the buffer
+     * @see #find(String, int)
+     */
+    public FindResult find(ByteBuffer input) {
+        int length = input.remaining();
+        if (input.isDirect()) {
+            return find(Native.getDirectBufferPointer(input).share(input.position()), length, 0);
+        }
+        if (prefilter != null && input.hasArray()) {
+            int offset = input.arrayOffset() + input.position();
+            if (!prefilter.mayMatch(input.array(), offset, offset + length)) {
+                return FindResult.NOT_FOUND;
+            }
+        }
+        ensureCapacity(length);
+        bufferView.clear();
+        bufferView.put(input.duplicate());
+        return find(buffer, length, 0);
+    }
+
+    /**
+     * Finds the first match in native memory, with a single call of the search variant.
+     *
+     * @return the byte offsets of the match
+     */
+    FindResult find(Pointer input, int length, int start) {
+        Spans spans = searchPattern().match(input, length, start, searchDecoder);
+        if (!spans.isMatched()) {
+            return FindResult.NOT_FOUND;
+        }
+        // the root spans the skipped input and the match, which is captured as the first child of the root
+        for (int i = 1; i < spans.size(); i++) {
+            if (spans.getDepth(i) == 1) {
+                return new FindResult(true, spans.getStart(i), spans.getEnd(0));
+            }
+        }
+        throw new IllegalStateException("Unexpected result from librosie");
+    }
+
+    /**
+     * Gets the search variant of this pattern, compiling it on first use.
+     */
+    Pattern searchPattern() {
+        if (owner != null) {
+            // the variant is shared by all the handles
+            if (pat == 0) {
+                throw new IllegalStateException("pattern is closed");
+            }
+            if (searchDecoder == null) {
+                searchDecoder = new SpanDecoder();
+            }
+            return owner.searchPattern();
+        }
+        if (search == null) {
+            if (pat == 0) {
+                throw new IllegalStateException("pattern is closed");
+            }
+            search = rosie.compileSearch(expression);
+            searchDecoder = new SpanDecoder();
+        }
+        return search;
+    }
+
+
+    /**
+     * Finds all the non-overlapping matches of the pattern in an input string, and constructs their results using
+     * the specified output decoder.
+     * <p>
+     * The input is copied to native memory once; the pattern is then matched at the beginning of the input, at the
+     * end of each match, and at each following character when it does not match (see {@link Matcher#find()}).
+     * Positions reported by the decoded results (as with the {@code json} encoder) refer to the whole input. To get
+     * offsets of characters instead, use a {@link Matcher}.
+     * <p>
+     * The returned stream is sequential and lazy, and must be consumed by the thread which owns the engine.
+     *
+     * @param input   the input characters
+     * @param decoder the output decoder
+     * @return the results, one for each match
+     */
+    public <T> Stream<T> findAll(CharSequence input, Decoder<T> decoder) {
+        return findAll(matcher().reset(input), decoder);
+    }
+
+    /**
+     * Finds all the non-overlapping matches of the pattern in UTF-8 encoded input, given by the bytes between the
+     * position and the limit of the buffer, and constructs their results using the specified output decoder.
+     *
+     * @param input   the input bytes
+     * @param decoder the output decoder
+     * @return the results, one for each match
+     * @see #findAll(CharSequence, Decoder)
+     */
+    public <T> Stream<T> findAll(ByteBuffer input, Decoder<T> decoder) {
+        return findAll(matcher().reset(input), decoder);
+    }
+
+    private static <T> Stream<T> findAll(Matcher matcher, Decoder<T> decoder) {
+        Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE, Spliterator.ORDERED) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                if (!matcher.find(decoder.getEncodingName())) {
+                    matcher.close();
+                    return false;
                 }
-            } else {
-                match = Match.withData(Cmatch.toString(), left, abend, ttotal, tmatch);
+                action.accept(matcher.decode(decoder));
+                return true;
+            }
+        };
+        return StreamSupport.stream(spliterator, false).onClose(matcher::close);
+    }
+
+
+    /**
+     * Matches the pattern against many input strings and constructs the results using the specified output decoder.
+     * <p>
+     * Inputs are packed, {@link #DEFAULT_BATCH_SIZE} at a time, into one contiguous native buffer. When the native
+     * batch shim ({@code librosiebatch}) is installed, each batch is matched with a single native call, which
+     * saves most of the per-call overhead for short inputs.
+     *
+     * @param inputs  the input strings
+     * @param decoder the output decoder
+     */
+    public <T> MatchBatch<T> matchBatch(List<? extends CharSequence> inputs, Decoder<T> decoder) {
+        return matchBatch(inputs, decoder, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Matches the pattern against many input strings and constructs the results using the specified output decoder.
+     *
+     * @param inputs    the input strings
+     * @param decoder   the output decoder
+     * @param batchSize the number of inputs matched with each native call
+     * @see #matchBatch(List, Decoder)
+     */
+    public <T> MatchBatch<T> matchBatch(List<? extends CharSequence> inputs, Decoder<T> decoder, int batchSize) {
+        return new BatchMatcher(this, batchSize).match(new BatchMatcher.Inputs() {
+            @Override
+            public int size() {
+                return inputs.size();
+            }
+
+            @Override
+            public int length(int index) {
+                CharSequence input = inputs.get(index);
+                return Utf8.encodedLength(input, 0, input.length());
+            }
+
+            @Override
+            public void write(int index, ByteBuffer target) {
+                Utf8.encode(inputs.get(index), target);
             }
+        }, decoder);
+    }
+
+    /**
+     * Matches the pattern against many UTF-8 encoded inputs and constructs the results using the specified output
+     * decoder.
+     * <p>
+     * Each input is given by the bytes between the position and the limit of a buffer; positions are not changed.
+     *
+     * @param inputs  the input bytes
+     * @param decoder the output decoder
+     * @see #matchBatch(List, Decoder)
+     */
+    public <T> MatchBatch<T> matchBatch(ByteBuffer[] inputs, Decoder<T> decoder) {
+        return matchBatch(inputs, decoder, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Matches the pattern against many UTF-8 encoded inputs and constructs the results using the specified output
+     * decoder.
+     *
+     * @param inputs    the input bytes
+     * @param decoder   the output decoder
+     * @param batchSize the number of inputs matched with each native call
+     * @see #matchBatch(ByteBuffer[], Decoder)
+     */
+    public <T> MatchBatch<T> matchBatch(ByteBuffer[] inputs, Decoder<T> decoder, int batchSize) {
+        return new BatchMatcher(this, batchSize).match(new BatchMatcher.Inputs() {
+            @Override
+            public int size() {
+                return inputs.length;
+            }
+
+            @Override
+            public int length(int index) {
+                return inputs[index].remaining();
+            }
+
+            @Override
+            public void write(int index, ByteBuffer target) {
+                target.put(inputs[index].duplicate());
+            }
+        }, decoder);
+    }
+
 
-            return decoder.decode(match);
+    /**
+     * Matches the pattern against each line of a UTF-8 encoded stream.
+     * <p>
+     * The stream is read by a background thread into one of two native buffers of {@link #DEFAULT_LINE_BUFFER_SIZE}
+     * bytes, while lines of the other buffer are matched in place, so that reading overlaps with matching and
+     * memory use does not depend on the length of the stream. Line terminators ({@code \n} or {@code \r\n}) are
+     * not part of the matched input.
+     * <p>
+     * The returned stream is sequential and must be consumed by a single thread. It must be closed to stop the
+     * background thread if not consumed entirely. The input stream is not closed.
+     *
+     * @param input   the input stream
+     * @param decoder the output decoder
+     * @return the results, one for each line
+     */
+    public <T> Stream<T> matchLines(InputStream input, Decoder<T> decoder) {
+        return matchLines(input, decoder, DEFAULT_LINE_BUFFER_SIZE);
+    }
+
+    /**
+     * Matches the pattern against each line of a UTF-8 encoded stream.
+     *
+     * @param input      the input stream
+     * @param decoder    the output decoder
+     * @param bufferSize the size of each of the two buffers (they grow if a line does not fit)
+     * @return the results, one for each line
+     * @see #matchLines(InputStream, Decoder)
+     */
+    public <T> Stream<T> matchLines(InputStream input, Decoder<T> decoder, int bufferSize) {
+        LineMatchIterator<T> iterator = new LineMatchIterator<>(this, input, decoder, bufferSize);
+        Spliterator<T> spliterator = Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED);
+        return StreamSupport.stream(spliterator, false).onClose(iterator::close);
+    }
+
+    /**
+     * Matches the pattern against each line of a character stream.
+     * <p>
+     * Characters are encoded to UTF-8 by the background thread which reads the stream.
+     *
+     * @param input   the character stream
+     * @param decoder the output decoder
+     * @return the results, one for each line
+     * @see #matchLines(InputStream, Decoder)
+     */
+    public <T> Stream<T> matchLines(Reader input, Decoder<T> decoder) {
+        return matchLines(new EncodingInputStream(input), decoder, DEFAULT_LINE_BUFFER_SIZE);
+    }
+
+
+    /**
+     * Matches the pattern against every line of a file, entirely inside librosie.
+     * <p>
+     * Each line of the input file is matched, and the result produced by the output encoder of the decoder is
+     * written to the output file; lines that do not match are written to the error file. This takes a single
+     * native call for the whole file, which is much faster than reading lines in Java and matching each of them.
+     *
+     * @param input     the input file, or {@code null} to read the standard input
+     * @param output    the output file, or {@code null} to write to the standard output
+     * @param errors    the file receiving the lines that did not match, or {@code null} to write them to the
+     *                  standard error
+     * @param decoder   the output decoder, whose encoder name determines the format of the output file
+     * @param wholeFile {@code true} to match the file contents as a single input instead of line by line
+     * @return the line counters
+     */
+    public MatchFileResult matchFile(Path input, Path output, Path errors, Decoder<?> decoder, boolean wholeFile) {
+        try (RosieString Cerr = RosieString.create()) {
+            IntByReference Ccin = new IntByReference();
+            IntByReference Ccout = new IntByReference();
+            IntByReference Ccerr = new IntByReference();
+            int ok = RosieLib.rosie_matchfile(engine, pat, decoder.getEncodingName(), wholeFile ? 1 : 0,
+                    fileName(input), fileName(output), fileName(errors), Ccin, Ccout, Ccerr, Cerr);
+            if (ok != 0) {
+                throw new RuntimeException("matchfile() failed (please report this as a bug)");
+            }
+            if (Ccin.getValue() == -1) {
+                if (Ccout.getValue() == MatchStatus.ERR_NO_ENCODER) {
+                    throw new IllegalArgumentException("invalid output encoder");
+                }
+                throw new RosieException("Errors reported", Cerr.toString());
+            }
+            return new MatchFileResult(Ccin.getValue(), Ccout.getValue(), Ccerr.getValue());
         }
     }
 
@@ -129,36 +672,247 @@ public class Pattern implements Closeable {
      * @param style the tracing style
      */
     public TraceResult trace(String input, int start, String style) {
-        try (RosieString Cinput = RosieString.create(input); RosieString Ctrace = RosieString.create()) {
-            IntByReference Cmatched = new IntByReference();
-            int ok = RosieLib.rosie_trace(engine, pat, start, style, Cinput, Cmatched, Ctrace);
+        NativeMatch Cmatch = nativeMatch();
+        Cmatch.setInput(buffer, encode(input));
+
+        int ok = Cmatch.trace(engine, pat, start, style);
+        try {
+            Pointer tracePtr = Cmatch.getTracePtr();
+            int traceLen = Cmatch.getTraceLen();
+            String trace = tracePtr == null ? null : new String(tracePtr.getByteArray(0, traceLen));
             if (ok != 0) {
-                throw new RuntimeException("trace() failed (please report this as a bug): " + Ctrace.toString());
+                throw new RuntimeException("trace() failed (please report this as a bug): " + trace);
             }
 
-            if (Ctrace.ptr == null) {
-                if (Ctrace.len.intValue() == MatchStatus.ERR_NO_ENCODER) {
+            if (tracePtr == null) {
+                if (traceLen == MatchStatus.ERR_NO_ENCODER) {
                     throw new IllegalArgumentException("invalid trace style");
-                } else if (Ctrace.len.intValue() == MatchStatus.MATCH_WITHOUT_DATA) {
+                } else if (traceLen == MatchStatus.MATCH_WITHOUT_DATA) {
                     throw new IllegalStateException("invalid compiled pattern");
-                } else if (Ctrace.len.intValue() != 0) {
+                } else if (traceLen != 0) {
                     throw new RuntimeException("unexpected error");
                 }
             }
-            boolean matched = Cmatched.getValue() != 0;
-            String trace = Ctrace.toString();
-            return new TraceResult(matched, trace);
+            return new TraceResult(Cmatch.isTraceMatched(), trace);
+        } finally {
+            Cmatch.freeTrace();
+        }
+    }
+
+
+    /**
+     * Gets the literal prefilter of this pattern, with its statistics.
+     *
+     * @return the prefilter, or {@code null} if disabled or if the expression does not require any literal
+     * @see RosieEngine#setPrefilterEnabled
+     */
+    public LiteralPrefilter getPrefilter() {
+        return prefilter;
+    }
+
+    /**
+     * Attaches a cache of the results of matching strings, or detaches it.
+     * <p>
+     * Matches of strings ({@link #match(String, int, Decoder)} and the methods delegating to it) are then first
+     * looked up in the cache, by input, start offset and encoder name; hits skip the native call. The cache may be
+     * shared by patterns compiled from the same expression in engines set up in the same way, and used by different
+     * threads. Other inputs are not cached.
+     *
+     * @param resultCache the cache, or {@code null} to disable caching (the default)
+     * @see ResultCache
+     */
+    public void setResultCache(ResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    /**
+     * Gets the cache of the results of matching strings, or {@code null} if disabled.
+     */
+    public ResultCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * Constructs the result of a match rejected by the prefilter, as librosie would report it.
+     */
+    private static <T> T skipped(int length, int start, Decoder<T> decoder) {
+        return decoder.decode(Match.failed(Math.max(length - Math.max(start, 0), 0), 0, 0, 0));
+    }
+
+    /**
+     * Matches the input already set into {@code Cmatch}, leaving the results there.
+     * <p>
+     * The metrics record the native call only: the caller writes the input and decodes the results itself.
+     *
+     * @param start    0-based beginning index (inclusive)
+     * @param encoding the output encoder name
+     * @return {@code true} if the pattern matched
+     */
+    boolean match(NativeMatch Cmatch, int start, String encoding) {
+        MatchMetrics metrics = rosie.getMetrics();
+        long begin = metrics == MatchMetrics.NONE ? 0 : System.nanoTime();
+        boolean matched = matchNative(Cmatch, start, encoding);
+        record(metrics, Cmatch, matched, begin);
+        return matched;
+    }
+
+    private boolean matchNative(NativeMatch Cmatch, int start, String encoding) {
+        int ok = Cmatch.match(engine, pat, start + 1, encoding);
+        if (ok != 0) {
+            throw new RuntimeException("match() failed (please report this as a bug)");
+        }
+        return Cmatch.hasData() || isMatched(Cmatch.getDataLen());
+    }
+
+    private void record(MatchMetrics metrics, NativeMatch Cmatch, boolean matched, long begin) {
+        if (metrics != MatchMetrics.NONE) {
+            metrics.record(this, Cmatch.getInputLength(), matched, Cmatch.getTtotal(), Cmatch.getTmatch(),
+                    System.nanoTime() - begin);
         }
     }
 
+    /**
+     * Interprets the status code returned by librosie when a match produced no data.
+     *
+     * @return {@code true} if the pattern matched
+     */
+    static boolean isMatched(int status) {
+        if (status == MatchStatus.NO_MATCH) {
+            return false;
+        } else if (status == MatchStatus.MATCH_WITHOUT_DATA) {
+            return true;
+        } else if (status == MatchStatus.ERR_NO_ENCODER) {
+            throw new IllegalArgumentException("invalid output encoder");
+        } else if (status == MatchStatus.ERR_NO_PATTERN) {
+            throw new IllegalStateException("invalid compiled pattern");
+        } else {
+            throw new IllegalStateException("Unexpected result from librosie");
+        }
+    }
+
+    /**
+     * Gets the native structures reused by the calls of this pattern, allocating them on first use.
+     */
+    private NativeMatch nativeMatch() {
+        if (Cmatch == null) {
+            Cmatch = new NativeMatch();
+        }
+        return Cmatch;
+    }
+
+    /**
+     * Grows the input buffer reused by the calls of this pattern, if needed to hold the given number of bytes.
+     */
+    private void ensureCapacity(int length) {
+        if (buffer == null || buffer.size() < length) {
+            int capacity = Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(length, 1) - 1) << 1);
+            buffer = new Memory(Math.max(capacity, length));
+            bufferView = buffer.getByteBuffer(0, buffer.size());
+        }
+    }
+
+    /**
+     * Encodes the given string into the input buffer.
+     *
+     * @return the number of bytes of the input
+     */
+    private int encode(String input) {
+        int length = Utf8.encodedLength(input, 0, input.length());
+        ensureCapacity(length);
+        bufferView.clear();
+        Utf8.encode(input, bufferView);
+        return length;
+    }
+
+    MatchMetrics getMetrics() {
+        return rosie.getMetrics();
+    }
+
+    int matchBatch(String encoding, Pointer input, Pointer offsets, int n, Pointer results, Pointer output,
+                   int outputCapacity, Pointer outputLength) {
+        return RosieBatchLib.rosie_match_batch(engine, pat, 1, NativeMatch.encoderName(encoding), input, offsets, n,
+                results, output, outputCapacity, outputLength);
+    }
+
+    private static String fileName(Path path) {
+        // librosie uses the standard streams for empty file names
+        return path == null ? "" : path.toString();
+    }
+
+    /**
+     * Constructs the result of the match whose results are stored into {@code Cmatch}, using the given decoder.
+     * <p>
+     * A {@link RawDecoder} reads the data in place, from native memory.
+     */
+    static <T> T decode(NativeMatch Cmatch, boolean matched, Decoder<T> decoder) {
+        if (decoder instanceof RawDecoder && Cmatch.hasData()) {
+            ByteBuffer data = Cmatch.getDataPtr().getByteBuffer(0, Cmatch.getDataLen());
+            Match match = Match.noData(Cmatch.getLeftover(), Cmatch.getAbend(), Cmatch.getTtotal(), Cmatch.getTmatch());
+            return ((RawDecoder<T>) decoder).decode(data, match);
+        }
+        return decoder.decode(toMatch(Cmatch, matched));
+    }
+
+    static Match toMatch(NativeMatch Cmatch, boolean matched) {
+        int left = Cmatch.getLeftover();
+        int abend = Cmatch.getAbend();
+        int ttotal = Cmatch.getTtotal();
+        int tmatch = Cmatch.getTmatch();
+        if (Cmatch.hasData()) {
+            String data = new String(Cmatch.getDataPtr().getByteArray(0, Cmatch.getDataLen()));
+            return Match.withData(data, left, abend, ttotal, tmatch);
+        }
+        return matched ? Match.noData(left, abend, ttotal, tmatch) : Match.failed(left, abend, ttotal, tmatch);
+    }
+
 
     @Override
     public String toString() {
         return expression;
     }
 
+    /**
+     * Frees the compiled pattern or, if obtained from the compile cache of the engine, releases it.
+     * <p>
+     * Closing a pattern more than once has no further effect.
+     */
     @Override
     public void close() {
+        if (owner == null) {
+            free();
+        } else if (pat != 0) {
+            // each handle releases its reference once
+            engine = Pointer.NULL;
+            pat = 0;
+            cache.release(owner);
+        }
+    }
+
+    /**
+     * Creates a handle to this cached pattern, for a new user: the handle has its own buffers and settings, and
+     * releases this pattern when closed.
+     */
+    Pattern share() {
+        Pattern handle = new Pattern(rosie, engine, expression, pat);
+        handle.owner = this;
+        handle.cache = cache;
+        handle.prefilter = prefilter;
+        return handle;
+    }
+
+    /**
+     * The pattern owning the compiled rplx: the cached pattern for a handle, this pattern otherwise.
+     */
+    Pattern compiled() {
+        return owner != null ? owner : this;
+    }
+
+    void free() {
+        if (search != null) {
+            search.free();
+            search = null;
+            searchDecoder = null;
+        }
         if (pat != 0) {
             RosieLib.rosie_free_rplx(engine, pat);
             engine = Pointer.NULL;
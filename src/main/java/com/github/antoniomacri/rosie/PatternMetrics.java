@@ -0,0 +1,121 @@
+package com.github.antoniomacri.rosie;
+
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * The measurements aggregated by {@link HistogramMatchMetrics} for one pattern expression.
+ * <p>
+ * Durations are in nanoseconds; those reported by librosie have the resolution of microseconds.
+ */
+public class PatternMetrics {
+    private final String expression;
+    private final LongAdder matches = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder bytesScanned = new LongAdder();
+    private final LatencyHistogram matchTime = new LatencyHistogram();
+    private final LatencyHistogram encodeTime = new LatencyHistogram();
+    private final LatencyHistogram overhead = new LatencyHistogram();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+
+    PatternMetrics(String expression) {
+        this.expression = expression;
+    }
+
+
+    /**
+     * The RPL expression of the pattern.
+     */
+    public String getExpression() {
+        return expression;
+    }
+
+    /**
+     * The number of matches done.
+     */
+    public long getMatchCount() {
+        return matches.sum();
+    }
+
+    /**
+     * The number of matches that succeeded.
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * The fraction of matches that succeeded.
+     */
+    public double getHitRatio() {
+        long count = getMatchCount();
+        return count == 0 ? 0 : (double) getHitCount() / count;
+    }
+
+    /**
+     * The total length in bytes of the inputs.
+     */
+    public long getBytesScanned() {
+        return bytesScanned.sum();
+    }
+
+    /**
+     * The time spent by librosie matching.
+     */
+    public LatencyHistogram getMatchTime() {
+        return matchTime;
+    }
+
+    /**
+     * The time spent by librosie encoding the results.
+     */
+    public LatencyHistogram getEncodeTime() {
+        return encodeTime;
+    }
+
+    /**
+     * The time spent outside of librosie: JNA marshalling and, where applicable, decoding.
+     */
+    public LatencyHistogram getOverhead() {
+        return overhead;
+    }
+
+    /**
+     * The end-to-end time of the matches, as seen from Java.
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+
+    void record(int inputBytes, boolean matched, int totalMicros, int matchMicros, long elapsedNanos) {
+        matches.increment();
+        if (matched) {
+            hits.increment();
+        }
+        bytesScanned.add(inputBytes);
+        matchTime.record(matchMicros * 1000L);
+        encodeTime.record((totalMicros - matchMicros) * 1000L);
+        overhead.record(elapsedNanos - totalMicros * 1000L);
+        latency.record(elapsedNanos);
+    }
+
+    void reset() {
+        matches.reset();
+        hits.reset();
+        bytesScanned.reset();
+        matchTime.reset();
+        encodeTime.reset();
+        overhead.reset();
+        latency.reset();
+    }
+
+
+    @Override
+    public String toString() {
+        return "PatternMetrics{expression=" + expression + ", matches=" + getMatchCount()
+                + ", hitRatio=" + getHitRatio() + ", bytes=" + getBytesScanned() + ", match=" + matchTime
+                + ", encode=" + encodeTime + ", overhead=" + overhead + ", latency=" + latency + "}";
+    }
+}
@@ -0,0 +1,177 @@
+package com.github.antoniomacri.rosie;
+
+import com.github.antoniomacri.rosie.encoding.SpanDecoder;
+import com.github.antoniomacri.rosie.encoding.Spans;
+import com.sun.jna.Memory;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * A set of patterns matched together against the same input, reporting which of them match, like {@code RE2::Set}.
+ * <p>
+ * Each member is bound to a generated name in the environment of the engine, and the set is compiled into the
+ * ordered choice of those names: {@link #matchFirst} finds the first member matching an input with a single native
+ * call, and the member is recognized from the name of the sub-match. {@link #matchAll} finds all the members
+ * matching an input with one call per matching member plus one, each trying the members following the last one
+ * found. The input is copied to native memory once, whatever the number of calls.
+ * <p>
+ * As for patterns, matches are anchored at the beginning of the input. The generated bindings stay in the
+ * environment of the engine until it is closed. A set must not be used by more than one thread at a time.
+ */
+public class PatternSet implements Closeable {
+    private static final AtomicInteger SETS = new AtomicInteger();
+    private static final int INITIAL_CAPACITY = 256;
+
+
+    private final RosieEngine rosie;
+    private final List<String> names;
+    private final String[] bindings;
+    private final SpanDecoder decoder = new SpanDecoder();
+
+    /**
+     * The ordered choice of the members from the one with the given index to the last, compiled on first use.
+     */
+    private final Pattern[] choices;
+
+    private Memory buffer;
+    private ByteBuffer bufferView;
+
+
+    PatternSet(RosieEngine rosie, Map<String, String> members) {
+        if (members.isEmpty()) {
+            throw new IllegalArgumentException("a pattern set needs at least one member");
+        }
+        this.rosie = rosie;
+        this.names = Collections.unmodifiableList(new ArrayList<>(members.keySet()));
+        this.bindings = new String[members.size()];
+        this.choices = new Pattern[members.size()];
+
+        int set = SETS.incrementAndGet();
+        StringBuilder rpl = new StringBuilder();
+        int i = 0;
+        for (String expression : members.values()) {
+            bindings[i] = "patternset" + set + "member" + i;
+            rpl.append(bindings[i]).append(" = ").append(expression).append('\n');
+            // the first ids of a new decoder are assigned in order: the id of each binding is its index
+            decoder.typeId(bindings[i]);
+            i++;
+        }
+        rosie.load(rpl.toString());
+        try {
+            choice(0);
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+
+    /**
+     * The number of members.
+     */
+    public int size() {
+        return names.size();
+    }
+
+    /**
+     * The names of the members, in order of priority; member indexes refer to this list.
+     */
+    public List<String> getNames() {
+        return names;
+    }
+
+
+    /**
+     * Finds the first member (in order of priority) matching the given input.
+     *
+     * @param input the input characters
+     * @return the index of the member, or -1 if none matches
+     */
+    public int matchFirst(CharSequence input) {
+        int length = encode(input);
+        return matchFrom(0, length);
+    }
+
+    /**
+     * Finds all the members matching the given input.
+     *
+     * @param input the input characters
+     * @return the indexes of the members, in increasing order
+     */
+    public int[] matchAll(CharSequence input) {
+        int length = encode(input);
+        int[] matched = new int[choices.length];
+        int count = 0;
+        int member = matchFrom(0, length);
+        while (member >= 0) {
+            matched[count++] = member;
+            member = member + 1 < choices.length ? matchFrom(member + 1, length) : -1;
+        }
+        return Arrays.copyOf(matched, count);
+    }
+
+
+    /**
+     * Frees the compiled patterns.
+     */
+    @Override
+    public void close() {
+        for (int i = 0; i < choices.length; i++) {
+            if (choices[i] != null) {
+                choices[i].close();
+                choices[i] = null;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PatternSet" + names;
+    }
+
+
+    private int matchFrom(int first, int length) {
+        Spans spans = choice(first).match(buffer, length, 0, decoder);
+        if (!spans.isMatched()) {
+            return -1;
+        }
+        // the member is the whole match when it is the only choice, otherwise its first sub-match
+        for (int i = 0; i < spans.size() && spans.getDepth(i) <= 1; i++) {
+            int id = spans.getTypeId(i);
+            if (id >= first && id < bindings.length) {
+                return id;
+            }
+        }
+        throw new IllegalStateException("Unexpected result from librosie");
+    }
+
+    private Pattern choice(int first) {
+        if (choices[first] == null) {
+            StringBuilder expression = new StringBuilder(bindings[first]);
+            for (int i = first + 1; i < bindings.length; i++) {
+                expression.append(" / ").append(bindings[i]);
+            }
+            choices[first] = rosie.compile(expression.toString());
+        }
+        return choices[first];
+    }
+
+    private int encode(CharSequence input) {
+        int length = Utf8.encodedLength(input, 0, input.length());
+        if (buffer == null || buffer.size() < length) {
+            buffer = new Memory(Math.max(INITIAL_CAPACITY, length));
+            bufferView = buffer.getByteBuffer(0, buffer.size());
+        }
+        bufferView.clear();
+        Utf8.encode(input, bufferView);
+        return length;
+    }
+}
@@ -0,0 +1,113 @@
+package com.github.antoniomacri.rosie;
+
+/**
+ * A snapshot of the usage statistics of a {@link RosieEnginePool}.
+ */
+public class PoolStatistics {
+    private final int size;
+    private final int busy;
+    private final int waiting;
+    private final long acquisitions;
+    private final long rejections;
+    private final long totalWaitNanos;
+    private final long maxWaitNanos;
+    private final long[] matchCounts;
+
+
+    PoolStatistics(int size, int busy, int waiting, long acquisitions, long rejections, long totalWaitNanos,
+                   long maxWaitNanos, long[] matchCounts) {
+        this.size = size;
+        this.busy = busy;
+        this.waiting = waiting;
+        this.acquisitions = acquisitions;
+        this.rejections = rejections;
+        this.totalWaitNanos = totalWaitNanos;
+        this.maxWaitNanos = maxWaitNanos;
+        this.matchCounts = matchCounts;
+    }
+
+
+    /**
+     * The number of engines in the pool.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * The number of engines currently in use.
+     */
+    public int getBusy() {
+        return busy;
+    }
+
+    /**
+     * The number of threads currently waiting for an engine.
+     */
+    public int getWaiting() {
+        return waiting;
+    }
+
+    /**
+     * The number of times an engine was successfully acquired.
+     */
+    public long getAcquisitions() {
+        return acquisitions;
+    }
+
+    /**
+     * The number of requests rejected because the waiting queue was full or the wait timed out.
+     */
+    public long getRejections() {
+        return rejections;
+    }
+
+    /**
+     * The total time (in nanoseconds) spent by threads waiting for an engine.
+     */
+    public long getTotalWaitNanos() {
+        return totalWaitNanos;
+    }
+
+    /**
+     * The longest time (in nanoseconds) a thread waited for an engine.
+     */
+    public long getMaxWaitNanos() {
+        return maxWaitNanos;
+    }
+
+    /**
+     * The average time (in nanoseconds) a thread waited for an engine.
+     */
+    public double getAverageWaitNanos() {
+        long requests = acquisitions + rejections;
+        return requests == 0 ? 0 : (double) totalWaitNanos / requests;
+    }
+
+    /**
+     * The number of matches done through the pool by the engine with the given index.
+     */
+    public long getMatchCount(int engineIndex) {
+        return matchCounts[engineIndex];
+    }
+
+    /**
+     * The total number of matches done through the pool.
+     */
+    public long getMatchCount() {
+        long total = 0;
+        for (long count : matchCounts) {
+            total += count;
+        }
+        return total;
+    }
+
+
+    @Override
+    public String toString() {
+        return "PoolStatistics{size=" + size + ", busy=" + busy + ", waiting=" + waiting
+                + ", acquisitions=" + acquisitions + ", rejections=" + rejections
+                + ", averageWaitNanos=" + (long) getAverageWaitNanos() + ", maxWaitNanos=" + maxWaitNanos
+                + ", matches=" + getMatchCount() + "}";
+    }
+}
@@ -0,0 +1,90 @@
+package com.github.antoniomacri.rosie;
+
+import com.github.antoniomacri.rosie.encoding.Decoder;
+
+import java.io.Closeable;
+
+
+/**
+ * An engine acquired from a {@link RosieEnginePool}.
+ * <p>
+ * It must be used only by the thread which acquired it, and closed to give the engine back to the pool.
+ */
+public class PooledEngine implements Closeable {
+    private final RosieEnginePool pool;
+    private RosieEnginePool.Slot slot;
+
+
+    PooledEngine(RosieEnginePool pool, RosieEnginePool.Slot slot) {
+        this.pool = pool;
+        this.slot = slot;
+    }
+
+
+    /**
+     * Gets the underlying engine.
+     * <p>
+     * Patterns compiled directly on the engine are owned by the caller. The setup of the engine must not be changed,
+     * otherwise engines of the same pool would behave differently.
+     */
+    public RosieEngine getEngine() {
+        return ensureAcquired().engine;
+    }
+
+    /**
+     * Gets the given expression compiled on this engine.
+     * <p>
+     * The pattern is owned by the pool: it is compiled the first time it is requested on this engine, and must not
+     * be closed nor used after this engine is given back.
+     */
+    public Pattern getPattern(String expression) {
+        return ensureAcquired().pattern(expression);
+    }
+
+    /**
+     * Matches the given expression against an input string.
+     *
+     * @see Pattern#match(String, int, Decoder)
+     */
+    public <T> T match(String expression, String input, int start, Decoder<T> decoder) {
+        RosieEnginePool.Slot s = ensureAcquired();
+        T result = s.pattern(expression).match(input, start, decoder);
+        s.matchCount.incrementAndGet();
+        return result;
+    }
+
+    /**
+     * Adds to the number of matches done by this engine, for matches not done through {@link #match}.
+     */
+    void countMatches(long matches) {
+        ensureAcquired().matchCount.addAndGet(matches);
+    }
+
+    /**
+     * The index of this engine inside the pool.
+     */
+    public int getIndex() {
+        return ensureAcquired().index;
+    }
+
+
+    /**
+     * Gives the engine back to the pool.
+     */
+    @Override
+    public void close() {
+        if (slot != null) {
+            RosieEnginePool.Slot s = slot;
+            slot = null;
+            pool.release(s);
+        }
+    }
+
+
+    private RosieEnginePool.Slot ensureAcquired() {
+        if (slot == null) {
+            throw new IllegalStateException("engine already given back to the pool");
+        }
+        return slot;
+    }
+}
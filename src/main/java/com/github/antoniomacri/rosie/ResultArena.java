@@ -0,0 +1,94 @@
+package com.github.antoniomacri.rosie;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * An arena of direct memory for match results which must outlive the next match (see {@link MatchView#copy(ResultArena)}).
+ * <p>
+ * Memory is allocated from slabs of fixed size by bumping a pointer, and is reclaimed all at once by
+ * {@link #reset()}, which makes the slabs available again without freeing them. Results larger than a slab get
+ * a dedicated buffer, dropped at reset.
+ * <p>
+ * An arena is not thread-safe.
+ */
+public class ResultArena {
+    /**
+     * Default size of each slab.
+     */
+    public static final int DEFAULT_SLAB_SIZE = 1024 * 1024;
+
+
+    private final int slabSize;
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    private int current = -1;
+    private long allocated;
+
+
+    public ResultArena() {
+        this(DEFAULT_SLAB_SIZE);
+    }
+
+    /**
+     * @param slabSize the size in bytes of each slab
+     */
+    public ResultArena(int slabSize) {
+        if (slabSize <= 0) {
+            throw new IllegalArgumentException("slab size must be positive");
+        }
+        this.slabSize = slabSize;
+    }
+
+
+    /**
+     * Allocates a buffer of the given size, valid until the next {@link #reset()}.
+     */
+    public ByteBuffer allocate(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("negative size");
+        }
+        allocated += size;
+        if (size > slabSize) {
+            return ByteBuffer.allocateDirect(size);
+        }
+        if (current < 0 || slabs.get(current).remaining() < size) {
+            current++;
+            if (current == slabs.size()) {
+                slabs.add(ByteBuffer.allocateDirect(slabSize));
+            }
+        }
+        ByteBuffer slab = slabs.get(current);
+        ByteBuffer buffer = slab.duplicate();
+        buffer.limit(slab.position() + size);
+        slab.position(slab.position() + size);
+        return buffer.slice();
+    }
+
+    /**
+     * Reclaims all the memory allocated since the last reset: buffers returned by {@link #allocate(int)} must not be
+     * used anymore.
+     */
+    public void reset() {
+        for (ByteBuffer slab : slabs) {
+            slab.clear();
+        }
+        current = -1;
+        allocated = 0;
+    }
+
+    /**
+     * The number of bytes allocated since the last reset.
+     */
+    public long getAllocatedBytes() {
+        return allocated;
+    }
+
+    /**
+     * The number of bytes held by the slabs of this arena.
+     */
+    public long getCapacity() {
+        return (long) slabs.size() * slabSize;
+    }
+}
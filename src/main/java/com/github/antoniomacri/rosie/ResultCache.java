@@ -0,0 +1,254 @@
+package com.github.antoniomacri.rosie;
+
+import com.github.antoniomacri.rosie.encoding.Decoder;
+import com.github.antoniomacri.rosie.encoding.RawDecoder;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * A bounded cache of match results, for inputs which repeat exactly (such as health checks or heartbeat lines in a
+ * log stream).
+ * <p>
+ * A cache is attached to patterns with {@link Pattern#setResultCache}; all the patterns sharing a cache must be
+ * compiled from the same expression, in engines set up in the same way, as are the patterns of a
+ * {@link RosieEnginePool} (see {@link RosieEnginePool#setResultCache}). Results are keyed by input string, start
+ * offset and encoder name, so decoders using the same encoder share entries: a hit skips the native call and the
+ * encoding of the result, and only runs the decoder. The data of a result is kept as the bytes produced by the
+ * encoder, which {@link RawDecoder}s read as they would read the native result. Cached results report the times of
+ * the match which produced them.
+ * <p>
+ * Entries are split into stripes by the hash of their key, each an LRU map guarded by its own lock, so that threads
+ * matching with different engines rarely contend. Each stripe holds an equal share of the maximum number of entries
+ * and of the maximum weight, which is the approximate number of bytes taken by the inputs and results; the least
+ * recently used entries of a stripe are evicted when it exceeds either. Results larger than the share of a stripe
+ * are not cached.
+ */
+public class ResultCache {
+    /**
+     * Default number of stripes.
+     */
+    public static final int DEFAULT_STRIPES = 16;
+
+    /**
+     * Approximate weight of an entry, besides the characters of its input and the bytes of its data.
+     */
+    private static final int ENTRY_WEIGHT = 128;
+
+
+    private final Stripe[] stripes;
+    private final int maxEntriesPerStripe;
+    private final long maxWeightPerStripe;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder missNanos = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+
+    /**
+     * Creates a cache with {@link #DEFAULT_STRIPES} stripes.
+     *
+     * @param maxEntries the maximum number of results
+     * @param maxWeight  the maximum weight of the results, in bytes
+     */
+    public ResultCache(int maxEntries, long maxWeight) {
+        this(maxEntries, maxWeight, DEFAULT_STRIPES);
+    }
+
+    /**
+     * Creates a cache.
+     *
+     * @param maxEntries the maximum number of results
+     * @param maxWeight  the maximum weight of the results, in bytes
+     * @param stripes    the number of stripes, rounded up to a power of two (but not above {@code maxEntries})
+     */
+    public ResultCache(int maxEntries, long maxWeight, int stripes) {
+        if (maxEntries <= 0 || maxWeight <= 0 || stripes <= 0) {
+            throw new IllegalArgumentException("invalid cache size");
+        }
+        // each stripe must be able to hold at least one entry
+        int count = 1;
+        while (count < stripes && count < maxEntries) {
+            count <<= 1;
+        }
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        this.maxEntriesPerStripe = Math.max(maxEntries / this.stripes.length, 1);
+        this.maxWeightPerStripe = Math.max(maxWeight / this.stripes.length, 1);
+    }
+
+
+    /**
+     * Takes a snapshot of the statistics of this cache.
+     */
+    public ResultCacheStatistics getStatistics() {
+        int size = 0;
+        long weight = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.entries.size();
+                weight += stripe.weight;
+            }
+        }
+        return new ResultCacheStatistics(size, weight, hits.sum(), misses.sum(), missNanos.sum(), evictions.sum());
+    }
+
+    /**
+     * Drops all the results.
+     */
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.entries.clear();
+                stripe.weight = 0;
+            }
+        }
+    }
+
+
+    /**
+     * Gets the cached result for the given input, counting a hit if found.
+     *
+     * @return the result, or null on a miss (to be followed by {@link #put})
+     */
+    Result get(String input, int start, String encoding) {
+        Key key = new Key(input, start, encoding);
+        Stripe stripe = stripe(key);
+        Result result;
+        synchronized (stripe) {
+            result = stripe.entries.get(key);
+        }
+        if (result != null) {
+            hits.increment();
+        }
+        return result;
+    }
+
+    /**
+     * Caches the result of a miss.
+     *
+     * @param nanos the time taken to compute the result
+     */
+    void put(String input, int start, String encoding, Result result, long nanos) {
+        misses.increment();
+        missNanos.add(nanos);
+        Key key = new Key(input, start, encoding);
+        long weight = weight(key, result);
+        if (weight > maxWeightPerStripe) {
+            return;
+        }
+        Stripe stripe = stripe(key);
+        synchronized (stripe) {
+            Result previous = stripe.entries.put(key, result);
+            if (previous != null) {
+                stripe.weight -= weight(key, previous);
+            }
+            stripe.weight += weight;
+            Map<Key, Result> entries = stripe.entries;
+            Iterator<Map.Entry<Key, Result>> iterator = entries.entrySet().iterator();
+            while ((entries.size() > maxEntriesPerStripe || stripe.weight > maxWeightPerStripe) && iterator.hasNext()) {
+                Map.Entry<Key, Result> eldest = iterator.next();
+                iterator.remove();
+                stripe.weight -= weight(eldest.getKey(), eldest.getValue());
+                evictions.increment();
+            }
+        }
+    }
+
+
+    private Stripe stripe(Key key) {
+        int h = key.hash;
+        return stripes[(h ^ (h >>> 16)) & (stripes.length - 1)];
+    }
+
+    private static long weight(Key key, Result result) {
+        return ENTRY_WEIGHT + 2L * key.input.length() + (result.data == null ? 0 : result.data.length);
+    }
+
+
+    @Override
+    public String toString() {
+        return "ResultCache" + getStatistics();
+    }
+
+
+    /**
+     * A cached result: the match without its data, and the data as produced by the encoder.
+     */
+    static class Result {
+        final Match match;
+        final byte[] data;
+
+        /**
+         * The match with its data converted to a string, built on first use.
+         */
+        private volatile Match withData;
+
+        Result(Match match, byte[] data) {
+            this.match = match;
+            this.data = data;
+        }
+
+        <T> T decode(Decoder<T> decoder) {
+            if (data == null) {
+                return decoder.decode(match);
+            }
+            if (decoder instanceof RawDecoder) {
+                return ((RawDecoder<T>) decoder).decode(ByteBuffer.wrap(data), match);
+            }
+            Match text = withData;
+            if (text == null) {
+                text = match.withData(new String(data));
+                withData = text;
+            }
+            return decoder.decode(text);
+        }
+    }
+
+    private static class Stripe {
+        /**
+         * The entries, in access order.
+         */
+        final Map<Key, Result> entries = new LinkedHashMap<>(16, 0.75f, true);
+        long weight;
+    }
+
+    private static class Key {
+        final String input;
+        final int start;
+        final String encoding;
+        final int hash;
+
+        Key(String input, int start, String encoding) {
+            this.input = input;
+            this.start = start;
+            this.encoding = encoding;
+            this.hash = (input.hashCode() * 31 + start) * 31 + encoding.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hash == other.hash && start == other.start && encoding.equals(other.encoding)
+                    && input.equals(other.input);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
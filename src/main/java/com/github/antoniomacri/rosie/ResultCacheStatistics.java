@@ -0,0 +1,89 @@
+package com.github.antoniomacri.rosie;
+
+/**
+ * A snapshot of the statistics of a {@link ResultCache}.
+ */
+public class ResultCacheStatistics {
+    private final int size;
+    private final long weight;
+    private final long hits;
+    private final long misses;
+    private final long missNanos;
+    private final long evictions;
+
+
+    ResultCacheStatistics(int size, long weight, long hits, long misses, long missNanos, long evictions) {
+        this.size = size;
+        this.weight = weight;
+        this.hits = hits;
+        this.misses = misses;
+        this.missNanos = missNanos;
+        this.evictions = evictions;
+    }
+
+
+    /**
+     * The number of cached results.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * The approximate number of bytes taken by the cached inputs and results.
+     */
+    public long getWeight() {
+        return weight;
+    }
+
+    /**
+     * The number of matches served by a cached result.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * The number of matches actually run.
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * The fraction of the matches served by a cached result, or 0 if there were none.
+     */
+    public double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * The average time taken by the matches actually run, including the native call and the copy of the result, in
+     * nanoseconds.
+     */
+    public long getAverageMissNanos() {
+        return misses == 0 ? 0 : missNanos / misses;
+    }
+
+    /**
+     * The time saved by the hits, estimated from the average time of the misses, in nanoseconds.
+     */
+    public long getSavedNanos() {
+        return hits * getAverageMissNanos();
+    }
+
+    /**
+     * The number of results evicted to make room for newer ones.
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+
+    @Override
+    public String toString() {
+        return "ResultCacheStatistics{size=" + size + ", weight=" + weight + ", hits=" + hits + ", misses=" + misses
+                + ", averageMissNanos=" + getAverageMissNanos() + ", evictions=" + evictions + "}";
+    }
+}
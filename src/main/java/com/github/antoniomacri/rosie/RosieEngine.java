@@ -1,6 +1,7 @@
 package com.github.antoniomacri.rosie;
 
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.antoniomacri.rosie.lib.RosieLib;
 import com.github.antoniomacri.rosie.lib.RosieString;
@@ -8,8 +9,19 @@ import com.sun.jna.Pointer;
 import com.sun.jna.ptr.IntByReference;
 
 import java.io.Closeable;
+import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 
 /**
@@ -23,6 +35,19 @@ public class RosieEngine implements Closeable {
 
     private Pointer engine;
 
+    private CompileCache compileCache;
+
+    private boolean prefilterEnabled;
+
+    private boolean autoImport;
+
+    /**
+     * The names under which packages were imported by {@link #importPackage}.
+     */
+    private final Set<String> imported = new HashSet<>();
+
+    private volatile MatchMetrics metrics = MatchMetrics.NONE;
+
 
     /**
      * Creates a new Rosie Matching Engine.
@@ -42,10 +67,178 @@ public class RosieEngine implements Closeable {
      * An RPL expression must be compiled before it can be used to match (or trace) with an input string.
      * The returned {@link Pattern} will be available until closed or until the engine is closed.
      *
+     * <p>
+     * If the compile cache is enabled (see {@link #setCompileCacheSize}), the returned pattern may share its compiled
+     * form with other callers compiling the same expression: closing it just releases it.
+     *
      * @param expression the RPL expression
      * @return the compiled RPL pattern that can be matched against input strings
      */
     public Pattern compile(String expression) throws RosieException {
+        if (compileCache != null) {
+            return compileCache.compile(expression, this::compileUncached);
+        }
+        return compileUncached(expression);
+    }
+
+    /**
+     * Compiles the given RPL expression, together with the search variant used by {@link Pattern#find}.
+     * <p>
+     * The search variant is kept by the returned pattern, and shares its lifetime: if the compile cache is enabled,
+     * compiling the same expression again returns a pattern sharing the variant, without running the RPL compiler.
+     *
+     * @param expression the RPL expression
+     * @return the compiled RPL pattern, ready to be searched for in input strings
+     */
+    public Pattern compileFind(String expression) throws RosieException {
+        Pattern pattern = compile(expression);
+        try {
+            pattern.searchPattern();
+        } catch (RuntimeException e) {
+            pattern.close();
+            throw e;
+        }
+        return pattern;
+    }
+
+    /**
+     * Compiles the given RPL expressions into a set, to find which of them match an input with as few native calls
+     * as possible.
+     * <p>
+     * Each expression is bound to a generated name in the environment of this engine, which therefore changes.
+     *
+     * @param members the RPL expressions by name, in order of priority (for instance, a {@link java.util.LinkedHashMap})
+     * @return the compiled set
+     * @see PatternSet
+     */
+    public PatternSet compileSet(Map<String, String> members) throws RosieException {
+        return new PatternSet(this, members);
+    }
+
+    /**
+     * Enables, resizes or disables the compile cache of this engine.
+     * <p>
+     * The cache holds the patterns compiled by {@link #compile}, keyed by expression, as well as the errors reported
+     * for invalid expressions, so that compiling the same expression again does not run the RPL compiler. It is
+     * invalidated whenever the environment of the engine changes ({@link #load}, {@link #loadFile},
+     * {@link #importPackage}, {@link #setLibpath}). Patterns no longer used are evicted in least-recently-used
+     * order when the cache is full. The cache is disabled by default.
+     *
+     * @param maxPatterns the maximum number of patterns to keep, or 0 to disable the cache
+     * @param maxErrors   the maximum number of compile errors to keep
+     */
+    public void setCompileCacheSize(int maxPatterns, int maxErrors) {
+        if (compileCache != null) {
+            compileCache.invalidate();
+        }
+        compileCache = maxPatterns == 0 ? null : new CompileCache(maxPatterns, maxErrors);
+    }
+
+    /**
+     * Enables or disables importing the packages an expression depends on when compiling it.
+     * <p>
+     * When enabled, {@link #compile} imports the packages returned by {@link #getExpressionDependencies} which were
+     * not imported yet, so that an engine loads only the packages its patterns use, instead of importing whole
+     * libraries upfront. The packages they import in turn are loaded by librosie, but not bound in the environment
+     * of the engine. Packages which cannot be found are skipped, leaving the compiler to report the error.
+     * Importing a package changes the environment, which invalidates the compile cache. Auto-import is disabled by
+     * default.
+     */
+    public void setAutoImport(boolean autoImport) {
+        this.autoImport = autoImport;
+    }
+
+    /**
+     * Returns {@code true} if packages are imported when compiling expressions which depend on them.
+     */
+    public boolean isAutoImport() {
+        return autoImport;
+    }
+
+    /**
+     * Enables or disables the literal prefilter of the patterns compiled from now on.
+     * <p>
+     * When enabled, each expression is also parsed, to find the literals that any input must contain to be matched:
+     * inputs lacking them are rejected in Java, without calling librosie (see {@link LiteralPrefilter}). This never
+     * changes the results, but rejected inputs are not measured by the {@link MatchMetrics}, and the failed matches
+     * report zero times. The prefilter is disabled by default.
+     */
+    public void setPrefilterEnabled(boolean prefilterEnabled) {
+        if (this.prefilterEnabled != prefilterEnabled) {
+            // cached patterns were compiled with the previous setting
+            environmentChanged();
+            this.prefilterEnabled = prefilterEnabled;
+        }
+    }
+
+    /**
+     * Returns {@code true} if the literal prefilter is enabled.
+     */
+    public boolean isPrefilterEnabled() {
+        return prefilterEnabled;
+    }
+
+    /**
+     * Sets the recorder of the measurements of the matches done by the patterns of this engine.
+     *
+     * @param metrics the recorder, or {@link MatchMetrics#NONE} (the default) to disable measurements
+     */
+    public void setMetrics(MatchMetrics metrics) {
+        this.metrics = Objects.requireNonNull(metrics);
+    }
+
+    /**
+     * Gets the recorder of the measurements of the matches done by the patterns of this engine.
+     */
+    public MatchMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Gets the statistics of the compile cache, or {@code null} if it is disabled.
+     */
+    public CompileCacheStatistics getCompileCacheStatistics() {
+        return compileCache == null ? null : compileCache.getStatistics();
+    }
+
+    /**
+     * Compiles the search variant of the given expression, which is not cached.
+     */
+    Pattern compileSearch(String expression) {
+        // parentheses keep the expression cooked, the newline ends a trailing comment
+        return compileUncached("find:(" + expression + "\n)", false);
+    }
+
+    private Pattern compileUncached(String expression) {
+        if (autoImport) {
+            importDependencies(expression);
+        }
+        return compileUncached(expression, prefilterEnabled);
+    }
+
+    private void importDependencies(String expression) {
+        List<String> dependencies;
+        try {
+            dependencies = getExpressionDependencies(expression, false);
+        } catch (RosieException e) {
+            // syntax errors are reported by the compiler
+            return;
+        }
+        String[] libpath = null;
+        for (String packageName : dependencies) {
+            if (!imported.contains(packageName)) {
+                if (libpath == null) {
+                    libpath = getLibpath().split(File.pathSeparator);
+                }
+                // names which are not packages in the libpath may be bound by loaded code: left to the compiler
+                if (findPackage(packageName, libpath) != null) {
+                    importPackage(packageName);
+                }
+            }
+        }
+    }
+
+    private Pattern compileUncached(String expression, boolean prefilter) {
         try (RosieString rsErrors = RosieString.create(); RosieString rsExpression = RosieString.create(expression)) {
             IntByReference pat = new IntByReference();
             int result = RosieLib.rosie_compile(engine, rsExpression, pat, rsErrors);
@@ -55,7 +248,141 @@ public class RosieEngine implements Closeable {
             if (pat.getValue() == 0 || hasErrors(rsErrors)) {
                 throw new RosieException("Errors reported", rsErrors.toString());
             }
-            return new Pattern(engine, expression, pat.getValue());
+            Pattern pattern = new Pattern(this, engine, expression, pat.getValue());
+            if (prefilter) {
+                pattern.prefilter = LiteralPrefilter.of(parseTree(expression));
+            }
+            return pattern;
+        }
+    }
+
+    /**
+     * Parses the given expression for the prefilter; since it just compiled, errors are not expected.
+     */
+    private JsonNode parseTree(String expression) {
+        try {
+            return OBJECT_MAPPER.readTree(parseExpression(expression).result);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot parse parse tree JSON.", e);
+        }
+    }
+
+    /**
+     * Gets the packages the given RPL expression depends on.
+     * <p>
+     * The direct dependencies are the package prefixes the expression refers to. The transitive ones also include
+     * the packages imported by the files of those packages, found in the libpath (see {@link #getLibpath}),
+     * recursively; packages whose files are not found are returned without their dependencies.
+     *
+     * @param expression the RPL expression
+     * @param transitive {@code true} to include the packages imported by the dependencies, recursively
+     * @return the names of the packages, each one before its own dependencies
+     */
+    public List<String> getExpressionDependencies(String expression, boolean transitive) throws RosieException {
+        List<String> direct = dependencies(expression, false);
+        return transitive ? transitiveDependencies(direct) : direct;
+    }
+
+    /**
+     * Gets the packages imported by the given RPL code.
+     *
+     * @param rplCode    the RPL code, for instance the contents of a package file
+     * @param transitive {@code true} to include the packages imported by the dependencies, recursively
+     * @return the names of the packages, each one before its own dependencies
+     * @see #getExpressionDependencies(String, boolean)
+     */
+    public List<String> getBlockDependencies(String rplCode, boolean transitive) throws RosieException {
+        List<String> direct = dependencies(rplCode, true);
+        return transitive ? transitiveDependencies(direct) : direct;
+    }
+
+    private List<String> dependencies(String rpl, boolean block) {
+        try (RosieString rsInput = RosieString.create(rpl); RosieString rsDeps = RosieString.create();
+             RosieString rsMessages = RosieString.create()) {
+            int result = block
+                    ? RosieLib.rosie_block_deps(engine, rsInput, rsDeps, rsMessages)
+                    : RosieLib.rosie_expression_deps(engine, rsInput, rsDeps, rsMessages);
+            if (result != 0) {
+                throw new RuntimeException((block ? "block_deps" : "expression_deps")
+                        + "() failed (please report this as a bug)");
+            }
+            if (rsDeps.ptr == Pointer.NULL) {
+                throw new RosieException("Errors reported", rsMessages.toString());
+            }
+            List<String> dependencies = new ArrayList<>();
+            // an empty list may be encoded as an empty object
+            for (JsonNode dependency : OBJECT_MAPPER.readTree(rsDeps.toString())) {
+                String name = dependency.isTextual() ? dependency.asText()
+                        : dependency.path("importpath").asText(dependency.path("prefix").asText());
+                if (!name.isEmpty() && !dependencies.contains(name)) {
+                    dependencies.add(name);
+                }
+            }
+            return dependencies;
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot parse dependencies JSON.", e);
+        }
+    }
+
+    private List<String> transitiveDependencies(List<String> direct) {
+        Set<String> all = new LinkedHashSet<>();
+        String[] libpath = getLibpath().split(File.pathSeparator);
+        for (String packageName : direct) {
+            addTransitive(packageName, libpath, all);
+        }
+        return new ArrayList<>(all);
+    }
+
+    private void addTransitive(String packageName, String[] libpath, Set<String> all) {
+        if (!all.add(packageName)) {
+            return;
+        }
+        Path file = findPackage(packageName, libpath);
+        if (file != null) {
+            String rplCode;
+            try {
+                rplCode = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                return;
+            }
+            for (String dependency : dependencies(rplCode, true)) {
+                addTransitive(dependency, libpath, all);
+            }
+        }
+    }
+
+    /**
+     * Finds the file of the given package in the libpath, as librosie does.
+     *
+     * @return the file, or null if not found
+     */
+    private static Path findPackage(String packageName, String[] libpath) {
+        for (String directory : libpath) {
+            Path file = Paths.get(directory, packageName + ".rpl");
+            if (Files.isRegularFile(file)) {
+                return file;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Parses the given RPL expression, without compiling it.
+     *
+     * @param expression the RPL expression
+     * @return the parse tree, in JSON format, and the warnings
+     */
+    public ParseResult parseExpression(String expression) throws RosieException {
+        try (RosieString rsExpression = RosieString.create(expression); RosieString rsParseTree = RosieString.create();
+             RosieString rsMessages = RosieString.create()) {
+            int result = RosieLib.rosie_parse_expression(engine, rsExpression, rsParseTree, rsMessages);
+            if (result != 0) {
+                throw new RuntimeException("parse_expression() failed (please report this as a bug)");
+            }
+            if (rsParseTree.ptr == Pointer.NULL) {
+                throw new RosieException("Errors reported", rsMessages.toString());
+            }
+            return new ParseResult(rsParseTree.toString(), hasErrors(rsMessages) ? rsMessages.toString() : null);
         }
     }
 
@@ -69,6 +396,7 @@ public class RosieEngine implements Closeable {
      * @return the package name, if the RPL code contained a package declaration, or {@code null}.
      */
     public String load(String rplCode) {
+        environmentChanged();
         try (RosieString rsCode = RosieString.create(rplCode); RosieString rsPackageName = RosieString.create(); RosieString rsErrors = RosieString.create()) {
             IntByReference ok = new IntByReference();
             int result = RosieLib.rosie_load(engine, ok, rsCode, rsPackageName, rsErrors);
@@ -91,6 +419,7 @@ public class RosieEngine implements Closeable {
      * @return the package name, if the RPL file contained a package declaration, or {@code null}.
      */
     public String loadFile(String rplFile) {
+        environmentChanged();
         try (RosieString rsFile = RosieString.create(rplFile); RosieString rsPackageName = RosieString.create(); RosieString rsErrors = RosieString.create()) {
             IntByReference ok = new IntByReference();
             int result = RosieLib.rosie_loadfile(engine, ok, rsFile, rsPackageName, rsErrors);
@@ -136,6 +465,7 @@ public class RosieEngine implements Closeable {
      * @return the actual name of the package loaded (not the alias)
      */
     public String importPackage(String packageName, String asName) {
+        environmentChanged();
         try (RosieString rsAsName = asName != null ? RosieString.create(asName) : null; RosieString rsPackageName = RosieString.create(packageName);
              RosieString rsActualPackageName = RosieString.create(); RosieString rsErrors = RosieString.create()) {
             IntByReference ok = new IntByReference();
@@ -146,6 +476,7 @@ public class RosieEngine implements Closeable {
             if (ok.getValue() == 0 || hasErrors(rsErrors)) {
                 throw new RosieException("Errors reported", rsErrors.toString());
             }
+            imported.add(asName != null ? asName : packageName.substring(packageName.lastIndexOf('/') + 1));
             return rsActualPackageName.toString();
         }
     }
@@ -192,6 +523,7 @@ public class RosieEngine implements Closeable {
      * @param libpath the new desired libpath
      */
     public void setLibpath(String libpath) {
+        environmentChanged();
         RosieString rsLibPath = RosieString.create(libpath);
         int result = RosieLib.rosie_libpath(engine, rsLibPath);
         if (result != 0) {
@@ -248,12 +580,20 @@ public class RosieEngine implements Closeable {
     @Override
     public void close() {
         if (engine != Pointer.NULL) {
+            environmentChanged();
+            compileCache = null;
             RosieLib.rosie_finalize(engine);
             engine = Pointer.NULL;
         }
     }
 
 
+    private void environmentChanged() {
+        if (compileCache != null) {
+            compileCache.invalidate();
+        }
+    }
+
     private static boolean hasErrors(RosieString errors) {
         return errors.len.intValue() > 0 || errors.ptr != Pointer.NULL;
     }
@@ -0,0 +1,493 @@
+package com.github.antoniomacri.rosie;
+
+import com.github.antoniomacri.rosie.encoding.Decoder;
+import com.github.antoniomacri.rosie.encoding.Decoders;
+
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+
+/**
+ * A fixed-size pool of Rosie pattern matching engines that can be shared among threads.
+ * <p>
+ * A {@link RosieEngine} must not be used by two threads at the same time. The pool owns a number of engines, all
+ * set up in the same way, and hands each of them out to one thread at a time. Setup operations ({@link #load},
+ * {@link #loadFile}, {@link #importPackage}, {@link #setLibpath}) are run on one idle engine, so that their errors are
+ * reported to the caller, and then recorded and replayed onto every other engine before it is next handed out;
+ * alternatively, engines can be created already set up by an {@link EngineTemplate}.
+ * <p>
+ * Threads asking for an engine while all of them are busy are queued. The number of queued threads and the time
+ * they wait are bounded: when the queue is full, or when the wait times out, a {@link RejectedExecutionException} is
+ * thrown.
+ */
+public class RosieEnginePool implements Closeable {
+    /**
+     * Default maximum time to wait for an engine, in milliseconds.
+     */
+    public static final long DEFAULT_MAX_WAIT_MILLIS = 30_000;
+
+
+    private final Slot[] slots;
+    private final BlockingQueue<Slot> idle;
+    private final int maxWaiting;
+    private final long maxWaitNanos;
+    private final Map<String, ResultCache> resultCaches = new ConcurrentHashMap<>();
+    private final List<Function<RosieEngine, String>> steps = new CopyOnWriteArrayList<>();
+    private final ReentrantLock setupLock = new ReentrantLock();
+
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicLong acquisitions = new AtomicLong();
+    private final AtomicLong rejections = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitObservedNanos = new AtomicLong();
+
+    private volatile boolean closed;
+
+
+    /**
+     * Creates a pool with the given number of engines and an unbounded waiting queue.
+     *
+     * @param size the number of engines
+     */
+    public RosieEnginePool(int size) {
+        this(size, Integer.MAX_VALUE, DEFAULT_MAX_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a pool with the given number of engines.
+     *
+     * @param size       the number of engines
+     * @param maxWaiting the maximum number of threads that can wait for an engine when all of them are busy
+     * @param maxWait    the maximum time a thread waits for an engine
+     * @param unit       the time unit of {@code maxWait}
+     */
+    public RosieEnginePool(int size, int maxWaiting, long maxWait, TimeUnit unit) {
+        this(null, size, maxWaiting, maxWait, unit);
+    }
+
+    /**
+     * Creates a pool with the given number of engines, each created by the given template, and an unbounded
+     * waiting queue.
+     *
+     * @param template the template creating the engines
+     * @param size     the number of engines
+     */
+    public RosieEnginePool(EngineTemplate template, int size) {
+        this(template, size, Integer.MAX_VALUE, DEFAULT_MAX_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a pool with the given number of engines, each created by the given template.
+     *
+     * @param template   the template creating the engines, or {@code null} to create them bare
+     * @param size       the number of engines
+     * @param maxWaiting the maximum number of threads that can wait for an engine when all of them are busy
+     * @param maxWait    the maximum time a thread waits for an engine
+     * @param unit       the time unit of {@code maxWait}
+     */
+    public RosieEnginePool(EngineTemplate template, int size, int maxWaiting, long maxWait, TimeUnit unit) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("pool size must be positive");
+        }
+        if (maxWaiting < 0) {
+            throw new IllegalArgumentException("maximum number of waiting threads must not be negative");
+        }
+        this.maxWaiting = maxWaiting;
+        this.maxWaitNanos = unit.toNanos(maxWait);
+        this.slots = new Slot[size];
+        this.idle = new ArrayBlockingQueue<>(size);
+        try {
+            for (int i = 0; i < size; i++) {
+                slots[i] = new Slot(i, template != null ? template.newEngine() : new RosieEngine(), resultCaches);
+                idle.add(slots[i]);
+            }
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+
+    /**
+     * Loads RPL code into every engine of the pool.
+     * <p>
+     * As for the other setup operations, this waits for an idle engine up to the maximum time configured for the
+     * pool, and throws a {@link RejectedExecutionException} if none became available in time.
+     *
+     * @see RosieEngine#load(String)
+     */
+    public String load(String rplCode) {
+        return setup(engine -> engine.load(rplCode));
+    }
+
+    /**
+     * Loads RPL code from a file into every engine of the pool.
+     *
+     * @see RosieEngine#loadFile(String)
+     */
+    public String loadFile(String rplFile) {
+        return setup(engine -> engine.loadFile(rplFile));
+    }
+
+    /**
+     * Imports the given package into every engine of the pool.
+     *
+     * @see RosieEngine#importPackage(String)
+     */
+    public String importPackage(String packageName) {
+        return importPackage(packageName, null);
+    }
+
+    /**
+     * Imports the given package into every engine of the pool, binding it to an alias.
+     *
+     * @see RosieEngine#importPackage(String, String)
+     */
+    public String importPackage(String packageName, String asName) {
+        return setup(engine -> engine.importPackage(packageName, asName));
+    }
+
+    /**
+     * Sets the recorder of the measurements of the matches done by every engine of the pool.
+     *
+     * @see RosieEngine#setMetrics(MatchMetrics)
+     */
+    public void setMetrics(MatchMetrics metrics) {
+        for (Slot slot : slots) {
+            slot.engine.setMetrics(metrics);
+        }
+    }
+
+    /**
+     * Attaches a cache to the patterns compiled from the given expression by every engine of the pool, so that they
+     * share the results of matching strings, or detaches it.
+     *
+     * @param expression  the RPL expression, as passed to {@link #match}
+     * @param resultCache the cache, or {@code null} to disable caching
+     * @see Pattern#setResultCache(ResultCache)
+     */
+    public void setResultCache(String expression, ResultCache resultCache) {
+        if (resultCache != null) {
+            resultCaches.put(expression, resultCache);
+        } else {
+            resultCaches.remove(expression);
+        }
+    }
+
+    /**
+     * Sets the libpath of every engine of the pool.
+     *
+     * @see RosieEngine#setLibpath(String)
+     */
+    public void setLibpath(String libpath) {
+        setup(engine -> {
+            engine.setLibpath(libpath);
+            return null;
+        });
+    }
+
+
+    /**
+     * Acquires an engine, waiting up to the maximum time configured for the pool.
+     * <p>
+     * The returned engine must be closed to give it back to the pool.
+     *
+     * @throws RejectedExecutionException if too many threads are already waiting or no engine became available in time
+     * @throws InterruptedException       if the current thread is interrupted while waiting
+     */
+    public PooledEngine acquire() throws InterruptedException {
+        return acquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Acquires an engine, waiting up to the given time.
+     * <p>
+     * The returned engine must be closed to give it back to the pool.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit    the time unit of {@code timeout}
+     * @throws RejectedExecutionException if too many threads are already waiting or no engine became available in time
+     * @throws InterruptedException       if the current thread is interrupted while waiting
+     */
+    public PooledEngine acquire(long timeout, TimeUnit unit) throws InterruptedException {
+        ensureOpen();
+        Slot slot = idle.poll();
+        if (slot == null) {
+            if (waiting.incrementAndGet() > maxWaiting) {
+                waiting.decrementAndGet();
+                rejections.incrementAndGet();
+                throw new RejectedExecutionException("too many threads waiting for an engine");
+            }
+            long begin = System.nanoTime();
+            try {
+                slot = idle.poll(timeout, unit);
+            } finally {
+                waiting.decrementAndGet();
+                recordWait(System.nanoTime() - begin);
+            }
+            if (slot == null) {
+                rejections.incrementAndGet();
+                throw new RejectedExecutionException("timed out waiting for an engine");
+            }
+        } else {
+            recordWait(0);
+        }
+        if (closed) {
+            slot.close();
+            throw new IllegalStateException("pool is closed");
+        }
+        try {
+            slot.catchUp(steps);
+        } catch (RuntimeException e) {
+            release(slot);
+            throw e;
+        }
+        acquisitions.incrementAndGet();
+        return new PooledEngine(this, slot);
+    }
+
+    /**
+     * Runs the given function with an engine of the pool.
+     * <p>
+     * The engine must not be used after the function returns.
+     *
+     * @throws RejectedExecutionException if no engine could be acquired
+     */
+    public <T> T execute(Function<RosieEngine, T> function) {
+        try (PooledEngine pooled = acquireUninterruptibly()) {
+            return function.apply(pooled.getEngine());
+        }
+    }
+
+    /**
+     * Matches the given expression against an input string, using any engine of the pool.
+     * <p>
+     * The expression is compiled once per engine, the first time it is used on that engine.
+     *
+     * @throws RejectedExecutionException if no engine could be acquired
+     * @see Pattern#match(String, int, Decoder)
+     */
+    public <T> T match(String expression, String input, int start, Decoder<T> decoder) {
+        try (PooledEngine pooled = acquireUninterruptibly()) {
+            return pooled.match(expression, input, start, decoder);
+        }
+    }
+
+    /**
+     * Matches the given expression against an input string, using any engine of the pool.
+     *
+     * @see #match(String, String, int, Decoder)
+     */
+    public <T> T match(String expression, String input, Decoder<T> decoder) {
+        return match(expression, input, 0, decoder);
+    }
+
+    /**
+     * Matches the given expression against an input string and returns {@code true} if the match succeeds.
+     *
+     * @see #match(String, String, int, Decoder)
+     */
+    public boolean matches(String expression, String input) {
+        return match(expression, input, 0, Decoders.BOOL_VALUE);
+    }
+
+
+    /**
+     * The number of engines in the pool.
+     */
+    public int getSize() {
+        return slots.length;
+    }
+
+    /**
+     * Takes a snapshot of the usage statistics of the pool.
+     */
+    public PoolStatistics getStatistics() {
+        long[] matchCounts = new long[slots.length];
+        for (int i = 0; i < slots.length; i++) {
+            matchCounts[i] = slots[i].matchCount.get();
+        }
+        return new PoolStatistics(slots.length, slots.length - idle.size(), waiting.get(), acquisitions.get(),
+                rejections.get(), totalWaitNanos.get(), maxWaitObservedNanos.get(), matchCounts);
+    }
+
+
+    /**
+     * Closes all the engines of the pool.
+     * <p>
+     * Engines which are currently in use are closed as soon as they are given back.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        Slot slot;
+        while ((slot = idle.poll()) != null) {
+            slot.close();
+        }
+    }
+
+
+    Slot getSlot(int index) {
+        return slots[index];
+    }
+
+    /**
+     * Takes the engine with the given index, if idle, without waiting nor counting an acquisition.
+     *
+     * @return the engine, to be given back with {@link #release}, or null if it is in use
+     */
+    Slot pollIdle(int index) {
+        return !closed && idle.remove(slots[index]) ? slots[index] : null;
+    }
+
+    void release(Slot slot) {
+        if (closed) {
+            slot.close();
+            return;
+        }
+        idle.add(slot);
+        // the pool may have been closed, and drained, since checked: whoever takes the engine back closes it
+        if (closed && idle.remove(slot)) {
+            slot.close();
+        }
+    }
+
+
+    private PooledEngine acquireUninterruptibly() {
+        try {
+            return acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("interrupted while waiting for an engine", e);
+        }
+    }
+
+    private String setup(Function<RosieEngine, String> step) {
+        ensureOpen();
+        long deadline = System.nanoTime() + maxWaitNanos;
+        try {
+            if (!setupLock.tryLock(maxWaitNanos, TimeUnit.NANOSECONDS)) {
+                throw new RejectedExecutionException("timed out waiting for another setup of the pool");
+            }
+            try {
+                Slot slot = idle.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (slot == null) {
+                    throw new RejectedExecutionException("timed out waiting for an engine to set up");
+                }
+                String result;
+                try {
+                    slot.catchUp(steps);
+                    result = step.apply(slot.engine);
+                    slot.environmentChanged();
+                    steps.add(step);
+                    slot.applied = steps.size();
+                } finally {
+                    release(slot);
+                }
+                // bring the other idle engines up to date now, and the busy ones when acquired again
+                for (int i = 0; i < slots.length; i++) {
+                    Slot other = pollIdle(i);
+                    if (other != null) {
+                        try {
+                            other.catchUp(steps);
+                        } finally {
+                            release(other);
+                        }
+                    }
+                }
+                return result;
+            } finally {
+                setupLock.unlock();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while setting up the pool", e);
+        }
+    }
+
+    private void recordWait(long nanos) {
+        totalWaitNanos.addAndGet(nanos);
+        maxWaitObservedNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("pool is closed");
+        }
+    }
+
+
+    /**
+     * An engine of the pool, together with the patterns compiled on it.
+     * <p>
+     * Only accessed by the thread currently holding the engine.
+     */
+    static class Slot {
+        final int index;
+        final RosieEngine engine;
+        final Map<String, Pattern> patterns = new HashMap<>();
+        final AtomicLong matchCount = new AtomicLong();
+        final Map<String, ResultCache> resultCaches;
+        int applied;
+
+        Slot(int index, RosieEngine engine, Map<String, ResultCache> resultCaches) {
+            this.index = index;
+            this.engine = engine;
+            this.resultCaches = resultCaches;
+        }
+
+        Pattern pattern(String expression) {
+            Pattern pattern = patterns.get(expression);
+            if (pattern == null) {
+                pattern = engine.compile(expression);
+                patterns.put(expression, pattern);
+            }
+            ResultCache resultCache = resultCaches.get(expression);
+            if (pattern.getResultCache() != resultCache) {
+                pattern.setResultCache(resultCache);
+            }
+            return pattern;
+        }
+
+        /**
+         * Replays onto the engine the setup steps recorded by the pool since it was last set up.
+         */
+        void catchUp(List<Function<RosieEngine, String>> steps) {
+            if (applied == steps.size()) {
+                return;
+            }
+            try {
+                while (applied < steps.size()) {
+                    // counted even if it fails, so that the engine is not stuck on a step
+                    steps.get(applied++).apply(engine);
+                }
+            } finally {
+                environmentChanged();
+            }
+        }
+
+        void environmentChanged() {
+            // bindings may have changed: compile again on next use
+            patterns.values().forEach(Pattern::close);
+            patterns.clear();
+        }
+
+        void close() {
+            patterns.values().forEach(Pattern::close);
+            patterns.clear();
+            engine.close();
+        }
+    }
+}
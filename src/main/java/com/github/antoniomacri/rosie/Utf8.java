@@ -0,0 +1,96 @@
+package com.github.antoniomacri.rosie;
+
+import java.nio.ByteBuffer;
+
+
+/**
+ * UTF-8 helpers working on {@link CharSequence}s without allocating intermediate objects.
+ * <p>
+ * Unpaired surrogates are encoded as {@code '?'}, like {@link String#getBytes(java.nio.charset.Charset)} does.
+ */
+final class Utf8 {
+    private Utf8() {
+    }
+
+
+    /**
+     * Returns the number of bytes needed to encode the characters in the given range.
+     */
+    static int encodedLength(CharSequence input, int from, int to) {
+        int length = 0;
+        for (int i = from; i < to; i++) {
+            char c = input.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < to && Character.isLowSurrogate(input.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length += 1;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Encodes the whole input into the buffer, starting at its current position.
+     *
+     * @throws java.nio.BufferOverflowException if the buffer is too small
+     */
+    static void encode(CharSequence input, ByteBuffer buffer) {
+        int length = input.length();
+        for (int i = 0; i < length; i++) {
+            char c = input.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(input.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, input.charAt(++i));
+                buffer.put((byte) (0xF0 | (codePoint >> 18)));
+                buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                buffer.put((byte) '?');
+            } else {
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    /**
+     * Converts an offset in the UTF-8 encoding of the input into an index of its characters.
+     */
+    static int charIndex(CharSequence input, int byteOffset) {
+        return charIndex(input, 0, 0, byteOffset);
+    }
+
+    /**
+     * Converts an offset in the UTF-8 encoding of the input into an index of its characters, counting from a known
+     * pair of character index and byte offset before it.
+     */
+    static int charIndex(CharSequence input, int fromChar, int fromByte, int byteOffset) {
+        int bytes = fromByte;
+        int i = fromChar;
+        int length = input.length();
+        while (i < length && bytes < byteOffset) {
+            char c = input.charAt(i);
+            if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(input.charAt(i + 1))) {
+                bytes += 4;
+                i += 2;
+            } else {
+                bytes += c < 0x80 ? 1 : c < 0x800 ? 2 : Character.isSurrogate(c) ? 1 : 3;
+                i++;
+            }
+        }
+        return i;
+    }
+}
@@ -1,10 +1,8 @@
 package com.github.antoniomacri.rosie.encoding;
 
 import com.github.antoniomacri.rosie.Match;
-import lombok.Getter;
 
 
-@Getter
 public abstract class Decoder<T> {
     private final String encodingName;
 
@@ -12,5 +10,9 @@ public abstract class Decoder<T> {
         this.encodingName = encodingName;
     }
 
+    public String getEncodingName() {
+        return encodingName;
+    }
+
     public abstract T decode(Match match);
-}
\ No newline at end of file
+}
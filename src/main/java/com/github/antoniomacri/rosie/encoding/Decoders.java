@@ -11,6 +11,9 @@ import com.github.antoniomacri.rosie.Match;
  * root) and the sub-matches, which are the named patterns inside the pattern
  * being matched. An output encoder is a function from this internal data structure
  * (the parse tree) to a useful representation.
+ * <p>
+ * Stateful decoders, which must be instantiated for each use, are not listed here:
+ * see {@link SpanDecoder}.
  */
 public class Decoders {
     /**
@@ -41,6 +44,14 @@ public class Decoders {
      */
     public static final Decoder<Match> JSON = new TransparentDecoder("json");
 
+    /**
+     * Produces the parse tree of the match as a {@link MatchNode}, or {@code null} if the pattern did not match.
+     * <p>
+     * The output of the {@code json} encoder is parsed directly from native memory, without converting it into
+     * a string first.
+     */
+    public static final Decoder<MatchNode> MATCH_NODE = new MatchNodeDecoder();
+
     /**
      * Produces a boolean {@code true} if the pattern matched.
      */
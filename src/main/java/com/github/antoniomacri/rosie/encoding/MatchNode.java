@@ -0,0 +1,90 @@
+package com.github.antoniomacri.rosie.encoding;
+
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * A node of the parse tree produced by a successful match.
+ * <p>
+ * The root node represents the pattern being matched, and its sub-matches the named patterns inside it. Type names
+ * are interned, so they can be compared by identity with string constants.
+ *
+ * @see Decoders#MATCH_NODE
+ */
+public class MatchNode {
+    private final String type;
+    private final int start;
+    private final int end;
+    private final String data;
+    private final List<MatchNode> subs;
+
+
+    MatchNode(String type, int start, int end, String data, List<MatchNode> subs) {
+        this.type = type;
+        this.start = start;
+        this.end = end;
+        this.data = data;
+        this.subs = subs == null ? Collections.emptyList() : Collections.unmodifiableList(subs);
+    }
+
+
+    /**
+     * The name of the matched pattern.
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * The 1-based byte position of the beginning of the match in the input (inclusive).
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * The 1-based byte position of the end of the match in the input (exclusive).
+     */
+    public int getEnd() {
+        return end;
+    }
+
+    /**
+     * The matched portion of the input.
+     */
+    public String getData() {
+        return data;
+    }
+
+    /**
+     * The sub-matches, in input order.
+     */
+    public List<MatchNode> getSubs() {
+        return subs;
+    }
+
+    /**
+     * Finds the first node of the given type in this subtree, in depth-first order.
+     *
+     * @return the node, or {@code null} if none
+     */
+    public MatchNode find(String type) {
+        if (this.type.equals(type)) {
+            return this;
+        }
+        for (MatchNode sub : subs) {
+            MatchNode found = sub.find(type);
+            if (found != null) {
+                return found;
+            }
+        }
+        return null;
+    }
+
+
+    @Override
+    public String toString() {
+        return "MatchNode{type=" + type + ", s=" + start + ", e=" + end + ", data=" + data + ", subs=" + subs + "}";
+    }
+}
@@ -0,0 +1,368 @@
+package com.github.antoniomacri.rosie.encoding;
+
+import com.github.antoniomacri.rosie.Match;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Decodes the output of the {@code json} encoder into a tree of {@link MatchNode}s.
+ * <p>
+ * The JSON text is parsed in a single pass directly from the buffer holding it, which for results produced by
+ * librosie is a view of native memory. Type names are looked up in a small cache by their bytes, so that in the
+ * common case they are not decoded at all.
+ */
+class MatchNodeDecoder extends RawDecoder<MatchNode> {
+    private static final int TYPE_CACHE_SIZE = 256;
+
+
+    private static class TypeName {
+        final byte[] bytes;
+        final String name;
+
+        TypeName(byte[] bytes) {
+            this.bytes = bytes;
+            this.name = new String(bytes, StandardCharsets.UTF_8).intern();
+        }
+    }
+
+
+    /**
+     * Type names by hash of their bytes; replaced without synchronization, since entries are immutable.
+     */
+    private final TypeName[] typeNames = new TypeName[TYPE_CACHE_SIZE];
+
+
+    MatchNodeDecoder() {
+        super("json");
+    }
+
+
+    @Override
+    public MatchNode decode(ByteBuffer data, Match match) {
+        if (data == null) {
+            return null;
+        }
+        Parser parser = new Parser(data);
+        MatchNode node = parser.node();
+        parser.skipWhitespace();
+        if (parser.pos != data.limit()) {
+            throw parser.error("unexpected trailing data");
+        }
+        return node;
+    }
+
+
+    private String typeName(ByteBuffer buffer, int begin, int end) {
+        int hash = 0;
+        for (int i = begin; i < end; i++) {
+            hash = 31 * hash + buffer.get(i);
+        }
+        int slot = (hash ^ (hash >>> 16)) & (TYPE_CACHE_SIZE - 1);
+        TypeName cached = typeNames[slot];
+        if (cached != null && equals(cached.bytes, buffer, begin, end)) {
+            return cached.name;
+        }
+        byte[] bytes = new byte[end - begin];
+        for (int i = begin; i < end; i++) {
+            bytes[i - begin] = buffer.get(i);
+        }
+        TypeName typeName = new TypeName(bytes);
+        typeNames[slot] = typeName;
+        return typeName.name;
+    }
+
+    private static boolean equals(byte[] bytes, ByteBuffer buffer, int begin, int end) {
+        if (bytes.length != end - begin) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] != buffer.get(begin + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * A recursive descent parser reading the buffer with absolute gets.
+     */
+    private class Parser {
+        final ByteBuffer buffer;
+        int pos;
+
+        Parser(ByteBuffer buffer) {
+            this.buffer = buffer;
+            this.pos = buffer.position();
+        }
+
+        MatchNode node() {
+            String type = null;
+            int start = 0;
+            int end = 0;
+            String data = null;
+            List<MatchNode> subs = null;
+
+            expect('{');
+            if (!consume('}')) {
+                do {
+                    int keyBegin = stringBegin();
+                    int keyEnd = rawStringEnd();
+                    expect(':');
+                    if (isKey(keyBegin, keyEnd, "type")) {
+                        int begin = stringBegin();
+                        int stringEnd = rawStringEnd();
+                        type = typeName(buffer, begin, stringEnd);
+                    } else if (isKey(keyBegin, keyEnd, "s")) {
+                        start = integer();
+                    } else if (isKey(keyBegin, keyEnd, "e")) {
+                        end = integer();
+                    } else if (isKey(keyBegin, keyEnd, "data")) {
+                        data = string();
+                    } else if (isKey(keyBegin, keyEnd, "subs")) {
+                        subs = new ArrayList<>();
+                        expect('[');
+                        if (!consume(']')) {
+                            do {
+                                subs.add(node());
+                            } while (consume(','));
+                            expect(']');
+                        }
+                    } else {
+                        skipValue();
+                    }
+                } while (consume(','));
+                expect('}');
+            }
+            if (type == null) {
+                throw error("missing type");
+            }
+            return new MatchNode(type, start, end, data, subs);
+        }
+
+
+        private boolean isKey(int begin, int end, String key) {
+            if (end - begin != key.length()) {
+                return false;
+            }
+            for (int i = 0; i < key.length(); i++) {
+                if (buffer.get(begin + i) != key.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int integer() {
+            skipWhitespace();
+            boolean negative = pos < buffer.limit() && buffer.get(pos) == '-';
+            if (negative) {
+                pos++;
+            }
+            int begin = pos;
+            long value = 0;
+            while (pos < buffer.limit() && buffer.get(pos) >= '0' && buffer.get(pos) <= '9') {
+                value = value * 10 + (buffer.get(pos++) - '0');
+                if (value > Integer.MAX_VALUE) {
+                    throw error("number out of range");
+                }
+            }
+            if (pos == begin) {
+                throw error("number expected");
+            }
+            return (int) (negative ? -value : value);
+        }
+
+        /**
+         * Skips to the first character of a string.
+         */
+        private int stringBegin() {
+            expect('"');
+            return pos;
+        }
+
+        /**
+         * Skips to the end of a string whose first character is at the current position.
+         *
+         * @return the position of the closing quote
+         */
+        private int rawStringEnd() {
+            int limit = buffer.limit();
+            while (pos < limit) {
+                byte b = buffer.get(pos);
+                if (b == '"') {
+                    return pos++;
+                }
+                pos += b == '\\' ? 2 : 1;
+            }
+            throw error("unterminated string");
+        }
+
+        private String string() {
+            int begin = stringBegin();
+            int limit = buffer.limit();
+            int end = begin;
+            while (end < limit && buffer.get(end) != '"' && buffer.get(end) != '\\') {
+                end++;
+            }
+            byte[] bytes = new byte[end - begin];
+            for (int i = begin; i < end; i++) {
+                bytes[i - begin] = buffer.get(i);
+            }
+            if (end < limit && buffer.get(end) == '"') {
+                // no escapes: the common case
+                pos = end + 1;
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            pos = end;
+            StringBuilder builder = new StringBuilder(new String(bytes, StandardCharsets.UTF_8));
+            int chunk = pos;
+            while (true) {
+                if (pos >= limit) {
+                    throw error("unterminated string");
+                }
+                byte b = buffer.get(pos);
+                if (b != '"' && b != '\\') {
+                    pos++;
+                    continue;
+                }
+                appendUtf8(builder, chunk, pos);
+                if (b == '"') {
+                    pos++;
+                    return builder.toString();
+                }
+                if (pos + 1 >= limit) {
+                    throw error("unterminated string");
+                }
+                byte escape = buffer.get(pos + 1);
+                pos += 2;
+                switch (escape) {
+                    case '"':
+                    case '\\':
+                    case '/':
+                        builder.append((char) escape);
+                        break;
+                    case 'b':
+                        builder.append('\b');
+                        break;
+                    case 'f':
+                        builder.append('\f');
+                        break;
+                    case 'n':
+                        builder.append('\n');
+                        break;
+                    case 'r':
+                        builder.append('\r');
+                        break;
+                    case 't':
+                        builder.append('\t');
+                        break;
+                    case 'u':
+                        builder.append(hex());
+                        break;
+                    default:
+                        throw error("invalid escape");
+                }
+                chunk = pos;
+            }
+        }
+
+        private char hex() {
+            if (pos + 4 > buffer.limit()) {
+                throw error("invalid escape");
+            }
+            int value = 0;
+            for (int i = 0; i < 4; i++) {
+                int digit = Character.digit(buffer.get(pos++), 16);
+                if (digit < 0) {
+                    throw error("invalid escape");
+                }
+                value = value * 16 + digit;
+            }
+            return (char) value;
+        }
+
+        private void appendUtf8(StringBuilder builder, int begin, int end) {
+            if (end > begin) {
+                byte[] bytes = new byte[end - begin];
+                for (int i = begin; i < end; i++) {
+                    bytes[i - begin] = buffer.get(i);
+                }
+                builder.append(new String(bytes, StandardCharsets.UTF_8));
+            }
+        }
+
+        private void skipValue() {
+            skipWhitespace();
+            if (pos >= buffer.limit()) {
+                throw error("value expected");
+            }
+            byte b = buffer.get(pos);
+            if (b == '"') {
+                stringBegin();
+                rawStringEnd();
+            } else if (b == '{' || b == '[') {
+                byte close = (byte) (b == '{' ? '}' : ']');
+                pos++;
+                if (!consume(close)) {
+                    do {
+                        if (b == '{') {
+                            stringBegin();
+                            rawStringEnd();
+                            expect(':');
+                        }
+                        skipValue();
+                    } while (consume(','));
+                    expect(close);
+                }
+            } else {
+                // number, true, false or null
+                while (pos < buffer.limit() && ",}] \t\r\n".indexOf(buffer.get(pos)) < 0) {
+                    pos++;
+                }
+            }
+        }
+
+        private boolean consume(char c) {
+            skipWhitespace();
+            if (pos < buffer.limit() && buffer.get(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private boolean consume(byte c) {
+            return consume((char) c);
+        }
+
+        private void expect(char c) {
+            if (!consume(c)) {
+                throw error("'" + c + "' expected");
+            }
+        }
+
+        private void expect(byte c) {
+            expect((char) c);
+        }
+
+        void skipWhitespace() {
+            while (pos < buffer.limit()) {
+                byte b = buffer.get(pos);
+                if (b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+                    break;
+                }
+                pos++;
+            }
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("invalid match data at offset " + (pos - buffer.position()) + ": " + message);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.github.antoniomacri.rosie.encoding;
+
+import com.github.antoniomacri.rosie.Match;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * A decoder that reads the encoded match data as raw bytes.
+ * <p>
+ * When the data is produced by librosie, the buffer is a view of the native result, valid only for the duration of
+ * the call: the data is never copied into a {@link String}, which saves an allocation and a charset conversion for
+ * decoders that parse it anyway.
+ */
+public abstract class RawDecoder<T> extends Decoder<T> {
+    protected RawDecoder(String encodingName) {
+        super(encodingName);
+    }
+
+    /**
+     * Decodes a match result whose data has already been converted to a string.
+     */
+    @Override
+    public T decode(Match match) {
+        String data = match.getData();
+        return decode(data == null ? null : ByteBuffer.wrap(data.getBytes(StandardCharsets.UTF_8)), match);
+    }
+
+    /**
+     * Decodes a match result.
+     *
+     * @param data  the encoded data, between the position and the limit of the buffer, or {@code null} if there is
+     *              no data; the buffer must not be retained after returning
+     * @param match the match result, whose {@link Match#getData()} is not set when {@code data} is given
+     */
+    public abstract T decode(ByteBuffer data, Match match);
+}
@@ -0,0 +1,184 @@
+package com.github.antoniomacri.rosie.encoding;
+
+import com.github.antoniomacri.rosie.Match;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Decodes the output of the compact {@code byte} encoder into {@link Spans}.
+ * <p>
+ * The {@code byte} encoder writes, in native byte order, the negated 1-based start position of each sub-match as a
+ * 32-bit integer, followed by the length of its name as a 16-bit integer and by the name itself, then its sub-matches
+ * and finally its end position as a positive 32-bit integer. This decoder reads that encoding in place, from native
+ * memory, into primitive arrays reused across matches: once they are large enough, decoding a match does not
+ * allocate at all.
+ * <p>
+ * Names are mapped to small integer ids, assigned by each decoder in order of appearance, so that callers can
+ * compare types without comparing strings. Since both the spans and the id table belong to the decoder, a decoder
+ * is meant to be used with a single pattern, and must not be used by more than one thread at a time.
+ */
+public class SpanDecoder extends RawDecoder<Spans> {
+    private final TypeTable types = new TypeTable();
+    private final Spans spans = new Spans(types);
+    private int[] stack = new int[16];
+
+
+    public SpanDecoder() {
+        super("byte");
+    }
+
+
+    /**
+     * Gets the id for the given type name, assigning a new one if the name was never seen.
+     */
+    public int typeId(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        return types.id(ByteBuffer.wrap(bytes), 0, bytes.length);
+    }
+
+    /**
+     * Gets the type name for the given id.
+     */
+    public String typeName(int id) {
+        return types.name(id);
+    }
+
+    /**
+     * Decodes a match result.
+     *
+     * @return the spans, which are overwritten by the next call
+     */
+    @Override
+    public Spans decode(ByteBuffer data, Match match) {
+        spans.reset(match.isMatched());
+        if (data == null) {
+            return spans;
+        }
+
+        ByteBuffer buffer = data.order() == ByteOrder.nativeOrder() ? data : data.duplicate().order(ByteOrder.nativeOrder());
+        int pos = data.position();
+        int limit = data.limit();
+        int depth = 0;
+        while (pos < limit) {
+            int position = getInt(buffer, pos, limit);
+            pos += 4;
+            if (position < 0) {
+                if (pos + 2 > limit) {
+                    throw invalid(pos - data.position());
+                }
+                int length = buffer.getShort(pos) & 0xFFFF;
+                pos += 2;
+                if (pos + length > limit) {
+                    throw invalid(pos - data.position());
+                }
+                int id = types.id(buffer, pos, pos + length);
+                pos += length;
+                if (depth == stack.length) {
+                    stack = Arrays.copyOf(stack, depth * 2);
+                }
+                stack[depth] = spans.open(-position - 1, depth, id);
+                depth++;
+            } else {
+                if (depth == 0) {
+                    throw invalid(pos - 4 - data.position());
+                }
+                depth--;
+                spans.close(stack[depth], position - 1);
+            }
+        }
+        if (depth != 0) {
+            throw invalid(limit - data.position());
+        }
+        return spans;
+    }
+
+
+    private static int getInt(ByteBuffer buffer, int pos, int limit) {
+        if (pos + 4 > limit) {
+            throw invalid(pos - buffer.position());
+        }
+        return buffer.getInt(pos);
+    }
+
+    private static IllegalArgumentException invalid(int offset) {
+        return new IllegalArgumentException("invalid match data at offset " + offset);
+    }
+
+
+    /**
+     * Maps type names to ids.
+     */
+    static class TypeTable {
+        private final List<String> names = new ArrayList<>();
+        private final List<byte[]> bytes = new ArrayList<>();
+        private int[] slots = new int[64];
+
+        String name(int id) {
+            return names.get(id);
+        }
+
+        int id(ByteBuffer buffer, int begin, int end) {
+            int hash = 0;
+            for (int i = begin; i < end; i++) {
+                hash = 31 * hash + buffer.get(i);
+            }
+            int mask = slots.length - 1;
+            int slot = hash & mask;
+            // slots hold id + 1, 0 marks an empty slot
+            while (slots[slot] != 0) {
+                int id = slots[slot] - 1;
+                if (equals(bytes.get(id), buffer, begin, end)) {
+                    return id;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            byte[] name = new byte[end - begin];
+            for (int i = begin; i < end; i++) {
+                name[i - begin] = buffer.get(i);
+            }
+            int id = names.size();
+            names.add(new String(name, StandardCharsets.UTF_8).intern());
+            bytes.add(name);
+            slots[slot] = id + 1;
+            if (names.size() * 2 > slots.length) {
+                rehash();
+            }
+            return id;
+        }
+
+        private void rehash() {
+            slots = new int[slots.length * 2];
+            int mask = slots.length - 1;
+            for (int id = 0; id < bytes.size(); id++) {
+                int hash = 0;
+                for (byte b : bytes.get(id)) {
+                    hash = 31 * hash + b;
+                }
+                int slot = hash & mask;
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = id + 1;
+            }
+        }
+
+        private static boolean equals(byte[] bytes, ByteBuffer buffer, int begin, int end) {
+            if (bytes.length != end - begin) {
+                return false;
+            }
+            for (int i = 0; i < bytes.length; i++) {
+                if (bytes[i] != buffer.get(begin + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
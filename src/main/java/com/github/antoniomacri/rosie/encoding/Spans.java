@@ -0,0 +1,147 @@
+package com.github.antoniomacri.rosie.encoding;
+
+import java.util.Arrays;
+
+
+/**
+ * The parse tree of a match as a flat list of spans, in depth-first order, stored in primitive arrays.
+ * <p>
+ * Instances are owned by a {@link SpanDecoder} and overwritten by its next match: they must not be retained, nor
+ * shared among threads.
+ */
+public class Spans {
+    private static final int INITIAL_CAPACITY = 16;
+
+
+    private final SpanDecoder.TypeTable types;
+    private boolean matched;
+    private int size;
+    private int[] start = new int[INITIAL_CAPACITY];
+    private int[] end = new int[INITIAL_CAPACITY];
+    private int[] depth = new int[INITIAL_CAPACITY];
+    private int[] typeId = new int[INITIAL_CAPACITY];
+
+
+    Spans(SpanDecoder.TypeTable types) {
+        this.types = types;
+    }
+
+
+    /**
+     * Returns {@code true} if the pattern matched.
+     */
+    public boolean isMatched() {
+        return matched;
+    }
+
+    /**
+     * The number of spans (0 if the pattern did not match).
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The 0-based byte offset of the beginning of the span with the given index (inclusive).
+     */
+    public int getStart(int index) {
+        checkIndex(index);
+        return start[index];
+    }
+
+    /**
+     * The 0-based byte offset of the end of the span with the given index (exclusive).
+     */
+    public int getEnd(int index) {
+        checkIndex(index);
+        return end[index];
+    }
+
+    /**
+     * The depth of the span with the given index in the parse tree (0 for the root).
+     */
+    public int getDepth(int index) {
+        checkIndex(index);
+        return depth[index];
+    }
+
+    /**
+     * The id of the type of the span with the given index.
+     *
+     * @see SpanDecoder#typeId(String)
+     */
+    public int getTypeId(int index) {
+        checkIndex(index);
+        return typeId[index];
+    }
+
+    /**
+     * The name of the pattern which produced the span with the given index.
+     */
+    public String getType(int index) {
+        return types.name(getTypeId(index));
+    }
+
+    /**
+     * Finds the first span with the given type id, starting from the given index.
+     *
+     * @return the index of the span, or -1 if none
+     */
+    public int find(int typeId, int from) {
+        for (int i = Math.max(from, 0); i < size; i++) {
+            if (this.typeId[i] == typeId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+
+    void reset(boolean matched) {
+        this.matched = matched;
+        this.size = 0;
+    }
+
+    /**
+     * Appends a span whose end is not known yet.
+     *
+     * @return the index of the span
+     */
+    int open(int start, int depth, int typeId) {
+        if (size == this.start.length) {
+            int capacity = size * 2;
+            this.start = Arrays.copyOf(this.start, capacity);
+            this.end = Arrays.copyOf(this.end, capacity);
+            this.depth = Arrays.copyOf(this.depth, capacity);
+            this.typeId = Arrays.copyOf(this.typeId, capacity);
+        }
+        this.start[size] = start;
+        this.end[size] = start;
+        this.depth[size] = depth;
+        this.typeId[size] = typeId;
+        return size++;
+    }
+
+    void close(int index, int end) {
+        this.end[index] = end;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        }
+    }
+
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("Spans{");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(getType(i)).append('[').append(start[i]).append(',').append(end[i]).append(')');
+        }
+        return builder.append('}').toString();
+    }
+}
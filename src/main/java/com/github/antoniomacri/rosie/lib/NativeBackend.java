@@ -0,0 +1,99 @@
+package com.github.antoniomacri.rosie.lib;
+
+import com.sun.jna.Pointer;
+
+
+/**
+ * Performs the calls to librosie made for each match, on raw native memory (see {@link NativeMatch}).
+ * <p>
+ * Two backends are available:
+ * <ul>
+ * <li>{@code jna}, which calls the functions registered by {@link RosieLib} through JNA;</li>
+ * <li>{@code ffm}, which calls the same functions through method handles of the Foreign Function &amp; Memory API,
+ * with a lower cost per call. It is part of the multi-release jar, and only available on Java 22 or later.</li>
+ * </ul>
+ * The {@code ffm} backend is selected when available, unless the system property {@code rosie.backend} is set to
+ * {@code jna}. The library is loaded by JNA in both cases, and all the other functions are still called through
+ * {@link RosieLib}.
+ */
+public abstract class NativeBackend {
+    /**
+     * The system property selecting the backend.
+     */
+    public static final String PROPERTY = "rosie.backend";
+
+    public static final String JNA = "jna";
+    public static final String FFM = "ffm";
+
+    private static final String FFM_CLASS = "com.github.antoniomacri.rosie.lib.ForeignBackend";
+
+    private static final NativeBackend INSTANCE = select(System.getProperty(PROPERTY));
+
+
+    /**
+     * Gets the backend in use.
+     */
+    public static NativeBackend get() {
+        return INSTANCE;
+    }
+
+    static NativeBackend select(String name) {
+        if (name == null || name.equals(FFM)) {
+            try {
+                return (NativeBackend) Class.forName(FFM_CLASS).getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                if (name != null) {
+                    throw new IllegalStateException("the " + FFM + " backend requires Java 22 or later", e);
+                }
+            }
+        } else if (!name.equals(JNA)) {
+            throw new IllegalArgumentException("unknown backend: " + name);
+        }
+        return new Jna();
+    }
+
+
+    /**
+     * The name of this backend.
+     */
+    public abstract String getName();
+
+    /**
+     * Calls {@code rosie_match}.
+     *
+     * @see RosieLib#rosie_match(Pointer, int, int, Pointer, Pointer, Pointer)
+     */
+    public abstract int match(Pointer engine, int pat, int start, Pointer encoder, Pointer input, Pointer match);
+
+    /**
+     * Calls {@code rosie_trace}.
+     *
+     * @see RosieLib#rosie_trace(Pointer, int, int, Pointer, Pointer, Pointer, Pointer)
+     */
+    public abstract int trace(Pointer engine, int pat, int start, Pointer style, Pointer input, Pointer matched,
+                              Pointer trace);
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+
+
+    private static class Jna extends NativeBackend {
+        @Override
+        public String getName() {
+            return JNA;
+        }
+
+        @Override
+        public int match(Pointer engine, int pat, int start, Pointer encoder, Pointer input, Pointer match) {
+            return RosieLib.rosie_match(engine, pat, start, encoder, input, match);
+        }
+
+        @Override
+        public int trace(Pointer engine, int pat, int start, Pointer style, Pointer input, Pointer matched,
+                         Pointer trace) {
+            return RosieLib.rosie_trace(engine, pat, start, style, input, matched, trace);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.github.antoniomacri.rosie.lib;
+
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+
+/**
+ * Preallocated native {@code str} (the input) and {@code match} (the result) structures, reusable across calls to
+ * {@code rosie_match} and {@code rosie_trace}.
+ * <p>
+ * Fields are read and written at fixed offsets, without the reflection-based marshalling of {@link RosieString} and
+ * {@link RosieMatch}, so that a call does not allocate on the Java heap.
+ * <p>
+ * Calls go through the {@linkplain NativeBackend#get() selected backend}.
+ * <p>
+ * Instances are not thread-safe.
+ */
+public class NativeMatch {
+    private static final ConcurrentMap<String, Memory> ENCODER_NAMES = new ConcurrentHashMap<>();
+
+
+    private final NativeBackend backend = NativeBackend.get();
+    private final Memory input = new Memory(RosieString.SIZE);
+    private final Memory match = new Memory(RosieMatch.SIZE);
+
+    /**
+     * A {@code str} structure receiving the trace, followed by the matched flag.
+     */
+    private Memory trace;
+    private Pointer traceMatched;
+
+
+    public NativeMatch() {
+        input.clear();
+        match.clear();
+    }
+
+
+    /**
+     * Points the input structure at the given native memory.
+     */
+    public void setInput(Pointer ptr, int length) {
+        input.setInt(RosieString.LEN_OFFSET, length);
+        input.setPointer(RosieString.PTR_OFFSET, ptr);
+    }
+
+    /**
+     * The length of the current input.
+     */
+    public int getInputLength() {
+        return input.getInt(RosieString.LEN_OFFSET);
+    }
+
+    /**
+     * Calls {@code rosie_match} with the current input, storing the results into the match structure.
+     *
+     * @param engine   the engine
+     * @param pat      the rplx handle
+     * @param start    1-based start position
+     * @param encoding the output encoder name
+     * @return the value returned by librosie (0 on success)
+     */
+    public int match(Pointer engine, int pat, int start, String encoding) {
+        return backend.match(engine, pat, start, encoderName(encoding), input, match);
+    }
+
+    /**
+     * Calls {@code rosie_trace} with the current input, storing the trace into a structure allocated on first use.
+     * <p>
+     * The trace data is allocated by librosie, and must be freed with {@link #freeTrace()}.
+     *
+     * @param engine the engine
+     * @param pat    the rplx handle
+     * @param start  1-based start position
+     * @param style  the trace style
+     * @return the value returned by librosie (0 on success)
+     */
+    public int trace(Pointer engine, int pat, int start, String style) {
+        if (trace == null) {
+            trace = new Memory(RosieString.SIZE + 4);
+            traceMatched = trace.share(RosieString.SIZE);
+        }
+        trace.clear();
+        return backend.trace(engine, pat, start, encoderName(style), input, traceMatched, trace);
+    }
+
+    /**
+     * Whether the pattern matched during the last call to {@link #trace}.
+     */
+    public boolean isTraceMatched() {
+        return traceMatched.getInt(0) != 0;
+    }
+
+    /**
+     * The length of the trace or, when there is no trace, the status code.
+     */
+    public int getTraceLen() {
+        return trace.getInt(RosieString.LEN_OFFSET);
+    }
+
+    /**
+     * The trace, or null if there is none.
+     */
+    public Pointer getTracePtr() {
+        return trace.getPointer(RosieString.PTR_OFFSET);
+    }
+
+    /**
+     * Frees the trace data, as {@code rosie_free_string} does.
+     */
+    public void freeTrace() {
+        Pointer ptr = getTracePtr();
+        if (ptr != null) {
+            Native.free(Pointer.nativeValue(ptr));
+            trace.setPointer(RosieString.PTR_OFFSET, null);
+        }
+    }
+
+
+    /**
+     * The length of the result data or, when there is no data, the status code.
+     */
+    public int getDataLen() {
+        return match.getInt(RosieMatch.DATA_LEN_OFFSET);
+    }
+
+    /**
+     * Whether the result has data.
+     */
+    public boolean hasData() {
+        return getDataAddress() != 0;
+    }
+
+    /**
+     * The native address of the result data, or 0 if there is no data.
+     */
+    public long getDataAddress() {
+        return Native.POINTER_SIZE == 8
+                ? match.getLong(RosieMatch.DATA_PTR_OFFSET)
+                : match.getInt(RosieMatch.DATA_PTR_OFFSET) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * The result data, owned by the engine and valid until its next match.
+     */
+    public Pointer getDataPtr() {
+        return match.getPointer(RosieMatch.DATA_PTR_OFFSET);
+    }
+
+    public int getLeftover() {
+        return match.getInt(RosieMatch.LEFTOVER_OFFSET);
+    }
+
+    public int getAbend() {
+        return match.getInt(RosieMatch.ABEND_OFFSET);
+    }
+
+    public int getTtotal() {
+        return match.getInt(RosieMatch.TTOTAL_OFFSET);
+    }
+
+    public int getTmatch() {
+        return match.getInt(RosieMatch.TMATCH_OFFSET);
+    }
+
+
+    /**
+     * Gets the given encoder name (or trace style) as a null-terminated native string, allocated once per name.
+     */
+    public static Pointer encoderName(String encoding) {
+        Memory name = ENCODER_NAMES.get(encoding);
+        if (name == null) {
+            byte[] bytes = encoding.getBytes(StandardCharsets.US_ASCII);
+            name = new Memory(bytes.length + 1);
+            name.write(0, bytes, 0, bytes.length);
+            name.setByte(bytes.length, (byte) 0);
+            Memory previous = ENCODER_NAMES.putIfAbsent(encoding, name);
+            if (previous != null) {
+                name = previous;
+            }
+        }
+        return name;
+    }
+}
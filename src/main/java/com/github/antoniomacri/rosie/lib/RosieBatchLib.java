@@ -0,0 +1,62 @@
+package com.github.antoniomacri.rosie.lib;
+
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+
+
+/**
+ * Binding for the optional batch matching shim ({@code librosiebatch}, built from {@code src/main/c}).
+ * <p>
+ * When the shim cannot be found on the JNA library path, {@link #isAvailable()} returns {@code false} and the
+ * native methods must not be called.
+ */
+public class RosieBatchLib {
+    /**
+     * Number of int slots written into the results table for every input.
+     */
+    public static final int RESULT_FIELDS = 6;
+
+    /**
+     * Value of the status slot when the encoder produced data (otherwise it is the librosie status code).
+     */
+    public static final int STATUS_DATA = -1;
+
+    private static final boolean AVAILABLE;
+
+    static {
+        boolean available;
+        try {
+            Native.register(RosieBatchLib.class, "rosiebatch");
+            available = true;
+        } catch (UnsatisfiedLinkError e) {
+            available = false;
+        }
+        AVAILABLE = available;
+    }
+
+
+    /**
+     * Whether the shim was loaded.
+     */
+    public static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+
+    /**
+     * Matches pattern pat against the n inputs stored in input, where input i spans the bytes
+     * [offsets[i], offsets[i+1]). For each input i, the slots results[RESULT_FIELDS*i ...] receive
+     * the status, leftover, abend, ttotal, tmatch and data length. The encoded data of successive
+     * inputs is appended to out, which has room for outcap bytes; outlen receives the number of
+     * bytes written.
+     * <p>
+     * Returns the number of inputs processed, which is less than n when out is full (the caller
+     * continues with the remaining inputs), or -1-i when rosie_match fails on input i.
+     */
+    // int rosie_match_batch(void *e, int pat, int start, char *encoder,
+    //                       uint8_t *input, int32_t *offsets, int32_t n,
+    //                       int32_t *results, uint8_t *out, int32_t outcap, int32_t *outlen);
+    public static native int rosie_match_batch(Pointer e, int pat, int start, Pointer encoder,
+                                               Pointer input, Pointer offsets, int n,
+                                               Pointer results, Pointer out, int outcap, Pointer outlen);
+}
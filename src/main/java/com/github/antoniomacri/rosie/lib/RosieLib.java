@@ -170,6 +170,12 @@ public class RosieLib {
     // int rosie_match(Engine *e, int pat, int start, char *encoder, str *input, match *match);
     public static native int rosie_match(Pointer e, int pat, int start, String encoder, RosieString input, RosieMatch match);
 
+    /**
+     * Same as {@link #rosie_match(Pointer, int, int, String, RosieString, RosieMatch)}, but the encoder name and
+     * the structures are passed as raw native memory, avoiding any marshalling. See {@link NativeMatch}.
+     */
+    public static native int rosie_match(Pointer e, int pat, int start, Pointer encoder, Pointer input, Pointer match);
+
     // int rosie_matchfile(Engine *e, int pat, char *encoder, int wholefileflag,
     //                char *infilename, char *outfilename, char *errfilename,
     //                int *cin, int *cout, int *cerr,
@@ -201,6 +207,13 @@ public class RosieLib {
     public static native int rosie_trace(Pointer e, int pat, int start, String trace_style, RosieString input,
                                          IntByReference matched, RosieString trace);
 
+    /**
+     * Same as {@link #rosie_trace(Pointer, int, int, String, RosieString, IntByReference, RosieString)}, but the
+     * trace style, the input structure, the matched flag and the trace structure are given as native memory.
+     */
+    public static native int rosie_trace(Pointer e, int pat, int start, Pointer trace_style, Pointer input,
+                                         Pointer matched, Pointer trace);
+
     /**
      * The string src is read, compiled, and the resulting bindings are stored in
      * the engine's environment.  If ok is 0 on return, no errors occurred.  There
@@ -25,6 +25,21 @@ public class RosieMatch extends Structure {
     }
 
 
+    private static final RosieMatch LAYOUT = new RosieMatch();
+
+    /**
+     * Native size of the structure, for code accessing it without JNA marshalling.
+     */
+    public static final int SIZE = LAYOUT.size();
+
+    public static final int DATA_LEN_OFFSET = LAYOUT.fieldOffset("dataLen");
+    public static final int DATA_PTR_OFFSET = LAYOUT.fieldOffset("dataPtr");
+    public static final int LEFTOVER_OFFSET = LAYOUT.fieldOffset("leftover");
+    public static final int ABEND_OFFSET = LAYOUT.fieldOffset("abend");
+    public static final int TTOTAL_OFFSET = LAYOUT.fieldOffset("ttotal");
+    public static final int TMATCH_OFFSET = LAYOUT.fieldOffset("tmatch");
+
+
     public UnsignedInt dataLen;
 
     /**
@@ -27,6 +27,24 @@ public class RosieString extends Structure implements AutoCloseable {
     }
 
 
+    private static final RosieString LAYOUT = new RosieString();
+
+    /**
+     * Native size of the structure, for code accessing it without JNA marshalling.
+     */
+    public static final int SIZE = LAYOUT.size();
+
+    /**
+     * Native offset of the {@link #len} field.
+     */
+    public static final int LEN_OFFSET = LAYOUT.fieldOffset("len");
+
+    /**
+     * Native offset of the {@link #ptr} field.
+     */
+    public static final int PTR_OFFSET = LAYOUT.fieldOffset("ptr");
+
+
     public UnsignedInt len;
     public Pointer ptr;
 
@@ -0,0 +1,82 @@
+package com.github.antoniomacri.rosie.lib;
+
+import com.sun.jna.NativeLibrary;
+import com.sun.jna.Pointer;
+
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemorySegment;
+import java.lang.invoke.MethodHandle;
+
+import static java.lang.foreign.ValueLayout.ADDRESS;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+
+
+/**
+ * Calls librosie through the Foreign Function &amp; Memory API.
+ * <p>
+ * Functions are looked up in the library loaded by JNA, so that both backends share the same instance of librosie
+ * (and the same engines). Arguments are passed as zero-length segments wrapping the native addresses, which the JIT
+ * usually does not allocate at all.
+ */
+class ForeignBackend extends NativeBackend {
+    private static final MethodHandle MATCH;
+    private static final MethodHandle TRACE;
+
+    static {
+        NativeLibrary library = NativeLibrary.getInstance("rosie");
+        Linker linker = Linker.nativeLinker();
+        // int rosie_match(Engine *e, int pat, int start, char *encoder, str *input, match *match);
+        MATCH = linker.downcallHandle(function(library, "rosie_match"),
+                FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT, JAVA_INT, ADDRESS, ADDRESS, ADDRESS));
+        // int rosie_trace(Engine *e, int pat, int start, char *trace_style, str *input, int *matched, str *trace);
+        TRACE = linker.downcallHandle(function(library, "rosie_trace"),
+                FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT, JAVA_INT, ADDRESS, ADDRESS, ADDRESS, ADDRESS));
+    }
+
+
+    @Override
+    public String getName() {
+        return FFM;
+    }
+
+    @Override
+    public int match(Pointer engine, int pat, int start, Pointer encoder, Pointer input, Pointer match) {
+        try {
+            return (int) MATCH.invokeExact(segment(engine), pat, start, segment(encoder), segment(input),
+                    segment(match));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public int trace(Pointer engine, int pat, int start, Pointer style, Pointer input, Pointer matched,
+                     Pointer trace) {
+        try {
+            return (int) TRACE.invokeExact(segment(engine), pat, start, segment(style), segment(input),
+                    segment(matched), segment(trace));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+
+    private static MemorySegment function(NativeLibrary library, String name) {
+        return MemorySegment.ofAddress(Pointer.nativeValue(library.getFunction(name)));
+    }
+
+    private static MemorySegment segment(Pointer pointer) {
+        return pointer == null ? MemorySegment.NULL : MemorySegment.ofAddress(Pointer.nativeValue(pointer));
+    }
+
+    private static RuntimeException rethrow(Throwable e) {
+        if (e instanceof RuntimeException) {
+            return (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        return new IllegalStateException(e);
+    }
+}
@@ -0,0 +1,408 @@
+package com.github.antoniomacri.rosie;
+
+import com.github.antoniomacri.rosie.encoding.Decoder;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+
+
+/**
+ * A {@link Flow.Processor} matching a pattern against each input it receives, and publishing the results.
+ * <p>
+ * Matching runs on the engines of an {@link AsyncMatcher}. Inputs are requested from upstream only when there is
+ * room in the stage, which holds at most a fixed number of items (queued inputs, inputs being matched and results
+ * not yet requested by the subscriber): a slow subscriber therefore slows down the publisher, instead of filling the
+ * memory. Queued inputs are matched in batches (see {@link Pattern#matchBatch}), at most one batch per engine at a
+ * time: when inputs arrive faster than they are matched, batches grow up to the configured size, which saves most of
+ * the per-call overhead.
+ * <p>
+ * Results are published in the order of the inputs, unless created otherwise: then each batch is published as soon as
+ * it is matched. Signals to the subscriber are sent from the threads calling the processor, or from the executor
+ * given at creation (by default, the {@linkplain ForkJoinPool#commonPool() common pool}) when a batch is matched, but
+ * never from the engine threads. The decoder is called from the engine threads, possibly at the same time; inputs for
+ * which it returns {@code null} (as {@link com.github.antoniomacri.rosie.encoding.Decoders#MATCH_NODE} does for
+ * inputs which do not match) are dropped, and publish no result.
+ * <p>
+ * A processor has at most one subscriber, and is subscribed to at most one publisher.
+ *
+ * @param <I> the type of the inputs
+ * @param <T> the type of the results
+ */
+public class MatchProcessor<I, T> implements Flow.Processor<I, T> {
+    /**
+     * Default maximum number of inputs matched in a batch.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 64;
+
+
+    /**
+     * Matches a batch of inputs.
+     */
+    private interface BatchFunction<I, T> {
+        MatchBatch<T> match(Pattern pattern, List<I> inputs, Decoder<T> decoder);
+    }
+
+
+    private final AsyncMatcher matcher;
+    private final String expression;
+    private final Decoder<T> decoder;
+    private final BatchFunction<I, T> function;
+    private final int batchSize;
+    private final int capacity;
+    private final boolean ordered;
+    private final Executor executor;
+
+    private final Object lock = new Object();
+
+    // all guarded by lock
+    private Flow.Subscription upstream;
+    private boolean subscribed;
+    private Flow.Subscriber<? super T> downstream;
+    private long requested;
+    private long outstanding;
+    private final ArrayDeque<I> pending = new ArrayDeque<>();
+    private int inFlightBatches;
+    private int inFlightItems;
+    private long nextBatch;
+    private long nextPublished;
+    private final Map<Long, List<T>> completed = new HashMap<>();
+    private int completedItems;
+    private final ArrayDeque<T> ready = new ArrayDeque<>();
+    private boolean upstreamDone;
+    private Throwable error;
+    private boolean cancelled;
+    private boolean terminated;
+    private boolean draining;
+    private boolean missed;
+
+
+    private MatchProcessor(AsyncMatcher matcher, String expression, Decoder<T> decoder, BatchFunction<I, T> function,
+                           int batchSize, boolean ordered, Executor executor) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batch size must be positive");
+        }
+        this.matcher = matcher;
+        this.expression = expression;
+        this.decoder = decoder;
+        this.function = function;
+        this.batchSize = batchSize;
+        this.capacity = 2 * matcher.getSize() * batchSize;
+        this.ordered = ordered;
+        this.executor = executor;
+    }
+
+
+    /**
+     * Creates a processor matching strings, publishing the results in order.
+     *
+     * @param matcher    the matcher running the matches
+     * @param expression the RPL expression, compiled once per engine
+     * @param decoder    the output decoder
+     */
+    public static <T> MatchProcessor<CharSequence, T> forStrings(AsyncMatcher matcher, String expression,
+                                                                 Decoder<T> decoder) {
+        return forStrings(matcher, expression, decoder, DEFAULT_BATCH_SIZE, true, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a processor matching strings.
+     *
+     * @param matcher    the matcher running the matches
+     * @param expression the RPL expression, compiled once per engine
+     * @param decoder    the output decoder
+     * @param batchSize  the maximum number of inputs matched in a batch; the processor holds at most twice this
+     *                   number of items per engine
+     * @param ordered    whether results are published in the order of the inputs
+     * @param executor   the executor sending the signals to the subscriber
+     */
+    public static <T> MatchProcessor<CharSequence, T> forStrings(AsyncMatcher matcher, String expression,
+                                                                 Decoder<T> decoder, int batchSize, boolean ordered,
+                                                                 Executor executor) {
+        return new MatchProcessor<>(matcher, expression, decoder,
+                (pattern, inputs, d) -> pattern.matchBatch(inputs, d, inputs.size()), batchSize, ordered, executor);
+    }
+
+    /**
+     * Creates a processor matching UTF-8 encoded inputs, publishing the results in order.
+     * <p>
+     * Each input is given by the bytes between the position and the limit of a buffer; positions are not changed.
+     *
+     * @param matcher    the matcher running the matches
+     * @param expression the RPL expression, compiled once per engine
+     * @param decoder    the output decoder
+     */
+    public static <T> MatchProcessor<ByteBuffer, T> forBuffers(AsyncMatcher matcher, String expression,
+                                                               Decoder<T> decoder) {
+        return forBuffers(matcher, expression, decoder, DEFAULT_BATCH_SIZE, true, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a processor matching UTF-8 encoded inputs.
+     *
+     * @see #forStrings(AsyncMatcher, String, Decoder, int, boolean, Executor)
+     * @see #forBuffers(AsyncMatcher, String, Decoder)
+     */
+    public static <T> MatchProcessor<ByteBuffer, T> forBuffers(AsyncMatcher matcher, String expression,
+                                                               Decoder<T> decoder, int batchSize, boolean ordered,
+                                                               Executor executor) {
+        return new MatchProcessor<>(matcher, expression, decoder,
+                (pattern, inputs, d) -> pattern.matchBatch(inputs.toArray(new ByteBuffer[0]), d, inputs.size()),
+                batchSize, ordered, executor);
+    }
+
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        synchronized (lock) {
+            if (upstream == null && !cancelled) {
+                upstream = subscription;
+                subscription = null;
+            }
+        }
+        if (subscription != null) {
+            subscription.cancel();
+            return;
+        }
+        drain();
+    }
+
+    @Override
+    public void onNext(I item) {
+        if (item == null) {
+            throw new NullPointerException("null input");
+        }
+        synchronized (lock) {
+            if (cancelled || terminated) {
+                return;
+            }
+            pending.add(item);
+            outstanding--;
+        }
+        drain();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        synchronized (lock) {
+            upstreamDone = true;
+            if (error == null) {
+                error = throwable;
+            }
+        }
+        drain();
+    }
+
+    @Override
+    public void onComplete() {
+        synchronized (lock) {
+            upstreamDone = true;
+        }
+        drain();
+    }
+
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        boolean accepted;
+        synchronized (lock) {
+            accepted = !subscribed;
+            subscribed = true;
+        }
+        if (!accepted) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("already subscribed"));
+            return;
+        }
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                synchronized (lock) {
+                    if (n <= 0) {
+                        if (error == null) {
+                            error = new IllegalArgumentException("non-positive request: " + n);
+                        }
+                    } else {
+                        requested = requested + n < 0 ? Long.MAX_VALUE : requested + n;
+                    }
+                }
+                drain();
+            }
+
+            @Override
+            public void cancel() {
+                Flow.Subscription subscription;
+                synchronized (lock) {
+                    cancelled = true;
+                    pending.clear();
+                    completed.clear();
+                    ready.clear();
+                    subscription = upstream;
+                }
+                if (subscription != null) {
+                    subscription.cancel();
+                }
+            }
+        });
+        // only signal the subscriber once onSubscribe has returned
+        synchronized (lock) {
+            downstream = subscriber;
+        }
+        drain();
+    }
+
+
+    /**
+     * Publishes the results requested by the subscriber, matches the queued inputs on the free engines, and requests
+     * more inputs if there is room; terminates the subscriber when done.
+     * <p>
+     * Runs on a single thread at a time: a call made while another thread is draining is handled by that thread.
+     */
+    private void drain() {
+        synchronized (lock) {
+            if (draining) {
+                missed = true;
+                return;
+            }
+            draining = true;
+        }
+        while (true) {
+            Flow.Subscriber<? super T> subscriber;
+            Flow.Subscription subscription;
+            List<T> results = new ArrayList<>();
+            List<List<I>> batches = new ArrayList<>();
+            long firstBatch;
+            Throwable failure;
+            boolean complete;
+            long request = 0;
+            synchronized (lock) {
+                missed = false;
+                if (cancelled || terminated) {
+                    draining = false;
+                    return;
+                }
+                subscriber = downstream;
+                subscription = upstream;
+                failure = error;
+
+                if (failure == null) {
+                    while (subscriber != null && requested > 0 && !ready.isEmpty()) {
+                        results.add(ready.poll());
+                        requested--;
+                    }
+                    firstBatch = nextBatch;
+                    while (inFlightBatches < matcher.getSize() && !pending.isEmpty()) {
+                        List<I> batch = new ArrayList<>(Math.min(pending.size(), batchSize));
+                        while (batch.size() < batchSize && !pending.isEmpty()) {
+                            batch.add(pending.poll());
+                        }
+                        batches.add(batch);
+                        inFlightBatches++;
+                        inFlightItems += batch.size();
+                        nextBatch++;
+                    }
+                    int held = pending.size() + inFlightItems + completedItems + ready.size();
+                    if (subscription != null && !upstreamDone && capacity - held - outstanding >= batchSize) {
+                        request = capacity - held - outstanding;
+                        outstanding += request;
+                    }
+                } else {
+                    firstBatch = 0;
+                }
+                complete = upstreamDone && pending.isEmpty() && inFlightBatches == 0 && completed.isEmpty()
+                        && ready.isEmpty();
+                if (subscriber != null && (failure != null || complete)) {
+                    terminated = true;
+                    pending.clear();
+                    completed.clear();
+                    ready.clear();
+                }
+            }
+
+            if (subscriber != null) {
+                for (T result : results) {
+                    subscriber.onNext(result);
+                }
+                if (failure != null) {
+                    if (subscription != null && !upstreamDone) {
+                        subscription.cancel();
+                    }
+                    subscriber.onError(failure);
+                    return;
+                }
+                if (complete) {
+                    subscriber.onComplete();
+                    return;
+                }
+            }
+            for (int i = 0; i < batches.size(); i++) {
+                submit(firstBatch + i, batches.get(i));
+            }
+            if (request > 0) {
+                subscription.request(request);
+            }
+
+            synchronized (lock) {
+                if (!missed) {
+                    draining = false;
+                    return;
+                }
+            }
+        }
+    }
+
+    private void submit(long sequence, List<I> batch) {
+        matcher.submit(slot -> {
+            MatchBatch<T> matched = function.match(slot.pattern(expression), batch, decoder);
+            slot.matchCount.addAndGet(batch.size());
+            List<T> results = new ArrayList<>(matched.size());
+            for (int i = 0; i < matched.size(); i++) {
+                T result = matched.get(i);
+                if (result != null) {
+                    results.add(result);
+                }
+            }
+            return results;
+        }).whenCompleteAsync((results, failure) -> completed(sequence, batch.size(), results, failure), executor);
+    }
+
+    private void completed(long sequence, int size, List<T> results, Throwable failure) {
+        synchronized (lock) {
+            inFlightBatches--;
+            inFlightItems -= size;
+            if (failure != null) {
+                if (error == null) {
+                    error = failure;
+                }
+            } else if (!cancelled && !terminated) {
+                if (ordered) {
+                    completed.put(sequence, results);
+                    completedItems += results.size();
+                    List<T> next;
+                    while ((next = completed.remove(nextPublished)) != null) {
+                        completedItems -= next.size();
+                        ready.addAll(next);
+                        nextPublished++;
+                    }
+                } else {
+                    ready.addAll(results);
+                }
+            }
+        }
+        drain();
+    }
+}
@@ -0,0 +1,170 @@
+package com.github.antoniomacri.rosie;
+
+import com.github.antoniomacri.rosie.encoding.Decoders;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+class AsyncMatcherTest {
+    @Test
+    void testMatchAsync() throws Exception {
+        try (AsyncMatcher matcher = new AsyncMatcher(2)) {
+            Match match = matcher.matchAsync("[:digit:]+", "123a", Decoders.LINE).get();
+
+            assertThat(match.isMatched()).isTrue();
+            assertThat(match.getRemainingBytes()).isEqualTo(1);
+            assertThat(matcher.getCompletedCount()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void testSetupByTemplate() throws Exception {
+        EngineTemplate template = new EngineTemplate().importPackage("net");
+        try (AsyncMatcher matcher = new AsyncMatcher(template, 2, 16, AsyncMatcher.RejectionPolicy.ABORT, 1,
+                TimeUnit.SECONDS)) {
+            assertThat(matcher.matchesAsync("net.any", "1.2.3.4").get()).isTrue();
+        }
+    }
+
+    @Test
+    void testManyConcurrentRequests() throws Exception {
+        try (AsyncMatcher matcher = new AsyncMatcher(2)) {
+            List<CompletableFuture<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                results.add(matcher.matchesAsync("[:digit:]+", i % 2 == 0 ? "123" : "abc"));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                assertThat(results.get(i).get()).isEqualTo(i % 2 == 0);
+            }
+        }
+    }
+
+    @Test
+    void testCompileErrorCompletesExceptionally() {
+        try (AsyncMatcher matcher = new AsyncMatcher(1)) {
+            CompletableFuture<Boolean> result = matcher.matchesAsync("[:foo:]", "x");
+
+            ExecutionException e = assertThrows(ExecutionException.class, result::get);
+            assertThat(e.getCause()).isInstanceOf(RosieException.class);
+        }
+    }
+
+    @Test
+    void testRejectedWhenQueueIsFull() throws Exception {
+        try (AsyncMatcher matcher = new AsyncMatcher(null, 1, 1, AsyncMatcher.RejectionPolicy.ABORT, 10,
+                TimeUnit.SECONDS)) {
+            CountDownLatch running = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            CompletableFuture<Object> busy = matcher.executeAsync(engine -> {
+                running.countDown();
+                await(release);
+                return null;
+            });
+            running.await();
+            CompletableFuture<Boolean> queued = matcher.matchesAsync("[:digit:]+", "1");
+            CompletableFuture<Boolean> rejected = matcher.matchesAsync("[:digit:]+", "1");
+
+            ExecutionException e = assertThrows(ExecutionException.class, rejected::get);
+            assertThat(e.getCause()).isInstanceOf(RejectedExecutionException.class);
+
+            release.countDown();
+            busy.get();
+            assertThat(queued.get()).isTrue();
+            assertThat(matcher.getRejectedCount()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void testDiscardOldest() throws Exception {
+        try (AsyncMatcher matcher = new AsyncMatcher(null, 1, 1, AsyncMatcher.RejectionPolicy.DISCARD_OLDEST, 10,
+                TimeUnit.SECONDS)) {
+            CountDownLatch running = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            matcher.executeAsync(engine -> {
+                running.countDown();
+                await(release);
+                return null;
+            });
+            running.await();
+            CompletableFuture<Boolean> oldest = matcher.matchesAsync("[:digit:]+", "1");
+            CompletableFuture<Boolean> newest = matcher.matchesAsync("[:digit:]+", "1");
+            release.countDown();
+
+            ExecutionException e = assertThrows(ExecutionException.class, oldest::get);
+            assertThat(e.getCause()).isInstanceOf(RejectedExecutionException.class);
+            assertThat(newest.get()).isTrue();
+        }
+    }
+
+    @Test
+    void testTimeoutInQueue() throws Exception {
+        try (AsyncMatcher matcher = new AsyncMatcher(null, 1, 4, AsyncMatcher.RejectionPolicy.ABORT, 10,
+                TimeUnit.MILLISECONDS)) {
+            CountDownLatch running = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            matcher.executeAsync(engine -> {
+                running.countDown();
+                await(release);
+                return null;
+            });
+            running.await();
+            CompletableFuture<Boolean> late = matcher.matchesAsync("[:digit:]+", "1");
+            Thread.sleep(50);
+            release.countDown();
+
+            ExecutionException e = assertThrows(ExecutionException.class, late::get);
+            assertThat(e.getCause()).isInstanceOf(RejectedExecutionException.class);
+        }
+    }
+
+    @Test
+    void testClosed() {
+        AsyncMatcher matcher = new AsyncMatcher(1);
+        matcher.close();
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> matcher.matchesAsync("x", "x").get());
+        assertThat(e.getCause()).isInstanceOf(IllegalStateException.class);
+    }
+
+
+    @Test
+    void testSubmitWhileClosing() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            AsyncMatcher matcher = new AsyncMatcher(1);
+            List<CompletableFuture<Boolean>> results = Collections.synchronizedList(new ArrayList<>());
+            Thread submitter = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    results.add(matcher.matchesAsync("[:digit:]+", "1"));
+                }
+            });
+            submitter.start();
+            matcher.close();
+            submitter.join();
+
+            // every future completes, normally or not
+            for (CompletableFuture<Boolean> result : results) {
+                assertThat(result.handle((value, failure) -> true).get(10, TimeUnit.SECONDS)).isTrue();
+            }
+        }
+    }
+
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.github.antoniomacri.rosie;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+class CompileCacheTest {
+    @CsvSource(delimiter = '|', value = {
+            "  net.ipv4  |net.ipv4",
+            "a   b|a b",
+            "'a \t\n b'|a b",
+            "\"x  y\"  z|\"x  y\" z",
+            "\"a\\\"  b\"|\"a\\\"  b\"",
+            "[a  b]   c|[a  b] c",
+            "[[a ] [b ]]  c|[[a ] [b ]] c",
+            "'a  -- comment\n  b'|'a  -- comment\n  b'",
+    })
+    @ParameterizedTest
+    void testNormalize(String expression, String normalized) {
+        assertThat(CompileCache.normalize(expression)).isEqualTo(normalized);
+    }
+}
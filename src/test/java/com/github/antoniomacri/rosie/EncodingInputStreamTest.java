@@ -0,0 +1,36 @@
+package com.github.antoniomacri.rosie;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+class EncodingInputStreamTest {
+    @ParameterizedTest
+    @ValueSource(ints = {1, 7, 100_000})
+    void testEncodesLikeString(int repetitions) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < repetitions; i++) {
+            builder.append("aè日😀\n");
+        }
+        String text = builder.toString();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new EncodingInputStream(new StringReader(text))) {
+            byte[] buffer = new byte[1000];
+            int read;
+            while ((read = in.read(buffer, 0, buffer.length)) >= 0) {
+                out.write(buffer, 0, read);
+            }
+        }
+
+        assertThat(out.toByteArray()).isEqualTo(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
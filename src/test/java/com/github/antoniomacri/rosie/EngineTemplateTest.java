@@ -0,0 +1,87 @@
+package com.github.antoniomacri.rosie;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+class EngineTemplateTest {
+    private static final String TEST_DIR = "src/test/resources/tests";
+
+
+    @Test
+    void testReplay() {
+        EngineTemplate template = new EngineTemplate()
+                .importPackage("net")
+                .loadFile(Paths.get(TEST_DIR, "test.rpl").toString())
+                .load("bar = \"bar\"");
+
+        for (int i = 0; i < 3; i++) {
+            try (RosieEngine engine = template.newEngine()) {
+                assertThat(engine.compile("net.ipv4").matches("1.2.3.4")).isTrue();
+                assertThat(engine.compile("test.foo").matches("foo")).isTrue();
+                assertThat(engine.compile("bar").matches("bar")).isTrue();
+            }
+        }
+
+        List<BootstrapStatistics> statistics = template.getStatistics();
+        assertThat(statistics).extracting(BootstrapStatistics::getStep)
+                .containsExactly("new", "import net", "loadfile " + Paths.get(TEST_DIR, "test.rpl"), "load");
+        assertThat(statistics).allSatisfy(step -> assertThat(step.getCount()).isEqualTo(3));
+        assertThat(statistics.get(1).getCacheHits()).isEqualTo(2);
+        assertThat(statistics.get(2).getCacheHits()).isEqualTo(2);
+    }
+
+    @Test
+    void testImportWithAlias() {
+        EngineTemplate template = new EngineTemplate().importPackage("net", "n");
+
+        try (RosieEngine engine = template.newEngine()) {
+            assertThat(engine.compile("n.ipv4").matches("1.2.3.4")).isTrue();
+        }
+    }
+
+    @Test
+    void testSourceChanged(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("changing.rpl");
+        Files.write(file, "package changing\nx = \"a\"".getBytes(StandardCharsets.UTF_8));
+        EngineTemplate template = new EngineTemplate().loadFile(file.toString());
+        try (RosieEngine engine = template.newEngine()) {
+            assertThat(engine.compile("changing.x").matches("a")).isTrue();
+        }
+
+        Files.write(file, "package changing\nx = \"b\"".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 10_000));
+        try (RosieEngine engine = template.newEngine()) {
+            assertThat(engine.compile("changing.x").matches("b")).isTrue();
+        }
+        assertThat(template.getStatistics().get(1).getCacheHits()).isEqualTo(0);
+    }
+
+    @Test
+    void testFailure() {
+        EngineTemplate template = new EngineTemplate().importPackage("this_package_does_not_exist");
+
+        assertThrows(RosieException.class, template::newEngine);
+    }
+
+    @Test
+    void testPool() {
+        EngineTemplate template = new EngineTemplate().importPackage("net");
+
+        try (RosieEnginePool pool = new RosieEnginePool(template, 2)) {
+            assertThat(pool.matches("net.ipv4", "1.2.3.4")).isTrue();
+        }
+        assertThat(template.getStatistics().get(1).getCount()).isEqualTo(2);
+    }
+}
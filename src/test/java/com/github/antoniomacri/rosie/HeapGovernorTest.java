@@ -0,0 +1,169 @@
+package com.github.antoniomacri.rosie;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+class HeapGovernorTest {
+    private RosieEnginePool pool;
+    private HeapGovernor governor;
+
+    @BeforeEach
+    void init() {
+        pool = new RosieEnginePool(2);
+        governor = new HeapGovernor(pool, 32 * 1024, 10, TimeUnit.MILLISECONDS);
+    }
+
+    @AfterEach
+    void close() {
+        governor.close();
+        pool.close();
+    }
+
+
+    @Test
+    void testInitialLimit() {
+        List<HeapGovernor.Decision> decisions = new ArrayList<>();
+        governor.setListener(decisions::add);
+
+        governor.tick();
+
+        for (int i = 0; i < pool.getSize(); i++) {
+            AllocLimitResult heap = governor.getHeap(i);
+            assertThat(heap.getLimit()).isBetween(HeapGovernor.MIN_LIMIT, 32 * 1024);
+            assertThat(heap.getUsage()).isPositive();
+        }
+        assertThat(decisions).filteredOn(decision -> decision.getAction() == HeapGovernor.Action.CAP)
+                .hasSize(pool.getSize())
+                .allSatisfy(decision -> {
+                    assertThat(decision.getLimitBefore()).isZero();
+                    assertThat(decision.getLimitAfter()).isEqualTo(32 * 1024);
+                });
+        assertThat(governor.getDecisions()).isEqualTo(decisions);
+    }
+
+    @Test
+    void testRaisedOnSlowCollection() {
+        HeapGovernor.EngineState state = stub(0, 16 * 1024, 4096);
+        // the heap shrank since the previous tick, while a match was slow
+        state.heap = new AllocLimitResult(16 * 1024, 6144);
+        state.slow.set(1);
+
+        governor.tick();
+
+        assertThat(decisionsOf(0)).extracting(HeapGovernor.Decision::getAction)
+                .containsExactly(HeapGovernor.Action.RAISE);
+        assertThat(decisionsOf(0).get(0).getLimitAfter()).isEqualTo(24 * 1024);
+        assertThat(pool.getSlot(0).engine.getAllocLimit().getLimit()).isEqualTo(24 * 1024);
+        assertThat(state.slow.get()).isZero();
+    }
+
+    @Test
+    void testNotRaisedWithoutSlowMatches() {
+        HeapGovernor.EngineState state = stub(0, 16 * 1024, 9000);
+        state.heap = new AllocLimitResult(16 * 1024, 10000);
+
+        governor.tick();
+
+        assertThat(decisionsOf(0)).isEmpty();
+        assertThat(governor.getHeap(0).getLimit()).isEqualTo(16 * 1024);
+    }
+
+    @Test
+    void testLoweredWhenUnderused() {
+        stub(0, 32 * 1024, 5000);
+
+        governor.tick();
+
+        assertThat(decisionsOf(0)).extracting(HeapGovernor.Decision::getAction)
+                .containsExactly(HeapGovernor.Action.LOWER);
+        assertThat(decisionsOf(0).get(0).getLimitAfter()).isEqualTo(10000);
+        assertThat(governor.getHeap(0).getLimit()).isEqualTo(10000);
+    }
+
+    @Test
+    void testLoweredDownToMinimum() {
+        stub(0, 32 * 1024, 1000);
+
+        governor.tick();
+
+        assertThat(decisionsOf(0).get(0).getLimitAfter()).isEqualTo(HeapGovernor.MIN_LIMIT);
+    }
+
+    @Test
+    void testCollectedWhenFull() {
+        stub(0, 16 * 1024, 15000, 2000);
+
+        governor.tick();
+
+        assertThat(decisionsOf(0)).extracting(HeapGovernor.Decision::getAction)
+                .containsExactly(HeapGovernor.Action.COLLECT);
+        HeapGovernor.Decision decision = decisionsOf(0).get(0);
+        assertThat(decision.getUsageBefore()).isEqualTo(15000);
+        assertThat(decision.getUsageAfter()).isEqualTo(2000);
+        assertThat(governor.getHeap(0).getUsage()).isEqualTo(2000);
+        // the limit is restored after the collection
+        assertThat(pool.getSlot(0).engine.getAllocLimit().getLimit()).isEqualTo(16 * 1024);
+    }
+
+    @Test
+    void testBusyEngineSkipped() throws InterruptedException {
+        try (PooledEngine engine = pool.acquire()) {
+            governor.tick();
+
+            assertThat(governor.getHeap(engine.getIndex())).isNull();
+        }
+    }
+
+    @Test
+    void testMetricsRestored() {
+        HistogramMatchMetrics metrics = new HistogramMatchMetrics();
+        governor.close();
+        pool.setMetrics(metrics);
+        governor = new HeapGovernor(pool, 32 * 1024, 10, TimeUnit.MILLISECONDS);
+
+        pool.matches("[:digit:]+", "123");
+        governor.close();
+
+        assertThat(metrics.get("[:digit:]+").getMatchCount()).isEqualTo(1);
+        pool.execute(engine -> assertThat(engine.getMetrics()).isSameAs(metrics));
+    }
+
+
+    /**
+     * Sets the limit of an engine, and replaces its state with one reporting the given heap usages, one per sample.
+     */
+    private HeapGovernor.EngineState stub(int engineIndex, int limit, int... usages) {
+        RosieEngine engine = pool.getSlot(engineIndex).engine;
+        engine.setAllocLimit(limit);
+        Deque<Integer> samples = new ArrayDeque<>();
+        for (int usage : usages) {
+            samples.add(usage);
+        }
+        HeapGovernor.EngineState state = governor.new EngineState(engine.getMetrics()) {
+            @Override
+            AllocLimitResult sample(RosieEngine engine) {
+                return new AllocLimitResult(engine.getAllocLimit().getLimit(), samples.remove());
+            }
+        };
+        governor.states[engineIndex] = state;
+        engine.setMetrics(state);
+        return state;
+    }
+
+    private List<HeapGovernor.Decision> decisionsOf(int engineIndex) {
+        return governor.getDecisions().stream()
+                .filter(decision -> decision.getEngineIndex() == engineIndex)
+                .collect(Collectors.toList());
+    }
+}
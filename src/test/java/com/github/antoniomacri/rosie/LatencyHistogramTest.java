@@ -0,0 +1,53 @@
+package com.github.antoniomacri.rosie;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+class LatencyHistogramTest {
+    @Test
+    void testEmpty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertThat(histogram.getCount()).isEqualTo(0);
+        assertThat(histogram.getMean()).isEqualTo(0);
+        assertThat(histogram.getPercentile(99)).isEqualTo(0);
+    }
+
+    @Test
+    void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+
+        assertThat(histogram.getCount()).isEqualTo(1000);
+        assertThat(histogram.getMean()).isEqualTo(500.5);
+        assertThat(histogram.getMax()).isEqualTo(1000);
+        assertThat(histogram.getPercentile(50)).isBetween(500L, 1023L);
+        assertThat(histogram.getPercentile(100)).isEqualTo(1000);
+        assertThat(histogram.getPercentile(0)).isEqualTo(1);
+    }
+
+    @Test
+    void testZeroAndNegative() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(0);
+        histogram.record(-5);
+
+        assertThat(histogram.getCount()).isEqualTo(2);
+        assertThat(histogram.getPercentile(100)).isEqualTo(0);
+    }
+
+    @Test
+    void testReset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(42);
+
+        histogram.reset();
+
+        assertThat(histogram.getCount()).isEqualTo(0);
+        assertThat(histogram.getMax()).isEqualTo(0);
+    }
+}
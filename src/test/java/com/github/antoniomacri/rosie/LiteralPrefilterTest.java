@@ -0,0 +1,102 @@
+package com.github.antoniomacri.rosie;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+class LiteralPrefilterTest {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+
+    private static JsonNode tree(String json) throws IOException {
+        return OBJECT_MAPPER.readTree(json.replace('\'', '"'));
+    }
+
+    private static String literal(String data) {
+        return "{'type':'literal','data':'" + data + "'}";
+    }
+
+    private static String node(String type, String... subs) {
+        return "{'type':'" + type + "','subs':[" + String.join(",", subs) + "]}";
+    }
+
+
+    @Test
+    void testLiteral() throws IOException {
+        LiteralPrefilter prefilter = LiteralPrefilter.of(tree(node("rpl_expression", literal("ERROR"))));
+
+        assertThat(prefilter.getLiterals()).containsExactly("ERROR");
+        assertThat(prefilter.mayMatch("an ERROR here", 0)).isTrue();
+        assertThat(prefilter.mayMatch("an ERROR here", 4)).isFalse();
+        assertThat(prefilter.mayMatch("all fine", 0)).isFalse();
+        assertThat(prefilter.getCheckCount()).isEqualTo(3);
+        assertThat(prefilter.getSkipCount()).isEqualTo(2);
+        assertThat(prefilter.getSkipRate()).isEqualTo(2.0 / 3);
+    }
+
+    @Test
+    void testSequenceKeepsLongestLiteral() throws IOException {
+        String sequence = node("sequence", literal("sshd["), node("identifier"), literal("]"));
+        LiteralPrefilter prefilter = LiteralPrefilter.of(tree(node("rpl_expression", sequence)));
+
+        assertThat(prefilter.getLiterals()).containsExactly("sshd[");
+    }
+
+    @Test
+    void testChoice() throws IOException {
+        String choice = node("choice", literal("ERROR"), node("raw", literal("WARN"), node("charset_exp")));
+        LiteralPrefilter prefilter = LiteralPrefilter.of(tree(node("rpl_expression", choice)));
+
+        assertThat(prefilter.getLiterals()).containsExactly("ERROR", "WARN");
+        assertThat(prefilter.mayMatch("WARN: x", 0)).isTrue();
+        assertThat(prefilter.mayMatch("INFO: x", 0)).isFalse();
+    }
+
+    @Test
+    void testChoiceWithoutLiteral() throws IOException {
+        String choice = node("choice", literal("ERROR"), node("identifier"));
+        assertThat(LiteralPrefilter.of(tree(node("rpl_expression", choice)))).isNull();
+    }
+
+    @Test
+    void testQuantified() throws IOException {
+        String plus = node("quantified_exp", literal("ab"), node("plus"));
+        String star = node("quantified_exp", literal("ab"), node("star"));
+
+        assertThat(LiteralPrefilter.of(tree(node("rpl_expression", plus))).getLiterals()).containsExactly("ab");
+        assertThat(LiteralPrefilter.of(tree(node("rpl_expression", star)))).isNull();
+    }
+
+    @Test
+    void testUnknownNodes() throws IOException {
+        String predicate = node("predicate", node("negation"), literal("ERROR"));
+        String application = node("application", node("identifier"), literal("error"));
+
+        assertThat(LiteralPrefilter.of(tree(node("rpl_expression", predicate)))).isNull();
+        assertThat(LiteralPrefilter.of(tree(node("rpl_expression", application)))).isNull();
+    }
+
+    @Test
+    void testUnescape() {
+        assertThat(LiteralPrefilter.unescape("\"abc\"")).isEqualTo("abc");
+        assertThat(LiteralPrefilter.unescape("a\\\"b\\\\c\\t")).isEqualTo("a\"b\\c\t");
+        assertThat(LiteralPrefilter.unescape("\\x41")).isNull();
+        assertThat(LiteralPrefilter.unescape("a?")).isNull();
+    }
+
+    @Test
+    void testBytes() throws IOException {
+        LiteralPrefilter prefilter = LiteralPrefilter.of(tree(node("rpl_expression", literal("è1"))));
+        byte[] bytes = "xxàè1".getBytes(StandardCharsets.UTF_8);
+
+        assertThat(prefilter.mayMatch(bytes, 2, bytes.length)).isTrue();
+        assertThat(prefilter.mayMatch(bytes, 2, bytes.length - 1)).isFalse();
+        assertThat(prefilter.mayMatch(bytes, 5, bytes.length)).isFalse();
+    }
+}
@@ -0,0 +1,186 @@
+package com.github.antoniomacri.rosie;
+
+import com.github.antoniomacri.rosie.encoding.Decoders;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+class MatcherTest {
+    private RosieEngine rosie;
+    private Pattern pattern;
+
+    @BeforeEach
+    void init() {
+        rosie = new RosieEngine();
+        pattern = rosie.compile("[:digit:]+");
+    }
+
+    @AfterEach
+    void close() {
+        rosie.close();
+    }
+
+
+    @Test
+    void testReuseAcrossInputs() {
+        Matcher matcher = pattern.matcher();
+
+        assertThat(matcher.reset("123a").matches()).isTrue();
+        assertThat(matcher.start()).isEqualTo(0);
+        assertThat(matcher.end()).isEqualTo(3);
+        assertThat(matcher.group()).isEqualTo("123");
+
+        assertThat(matcher.reset("a123").matches()).isFalse();
+        assertThat(matcher.hasMatch()).isFalse();
+        assertThrows(IllegalStateException.class, matcher::start);
+
+        assertThat(matcher.matches(1)).isTrue();
+        assertThat(matcher.start()).isEqualTo(1);
+        assertThat(matcher.end()).isEqualTo(4);
+    }
+
+    @Test
+    void testBufferGrowth() {
+        Matcher matcher = pattern.matcher();
+        StringBuilder digits = new StringBuilder();
+        for (int i = 0; i < 10_000; i++) {
+            digits.append(i % 10);
+        }
+
+        assertThat(matcher.reset(digits).matches()).isTrue();
+        assertThat(matcher.end()).isEqualTo(digits.length());
+        assertThat(matcher.reset("1x").matches()).isTrue();
+        assertThat(matcher.end()).isEqualTo(1);
+    }
+
+    @Test
+    void testNonAsciiOffsets() {
+        Matcher matcher = pattern.matcher();
+
+        assertThat(matcher.reset("àè12ì").matches(2)).isTrue();
+        assertThat(matcher.start()).isEqualTo(2);
+        assertThat(matcher.end()).isEqualTo(4);
+        assertThat(matcher.group()).isEqualTo("12");
+    }
+
+    @Test
+    void testFind() {
+        Matcher matcher = pattern.matcher().reset("a12 b345 6");
+
+        assertThat(matcher.find()).isTrue();
+        assertThat(matcher.group()).isEqualTo("12");
+        assertThat(matcher.find()).isTrue();
+        assertThat(matcher.start()).isEqualTo(5);
+        assertThat(matcher.group()).isEqualTo("345");
+        assertThat(matcher.find()).isTrue();
+        assertThat(matcher.group()).isEqualTo("6");
+        assertThat(matcher.find()).isFalse();
+
+        assertThat(matcher.reset("12").find()).isTrue();
+        assertThat(matcher.group()).isEqualTo("12");
+    }
+
+    @Test
+    void testFindNonAscii() {
+        Matcher matcher = pattern.matcher().reset("à1è23");
+
+        assertThat(matcher.find()).isTrue();
+        assertThat(matcher.start()).isEqualTo(1);
+        assertThat(matcher.find()).isTrue();
+        assertThat(matcher.start()).isEqualTo(3);
+        assertThat(matcher.end()).isEqualTo(5);
+        assertThat(matcher.find()).isFalse();
+    }
+
+    @Test
+    void testFindEmptyMatches() {
+        Matcher matcher = rosie.compile("[:digit:]*").matcher().reset("a1");
+
+        assertThat(matcher.find()).isTrue();
+        assertThat(matcher.group()).isEmpty();
+        assertThat(matcher.find()).isTrue();
+        assertThat(matcher.group()).isEqualTo("1");
+        assertThat(matcher.find()).isTrue();
+        assertThat(matcher.start()).isEqualTo(2);
+        assertThat(matcher.group()).isEmpty();
+        assertThat(matcher.find()).isFalse();
+    }
+
+    @Test
+    void testFindAll() {
+        List<String> found;
+        try (Stream<Match> matches = pattern.findAll("a12 b345 6", Decoders.LINE)) {
+            found = matches.map(match -> match.isMatched() ? "ok" : "ko").collect(Collectors.toList());
+        }
+
+        assertThat(found).containsExactly("ok", "ok", "ok");
+        assertThat(pattern.findAll("abc", Decoders.BOOL).count()).isZero();
+    }
+
+    @Test
+    void testBytes() {
+        Matcher matcher = pattern.matcher();
+        byte[] bytes = "ab45cd".getBytes(StandardCharsets.UTF_8);
+
+        assertThat(matcher.reset(bytes, 2, 4).matches()).isTrue();
+        assertThat(matcher.group()).isEqualTo("45");
+
+        assertThat(matcher.reset(ByteBuffer.wrap(bytes)).matches(2)).isTrue();
+        assertThat(matcher.end()).isEqualTo(4);
+    }
+
+    @Test
+    void testMatchWithDecoder() {
+        Matcher matcher = pattern.matcher().reset("123a");
+
+        Match match = matcher.match(Decoders.LINE);
+
+        assertThat(match.isMatched()).isTrue();
+        assertThat(match.getData()).isEqualTo("123a");
+        assertThat(match.getRemainingBytes()).isEqualTo(1);
+    }
+
+    @Test
+    void testView() {
+        Matcher matcher = pattern.matcher();
+
+        MatchView view = matcher.reset("123a").view(Decoders.LINE);
+        assertThat(view.isMatched()).isTrue();
+        assertThat(view.getRemainingBytes()).isEqualTo(1);
+        assertThat(StandardCharsets.UTF_8.decode(view.getData()).toString()).isEqualTo("123a");
+
+        MatchView copy = view.copy();
+        MatchView next = matcher.reset("45").view(Decoders.LINE);
+        assertThat(next).isSameAs(view);
+        assertThat(StandardCharsets.UTF_8.decode(next.getData()).toString()).isEqualTo("45");
+        assertThat(copy.toMatch().getData()).isEqualTo("123a");
+
+        MatchView failed = matcher.reset("x").view(Decoders.LINE);
+        assertThat(failed.isMatched()).isFalse();
+        assertThat(failed.hasData()).isFalse();
+    }
+
+    @Test
+    void testViewCopiedToArena() {
+        Matcher matcher = pattern.matcher();
+        ResultArena arena = new ResultArena(64);
+
+        MatchView first = matcher.reset("123").view(Decoders.LINE).copy(arena);
+        MatchView second = matcher.reset("456").view(Decoders.LINE).copy(arena);
+
+        assertThat(first.getData().isDirect()).isTrue();
+        assertThat(first.toMatch().getData()).isEqualTo("123");
+        assertThat(second.toMatch().getData()).isEqualTo("456");
+        assertThat(arena.getAllocatedBytes()).isEqualTo(6);
+    }
+}
@@ -0,0 +1,87 @@
+package com.github.antoniomacri.rosie;
+
+import com.github.antoniomacri.rosie.encoding.Decoders;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+class ParallelFileMatcherTest {
+    private static final int LINES = 10_000;
+
+    private RosieEnginePool pool;
+    private ParallelFileMatcher matcher;
+    private List<Boolean> expected;
+
+    @TempDir
+    Path tempDir;
+    private Path file;
+
+    @BeforeEach
+    void init() throws IOException {
+        pool = new RosieEnginePool(4);
+        matcher = new ParallelFileMatcher(pool, "[:digit:]+", 1000);
+
+        List<String> lines = new ArrayList<>();
+        expected = new ArrayList<>();
+        for (int i = 0; i < LINES; i++) {
+            boolean digits = i % 3 != 0;
+            lines.add(digits ? i + " items" : "none " + i);
+            expected.add(digits);
+        }
+        file = Files.write(tempDir.resolve("input.log"), lines, StandardCharsets.UTF_8);
+    }
+
+    @AfterEach
+    void close() {
+        matcher.close();
+        pool.close();
+    }
+
+
+    @Test
+    void testOrdered() throws IOException {
+        List<Boolean> results = new ArrayList<>();
+
+        matcher.match(file, Decoders.BOOL_VALUE, true, results::add);
+
+        assertThat(results).isEqualTo(expected);
+        assertThat(pool.getStatistics().getMatchCount()).isEqualTo(LINES);
+    }
+
+    @Test
+    void testUnordered() throws IOException {
+        List<Boolean> results = new ArrayList<>();
+
+        matcher.match(file, Decoders.BOOL_VALUE, false, results::add);
+
+        assertThat(results).hasSize(LINES);
+        assertThat(results.stream().filter(Boolean::booleanValue).count())
+                .isEqualTo(expected.stream().filter(Boolean::booleanValue).count());
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void testStream(boolean parallel) throws IOException {
+        List<Boolean> results;
+        try (Stream<Boolean> stream = matcher.stream(file, Decoders.BOOL_VALUE, parallel)) {
+            results = stream.collect(Collectors.toList());
+        }
+
+        assertThat(results).isEqualTo(expected);
+    }
+}
@@ -0,0 +1,51 @@
+package com.github.antoniomacri.rosie;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+class ResultArenaTest {
+    @Test
+    void testAllocateFromSlabs() {
+        ResultArena arena = new ResultArena(16);
+
+        ByteBuffer first = arena.allocate(10);
+        ByteBuffer second = arena.allocate(10);
+        first.put(new byte[10]);
+        second.put((byte) 1);
+
+        assertThat(first.isDirect()).isTrue();
+        assertThat(first.capacity()).isEqualTo(10);
+        assertThat(second.capacity()).isEqualTo(10);
+        assertThat(arena.getCapacity()).isEqualTo(32);
+        assertThat(arena.getAllocatedBytes()).isEqualTo(20);
+    }
+
+    @Test
+    void testResetReusesSlabs() {
+        ResultArena arena = new ResultArena(16);
+        arena.allocate(16);
+        arena.allocate(16);
+
+        arena.reset();
+        arena.allocate(8);
+        arena.allocate(8);
+        arena.allocate(8);
+
+        assertThat(arena.getCapacity()).isEqualTo(32);
+        assertThat(arena.getAllocatedBytes()).isEqualTo(24);
+    }
+
+    @Test
+    void testOversized() {
+        ResultArena arena = new ResultArena(16);
+
+        ByteBuffer buffer = arena.allocate(100);
+
+        assertThat(buffer.capacity()).isEqualTo(100);
+        assertThat(arena.getCapacity()).isEqualTo(0);
+    }
+}
@@ -0,0 +1,161 @@
+package com.github.antoniomacri.rosie;
+
+import com.github.antoniomacri.rosie.encoding.Decoders;
+import com.github.antoniomacri.rosie.encoding.SpanDecoder;
+import com.github.antoniomacri.rosie.encoding.Spans;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+class ResultCacheTest {
+    private static ResultCache.Result none() {
+        return new ResultCache.Result(Match.noData(0, 0, 0, 0), null);
+    }
+
+    private static ResultCache.Result data(String data) {
+        return new ResultCache.Result(Match.noData(0, 0, 0, 0), data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testHitAndMiss() {
+        ResultCache cache = new ResultCache(100, 1 << 20);
+        ResultCache.Result match = data("abc");
+
+        assertThat(cache.get("abc", 0, "json")).isNull();
+        cache.put("abc", 0, "json", match, 1000);
+
+        assertThat(cache.get("abc", 0, "json")).isSameAs(match);
+        assertThat(cache.get("abc", 1, "json")).isNull();
+        assertThat(cache.get("abc", 0, "line")).isNull();
+        assertThat(cache.get(new String("abc"), 0, "json")).isSameAs(match);
+
+        ResultCacheStatistics statistics = cache.getStatistics();
+        assertThat(statistics.getSize()).isEqualTo(1);
+        assertThat(statistics.getHits()).isEqualTo(2);
+        assertThat(statistics.getMisses()).isEqualTo(1);
+        assertThat(statistics.getHitRate()).isEqualTo(2.0 / 3);
+        assertThat(statistics.getAverageMissNanos()).isEqualTo(1000);
+        assertThat(statistics.getSavedNanos()).isEqualTo(2000);
+    }
+
+    @Test
+    void testEvictionBySize() {
+        ResultCache cache = new ResultCache(2, 1 << 20, 1);
+        cache.put("a", 0, "bool", none(), 0);
+        cache.put("b", 0, "bool", none(), 0);
+        cache.get("a", 0, "bool");
+        cache.put("c", 0, "bool", none(), 0);
+
+        assertThat(cache.get("a", 0, "bool")).isNotNull();
+        assertThat(cache.get("b", 0, "bool")).isNull();
+        assertThat(cache.get("c", 0, "bool")).isNotNull();
+        assertThat(cache.getStatistics().getEvictions()).isEqualTo(1);
+    }
+
+    @Test
+    void testEvictionByWeight() {
+        ResultCache cache = new ResultCache(100, 1000, 1);
+        StringBuilder input = new StringBuilder();
+        while (input.length() < 200) {
+            input.append("0123456789");
+        }
+        cache.put(input + "a", 0, "json", data(input.toString()), 0);
+        cache.put(input + "b", 0, "json", data(input.toString()), 0);
+
+        assertThat(cache.getStatistics().getSize()).isEqualTo(1);
+        assertThat(cache.getStatistics().getWeight()).isLessThanOrEqualTo(1000);
+        assertThat(cache.get(input + "b", 0, "json")).isNotNull();
+    }
+
+    @Test
+    void testTooHeavy() {
+        ResultCache cache = new ResultCache(100, 100, 1);
+        cache.put("abc", 0, "bool", none(), 0);
+
+        assertThat(cache.getStatistics().getSize()).isEqualTo(0);
+        assertThat(cache.getStatistics().getMisses()).isEqualTo(1);
+    }
+
+    @Test
+    void testClear() {
+        ResultCache cache = new ResultCache(100, 1 << 20);
+        cache.put("abc", 0, "bool", none(), 0);
+        cache.clear();
+
+        assertThat(cache.getStatistics().getSize()).isEqualTo(0);
+        assertThat(cache.getStatistics().getWeight()).isEqualTo(0);
+        assertThat(cache.get("abc", 0, "bool")).isNull();
+    }
+
+    @Test
+    void testConcurrentAccess() throws Exception {
+        ResultCache cache = new ResultCache(64, 1 << 20);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        String input = "line " + (i % 100);
+                        if (cache.get(input, 0, "bool") == null) {
+                            cache.put(input, 0, "bool", none(), 1);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        ResultCacheStatistics statistics = cache.getStatistics();
+        assertThat(statistics.getHits() + statistics.getMisses()).isEqualTo(40_000);
+        assertThat(statistics.getSize()).isLessThanOrEqualTo(64);
+    }
+
+    @Test
+    void testDecodeText() {
+        ResultCache.Result result = data("{\"type\":\"*\"}");
+
+        Match match = result.decode(Decoders.JSON);
+        assertThat(match.isMatched()).isTrue();
+        assertThat(match.getData()).isEqualTo("{\"type\":\"*\"}");
+        assertThat(result.decode(Decoders.BOOL_VALUE)).isTrue();
+    }
+
+    @Test
+    void testDecodeBinary() {
+        // the byte encoding of a match of "x" over [1, 4), which is not valid UTF-8
+        ByteBuffer encoded = ByteBuffer.allocate(11).order(ByteOrder.nativeOrder());
+        encoded.putInt(-1).putShort((short) 1).put((byte) 'x').putInt(4);
+        ResultCache.Result result = new ResultCache.Result(Match.noData(0, 0, 0, 0), encoded.array());
+
+        for (int i = 0; i < 2; i++) {
+            Spans spans = result.decode(new SpanDecoder());
+            assertThat(spans.isMatched()).isTrue();
+            assertThat(spans.size()).isEqualTo(1);
+            assertThat(spans.getType(0)).isEqualTo("x");
+            assertThat(spans.getStart(0)).isEqualTo(0);
+            assertThat(spans.getEnd(0)).isEqualTo(3);
+        }
+    }
+
+    @Test
+    void testInvalidSize() {
+        assertThrows(IllegalArgumentException.class, () -> new ResultCache(0, 100));
+        assertThrows(IllegalArgumentException.class, () -> new ResultCache(100, 0));
+    }
+}
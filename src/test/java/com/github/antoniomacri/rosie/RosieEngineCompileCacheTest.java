@@ -0,0 +1,117 @@
+package com.github.antoniomacri.rosie;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+class RosieEngineCompileCacheTest {
+    private RosieEngine rosie;
+
+    @BeforeEach
+    void init() {
+        rosie = new RosieEngine();
+        rosie.setCompileCacheSize(2, 2);
+    }
+
+    @AfterEach
+    void close() {
+        rosie.close();
+    }
+
+
+    @Test
+    void testHit() {
+        Pattern first = rosie.compile("[:digit:]+");
+        Pattern second = rosie.compile("  [:digit:]+ ");
+
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.compiled()).isSameAs(first.compiled());
+        first.close();
+        assertThat(second.matches("123")).isTrue();
+        second.close();
+
+        CompileCacheStatistics statistics = rosie.getCompileCacheStatistics();
+        assertThat(statistics.getHits()).isEqualTo(1);
+        assertThat(statistics.getMisses()).isEqualTo(1);
+        assertThat(statistics.getSize()).isEqualTo(1);
+    }
+
+    @Test
+    void testReusedAfterClose() {
+        Pattern first = rosie.compile("[:digit:]+");
+        first.close();
+
+        Pattern second = rosie.compile("[:digit:]+");
+
+        assertThat(second.compiled()).isSameAs(first.compiled());
+        assertThat(second.matches("1")).isTrue();
+    }
+
+    @Test
+    void testEviction() {
+        rosie.compile("[:digit:]+").close();
+        Pattern kept = rosie.compile("[:alpha:]+");
+        rosie.compile("[:space:]+").close();
+
+        CompileCacheStatistics statistics = rosie.getCompileCacheStatistics();
+        assertThat(statistics.getEvictions()).isEqualTo(1);
+        assertThat(statistics.getSize()).isEqualTo(2);
+        assertThat(rosie.compile("[:alpha:]+").compiled()).isSameAs(kept.compiled());
+
+        rosie.compile("[:digit:]+");
+        rosie.compile("[:punct:]+");
+        // evicted while still in use
+        assertThat(kept.matches("abc")).isTrue();
+        kept.close();
+        kept.close();
+    }
+
+    @Test
+    void testDoubleClose() {
+        Pattern first = rosie.compile("[:digit:]+");
+        Pattern second = rosie.compile("[:digit:]+");
+
+        first.close();
+        first.close();
+        rosie.compile("[:alpha:]+").close();
+        rosie.compile("[:space:]+").close();
+
+        // evicted, but still referenced by the second handle
+        assertThat(second.matches("123")).isTrue();
+        second.close();
+    }
+
+    @Test
+    void testErrorsCached() {
+        RosieException first = assertThrows(RosieException.class, () -> rosie.compile("foo"));
+        RosieException second = assertThrows(RosieException.class, () -> rosie.compile("foo"));
+
+        assertThat(second.getErrors()).isEqualTo(first.getErrors());
+        assertThat(rosie.getCompileCacheStatistics().getErrorHits()).isEqualTo(1);
+        assertThat(rosie.getCompileCacheStatistics().getMisses()).isEqualTo(1);
+    }
+
+    @Test
+    void testInvalidatedByLoad() {
+        assertThrows(RosieException.class, () -> rosie.compile("foo"));
+        Pattern before = rosie.compile("[:digit:]+");
+
+        rosie.load("foo = [:digit:]+");
+
+        assertThat(rosie.compile("foo").matches("12")).isTrue();
+        assertThat(rosie.compile("[:digit:]+").compiled()).isNotSameAs(before.compiled());
+        assertThat(rosie.getCompileCacheStatistics().getGeneration()).isEqualTo(1);
+    }
+
+    @Test
+    void testDisabled() {
+        rosie.setCompileCacheSize(0, 0);
+
+        assertThat(rosie.compile("[:digit:]+")).isNotSameAs(rosie.compile("[:digit:]+"));
+        assertThat(rosie.getCompileCacheStatistics()).isNull();
+    }
+}
@@ -0,0 +1,111 @@
+package com.github.antoniomacri.rosie;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+class RosieEngineDependenciesTest {
+    private RosieEngine rosie;
+
+    @BeforeEach
+    void init() {
+        rosie = new RosieEngine();
+    }
+
+    @AfterEach
+    void close() {
+        rosie.close();
+    }
+
+
+    @Test
+    void testExpressionDependencies() {
+        assertThat(rosie.getExpressionDependencies("net.ipv4 [:space:]+ date.any", false))
+                .containsExactlyInAnyOrder("net", "date");
+    }
+
+    @Test
+    void testNoDependencies() {
+        assertThat(rosie.getExpressionDependencies("[:digit:]+", false)).isEmpty();
+        assertThat(rosie.getExpressionDependencies("[:digit:]+", true)).isEmpty();
+    }
+
+    @Test
+    void testTransitiveDependencies(@TempDir Path libpath) throws IOException {
+        writePackage(libpath, "a", "import b\nx = b.y");
+        writePackage(libpath, "b", "import c\ny = c.z");
+        writePackage(libpath, "c", "z = [:digit:]+");
+        rosie.setLibpath(libpath.toString());
+
+        assertThat(rosie.getExpressionDependencies("a.x", false)).containsExactly("a");
+        // c is only reachable through b
+        assertThat(rosie.getExpressionDependencies("a.x", true)).containsExactly("a", "b", "c");
+    }
+
+    @Test
+    void testBlockDependencies() {
+        assertThat(rosie.getBlockDependencies("import net, word\nx = net.any word.any", false))
+                .containsExactlyInAnyOrder("net", "word");
+    }
+
+    @Test
+    void testCompileWithoutAutoImport() {
+        assertThat(rosie.isAutoImport()).isFalse();
+        assertThrows(RosieException.class, () -> rosie.compile("net.ipv4"));
+    }
+
+    @Test
+    void testCompileWithAutoImport() {
+        rosie.setAutoImport(true);
+
+        try (Pattern pattern = rosie.compile("net.ipv4")) {
+            assertThat(pattern.matches("1.2.3.4")).isTrue();
+        }
+    }
+
+    @Test
+    void testAutoImportOnce() {
+        rosie.setAutoImport(true);
+        rosie.setCompileCacheSize(10, 10);
+
+        rosie.compile("net.ipv4").close();
+        rosie.compile("net.ipv6").close();
+        rosie.compile("net.ipv4").close();
+
+        // only the first compile imported a package, invalidating the cache
+        assertThat(rosie.getCompileCacheStatistics().getGeneration()).isEqualTo(1);
+        assertThat(rosie.getCompileCacheStatistics().getHits()).isEqualTo(1);
+    }
+
+    @Test
+    void testAutoImportMissingPackage() {
+        rosie.setAutoImport(true);
+
+        assertThrows(RosieException.class, () -> rosie.compile("THISPACKAGEDOESNOTEXIST.any"));
+    }
+
+    @Test
+    void testAutoImportBrokenPackage(@TempDir Path libpath) throws IOException {
+        writePackage(libpath, "broken", "x = [");
+        rosie.setLibpath(libpath.toString());
+        rosie.setAutoImport(true);
+
+        RosieException e = assertThrows(RosieException.class, () -> rosie.compile("broken.x"));
+        assertThat(e.getErrors()).contains("broken");
+    }
+
+
+    private static void writePackage(Path libpath, String name, String rplCode) throws IOException {
+        Files.write(libpath.resolve(name + ".rpl"), ("package " + name + "\n" + rplCode + "\n").getBytes(UTF_8));
+    }
+}
@@ -0,0 +1,122 @@
+package com.github.antoniomacri.rosie;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+class RosieEngineFindTest {
+    private RosieEngine rosie;
+
+    @BeforeEach
+    void init() {
+        rosie = new RosieEngine();
+    }
+
+    @AfterEach
+    void close() {
+        rosie.close();
+    }
+
+
+    @Test
+    void testFind() {
+        try (Pattern pattern = rosie.compileFind("[:digit:]+")) {
+            FindResult result = pattern.find("abc 123 def");
+            assertThat(result.isFound()).isTrue();
+            assertThat(result.getStart()).isEqualTo(4);
+            assertThat(result.getEnd()).isEqualTo(7);
+        }
+    }
+
+    @Test
+    void testFindAtBeginning() {
+        try (Pattern pattern = rosie.compileFind("[:digit:]+")) {
+            FindResult result = pattern.find("123 def");
+            assertThat(result.getStart()).isEqualTo(0);
+            assertThat(result.getEnd()).isEqualTo(3);
+        }
+    }
+
+    @Test
+    void testNotFound() {
+        try (Pattern pattern = rosie.compileFind("[:digit:]+")) {
+            FindResult result = pattern.find("abc def");
+            assertThat(result.isFound()).isFalse();
+            assertThat(result.getStart()).isEqualTo(-1);
+        }
+    }
+
+    @Test
+    void testFindFromStart() {
+        try (Pattern pattern = rosie.compileFind("[:digit:]+")) {
+            FindResult result = pattern.find("12 abc 345", 2);
+            assertThat(result.getStart()).isEqualTo(7);
+            assertThat(result.getEnd()).isEqualTo(10);
+        }
+    }
+
+    @Test
+    void testFindLiteral() {
+        try (Pattern pattern = rosie.compileFind("\"def\"")) {
+            FindResult result = pattern.find("abc def");
+            assertThat(result.getStart()).isEqualTo(4);
+            assertThat(result.getEnd()).isEqualTo(7);
+        }
+    }
+
+    @Test
+    void testFindNonAscii() {
+        try (Pattern pattern = rosie.compileFind("[:digit:]+")) {
+            FindResult result = pattern.find("àèì 123");
+            assertThat(result.getStart()).isEqualTo(4);
+            assertThat(result.getEnd()).isEqualTo(7);
+        }
+    }
+
+    @Test
+    void testFindByteBuffer() {
+        try (Pattern pattern = rosie.compileFind("[:digit:]+")) {
+            byte[] bytes = "àèì 123".getBytes(StandardCharsets.UTF_8);
+            ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+            direct.put(bytes).flip();
+            FindResult result = pattern.find(direct);
+            assertThat(result.getStart()).isEqualTo(7);
+            assertThat(result.getEnd()).isEqualTo(10);
+            assertThat(pattern.find(ByteBuffer.wrap(bytes)).getStart()).isEqualTo(7);
+        }
+    }
+
+    @Test
+    void testFindWithCompile() {
+        try (Pattern pattern = rosie.compile("[:digit:]+")) {
+            assertThat(pattern.find("abc 123").getStart()).isEqualTo(4);
+            assertThat(pattern.matches("abc 123")).isFalse();
+        }
+    }
+
+    @Test
+    void testFindCached() {
+        rosie.setCompileCacheSize(10, 10);
+        try (Pattern pattern = rosie.compileFind("[:digit:]+")) {
+            assertThat(pattern.find("abc 123").getStart()).isEqualTo(4);
+        }
+        try (Pattern pattern = rosie.compileFind("[:digit:]+")) {
+            assertThat(pattern.find("abc 123").getStart()).isEqualTo(4);
+        }
+        assertThat(rosie.getCompileCacheStatistics().getHits()).isEqualTo(1);
+    }
+
+    @Test
+    void testFindInvalidStart() {
+        try (Pattern pattern = rosie.compileFind("[:digit:]+")) {
+            assertThrows(IndexOutOfBoundsException.class, () -> pattern.find("abc", 4));
+        }
+    }
+}
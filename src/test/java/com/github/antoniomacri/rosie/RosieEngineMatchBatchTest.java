@@ -0,0 +1,80 @@
+package com.github.antoniomacri.rosie;
+
+import com.github.antoniomacri.rosie.encoding.Decoders;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+class RosieEngineMatchBatchTest {
+    private RosieEngine rosie;
+
+    @BeforeEach
+    void init() {
+        rosie = new RosieEngine();
+    }
+
+    @AfterEach
+    void close() {
+        rosie.close();
+    }
+
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 256})
+    void testBatchSameAsSingleMatches(int batchSize) {
+        Pattern pattern = rosie.compile("[:digit:]+");
+        List<String> inputs = Arrays.asList("123", "abc", "", "45x", "à1", "7");
+
+        MatchBatch<Match> batch = pattern.matchBatch(inputs, Decoders.LINE, batchSize);
+
+        assertThat(batch.size()).isEqualTo(inputs.size());
+        for (int i = 0; i < inputs.size(); i++) {
+            Match expected = pattern.match(inputs.get(i), Decoders.LINE);
+            assertThat(batch.isMatched(i)).isEqualTo(expected.isMatched());
+            assertThat(batch.getData(i)).isEqualTo(expected.getData());
+            assertThat(batch.get(i).getRemainingBytes()).isEqualTo(expected.getRemainingBytes());
+        }
+    }
+
+    @Test
+    void testBatchOfByteBuffers() {
+        Pattern pattern = rosie.compile("[:digit:]+");
+        ByteBuffer[] inputs = {
+                ByteBuffer.wrap("12a".getBytes(StandardCharsets.UTF_8)),
+                ByteBuffer.wrap("b".getBytes(StandardCharsets.UTF_8))
+        };
+
+        MatchBatch<Boolean> batch = pattern.matchBatch(inputs, Decoders.BOOL_VALUE);
+
+        assertThat(batch.get(0)).isTrue();
+        assertThat(batch.getRemainingBytes(0)).isEqualTo(1);
+        assertThat(batch.get(1)).isFalse();
+        assertThat(inputs[0].position()).isEqualTo(0);
+    }
+
+    @Test
+    void testLargeBatchWithJsonData() {
+        Pattern pattern = rosie.compile("[:digit:]+");
+        List<String> inputs = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            inputs.add(i + "-line");
+        }
+
+        MatchBatch<Match> batch = pattern.matchBatch(inputs, Decoders.JSON);
+
+        for (int i = 0; i < inputs.size(); i++) {
+            assertThat(batch.getData(i)).contains("\"data\":\"" + i + "\"");
+        }
+    }
+}
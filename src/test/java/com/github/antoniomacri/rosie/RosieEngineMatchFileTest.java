@@ -0,0 +1,71 @@
+package com.github.antoniomacri.rosie;
+
+import com.github.antoniomacri.rosie.encoding.Decoders;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+class RosieEngineMatchFileTest {
+    private RosieEngine rosie;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void init() {
+        rosie = new RosieEngine();
+    }
+
+    @AfterEach
+    void close() {
+        rosie.close();
+    }
+
+
+    @Test
+    void testMatchFileByLine() throws IOException {
+        Pattern pattern = rosie.compile("[:digit:]+");
+        Path input = Files.write(tempDir.resolve("in.txt"), Arrays.asList("123", "abc", "45x"), StandardCharsets.UTF_8);
+        Path output = tempDir.resolve("out.txt");
+        Path errors = tempDir.resolve("err.txt");
+
+        MatchFileResult result = pattern.matchFile(input, output, errors, Decoders.LINE, false);
+
+        assertThat(result.getInputLines()).isEqualTo(3);
+        assertThat(result.getMatchedLines()).isEqualTo(2);
+        assertThat(result.getFailedLines()).isEqualTo(1);
+        assertThat(Files.readAllLines(output, StandardCharsets.UTF_8)).containsExactly("123", "45x");
+        assertThat(Files.readAllLines(errors, StandardCharsets.UTF_8)).containsExactly("abc");
+    }
+
+    @Test
+    void testMatchWholeFile() throws IOException {
+        Pattern pattern = rosie.compile("[:digit:]+");
+        Path input = Files.write(tempDir.resolve("in.txt"), Arrays.asList("123", "abc"), StandardCharsets.UTF_8);
+
+        MatchFileResult result = pattern.matchFile(input, tempDir.resolve("out.txt"), tempDir.resolve("err.txt"),
+                Decoders.JSON, true);
+
+        assertThat(result.getInputLines()).isEqualTo(1);
+        assertThat(result.getMatchedLines()).isEqualTo(1);
+    }
+
+    @Test
+    void testMatchFileMissingInput() {
+        Pattern pattern = rosie.compile("[:digit:]+");
+
+        assertThrows(RosieException.class, () -> pattern.matchFile(tempDir.resolve("missing.txt"),
+                tempDir.resolve("out.txt"), tempDir.resolve("err.txt"), Decoders.LINE, false));
+    }
+}
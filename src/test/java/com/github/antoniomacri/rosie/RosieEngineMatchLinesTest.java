@@ -0,0 +1,81 @@
+package com.github.antoniomacri.rosie;
+
+import com.github.antoniomacri.rosie.encoding.Decoders;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+class RosieEngineMatchLinesTest {
+    private RosieEngine rosie;
+
+    @BeforeEach
+    void init() {
+        rosie = new RosieEngine();
+    }
+
+    @AfterEach
+    void close() {
+        rosie.close();
+    }
+
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 5, 1024})
+    void testMatchLines(int bufferSize) {
+        Pattern pattern = rosie.compile("[:digit:]+");
+        byte[] input = "123\nabc\r\n\n45x\n6789".getBytes(StandardCharsets.UTF_8);
+
+        List<String> results;
+        try (Stream<Match> matches = pattern.matchLines(new ByteArrayInputStream(input), Decoders.LINE, bufferSize)) {
+            results = matches.map(Match::getData).collect(Collectors.toList());
+        }
+
+        assertThat(results).containsExactly("123", null, null, "45x", "6789");
+    }
+
+    @Test
+    void testMatchLinesFromReader() {
+        Pattern pattern = rosie.compile("[:digit:]+");
+
+        List<Boolean> results;
+        try (Stream<Boolean> matches = pattern.matchLines(new StringReader("àè\n12\n"), Decoders.BOOL_VALUE)) {
+            results = matches.collect(Collectors.toList());
+        }
+
+        assertThat(results).containsExactly(false, true);
+    }
+
+    @Test
+    void testEmptyStream() {
+        Pattern pattern = rosie.compile("[:digit:]+");
+
+        try (Stream<Match> matches = pattern.matchLines(new ByteArrayInputStream(new byte[0]), Decoders.BOOL)) {
+            assertThat(matches.count()).isEqualTo(0);
+        }
+    }
+
+    @Test
+    void testCloseBeforeEnd() {
+        Pattern pattern = rosie.compile("[:digit:]+");
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 100_000; i++) {
+            input.append(i).append('\n');
+        }
+
+        try (Stream<Boolean> matches = pattern.matchLines(new StringReader(input.toString()), Decoders.BOOL_VALUE)) {
+            assertThat(matches.limit(10).allMatch(Boolean::booleanValue)).isTrue();
+        }
+    }
+}
@@ -2,6 +2,9 @@ package com.github.antoniomacri.rosie;
 
 import com.github.antoniomacri.rosie.encoding.Decoder;
 import com.github.antoniomacri.rosie.encoding.Decoders;
+import com.github.antoniomacri.rosie.encoding.MatchNode;
+import com.github.antoniomacri.rosie.encoding.SpanDecoder;
+import com.github.antoniomacri.rosie.encoding.Spans;
 import com.jayway.jsonpath.Configuration;
 import com.jayway.jsonpath.DocumentContext;
 import com.jayway.jsonpath.JsonPath;
@@ -23,6 +26,8 @@ import org.junit.jupiter.params.converter.ConvertWith;
 import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.ValueSource;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.EnumSet;
 import java.util.Map;
 import java.util.Set;
@@ -273,6 +278,92 @@ class RosieEngineMatchTest {
         JsonPathAssert.assertThat(ctx).jsonPathAsString("$.subs[0].subs[0].type").isEqualTo("net.ipv4");
     }
 
+    @Test
+    void testMatchNodeSuccessNested() {
+        rosie.importPackage("net");
+        Pattern pattern = rosie.compile("net.any");
+
+        MatchNode node = pattern.match("1.2.3.4", Decoders.MATCH_NODE);
+
+        assertThat(node.getType()).isSameAs("net.any");
+        assertThat(node.getData()).isEqualTo("1.2.3.4");
+        assertThat(node.getStart()).isEqualTo(1);
+        assertThat(node.getEnd()).isEqualTo(8);
+        assertThat(node.getSubs()).hasSize(1);
+        assertThat(node.getSubs().get(0).getSubs().get(0).getType()).isEqualTo("net.ipv4");
+        assertThat(node.find("net.ipv4").getData()).isEqualTo("1.2.3.4");
+    }
+
+    @Test
+    void testMatchSpans() {
+        rosie.importPackage("net");
+        Pattern pattern = rosie.compile("net.any");
+        SpanDecoder decoder = new SpanDecoder();
+        int ipv4 = decoder.typeId("net.ipv4");
+
+        Spans spans = pattern.match("x 1.2.3.4", 2, decoder);
+
+        assertThat(spans.isMatched()).isTrue();
+        assertThat(spans.getType(0)).isEqualTo("net.any");
+        assertThat(spans.getStart(0)).isEqualTo(2);
+        assertThat(spans.getEnd(0)).isEqualTo(9);
+        int index = spans.find(ipv4, 0);
+        assertThat(index).isPositive();
+        assertThat(spans.getStart(index)).isEqualTo(2);
+        assertThat(spans.getDepth(index)).isEqualTo(2);
+
+        assertThat(pattern.match("none", decoder).isMatched()).isFalse();
+    }
+
+    @Test
+    void testMatchNodeFailed() {
+        Pattern pattern = rosie.compile("[:digit:]+");
+
+        assertThat(pattern.match("abc", Decoders.MATCH_NODE)).isNull();
+    }
+
+
+    @CsvSource({
+            "123,   0, 0",
+            "123a,  0, 1",
+            "a123,  1, 0",
+            "a123a, 1, 1"
+    })
+    @ParameterizedTest
+    void testMatchDirectByteBuffer(String input, int skip, int remaining) {
+        Pattern pattern = rosie.compile("[:digit:]+");
+        byte[] bytes = ("xx" + input).getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip().position(2);
+
+        Match match = pattern.match(buffer, skip, Decoders.LINE);
+
+        assertThat(match.isMatched()).isTrue();
+        assertThat(match.getData()).isEqualTo(input);
+        assertThat(match.getRemainingBytes()).isEqualTo(remaining);
+        assertThat(buffer.position()).isEqualTo(2);
+    }
+
+    @Test
+    void testMatchHeapByteBuffer() {
+        Pattern pattern = rosie.compile("[:digit:]+");
+
+        Match match = pattern.match(ByteBuffer.wrap("a123a".getBytes(StandardCharsets.UTF_8)), 1, Decoders.JSON);
+
+        DocumentContext ctx = JsonPath.parse(match.getData());
+        JsonPathAssert.assertThat(ctx).jsonPathAsString("$.data").isEqualTo("123");
+    }
+
+    @Test
+    void testMatchByteArrayRange() {
+        Pattern pattern = rosie.compile("[:digit:]+");
+        byte[] bytes = "abc123def".getBytes(StandardCharsets.UTF_8);
+
+        assertThat(pattern.match(bytes, 3, 3, Decoders.BOOL_VALUE)).isTrue();
+        assertThat(pattern.match(bytes, 2, 4, Decoders.BOOL_VALUE)).isFalse();
+        assertThat(pattern.match(bytes, 2, 4, 1, Decoders.LINE).getData()).isEqualTo("c123");
+    }
+
 
     @Test
     void testMatchInvalidEncoderName() {
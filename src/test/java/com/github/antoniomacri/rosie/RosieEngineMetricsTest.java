@@ -0,0 +1,69 @@
+package com.github.antoniomacri.rosie;
+
+import com.github.antoniomacri.rosie.encoding.Decoders;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+class RosieEngineMetricsTest {
+    private RosieEngine rosie;
+    private HistogramMatchMetrics metrics;
+
+    @BeforeEach
+    void init() {
+        rosie = new RosieEngine();
+        metrics = new HistogramMatchMetrics();
+        rosie.setMetrics(metrics);
+    }
+
+    @AfterEach
+    void close() {
+        rosie.close();
+    }
+
+
+    @Test
+    void testRecorded() {
+        Pattern pattern = rosie.compile("[:digit:]+");
+
+        pattern.match("123", Decoders.JSON);
+        pattern.matches("abc");
+        try (Matcher matcher = pattern.matcher()) {
+            matcher.reset("45").matches();
+        }
+
+        PatternMetrics patternMetrics = metrics.get("[:digit:]+");
+        assertThat(patternMetrics.getMatchCount()).isEqualTo(3);
+        assertThat(patternMetrics.getHitCount()).isEqualTo(2);
+        assertThat(patternMetrics.getBytesScanned()).isEqualTo(8);
+        assertThat(patternMetrics.getLatency().getCount()).isEqualTo(3);
+        assertThat(patternMetrics.getLatency().getMax()).isPositive();
+        assertThat(metrics.getAll()).hasSize(1);
+    }
+
+    @Test
+    void testRecordedPerInputOfBatch() {
+        Pattern pattern = rosie.compile("[:digit:]+");
+
+        pattern.matchBatch(Arrays.asList("123", "abc", "45"), Decoders.BOOL_VALUE, 2);
+
+        PatternMetrics patternMetrics = metrics.get("[:digit:]+");
+        assertThat(patternMetrics.getMatchCount()).isEqualTo(3);
+        assertThat(patternMetrics.getHitCount()).isEqualTo(2);
+        assertThat(patternMetrics.getBytesScanned()).isEqualTo(8);
+    }
+
+    @Test
+    void testDisabled() {
+        rosie.setMetrics(MatchMetrics.NONE);
+
+        rosie.compile("[:digit:]+").matches("123");
+
+        assertThat(metrics.getAll()).isEmpty();
+    }
+}
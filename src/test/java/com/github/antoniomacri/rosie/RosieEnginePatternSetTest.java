@@ -0,0 +1,73 @@
+package com.github.antoniomacri.rosie;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+class RosieEnginePatternSetTest {
+    private RosieEngine rosie;
+    private PatternSet set;
+
+    @BeforeEach
+    void init() {
+        rosie = new RosieEngine();
+        rosie.importPackage("net");
+        Map<String, String> members = new LinkedHashMap<>();
+        members.put("ip", "net.ipv4");
+        members.put("number", "[:digit:]+");
+        members.put("word", "[:alpha:]+");
+        members.put("any", ".");
+        set = rosie.compileSet(members);
+    }
+
+    @AfterEach
+    void close() {
+        set.close();
+        rosie.close();
+    }
+
+
+    @Test
+    void testMatchFirst() {
+        assertThat(set.matchFirst("1.2.3.4")).isEqualTo(0);
+        assertThat(set.matchFirst("42")).isEqualTo(1);
+        assertThat(set.matchFirst("abc")).isEqualTo(2);
+        assertThat(set.matchFirst("-")).isEqualTo(3);
+        assertThat(set.matchFirst("")).isEqualTo(-1);
+    }
+
+    @Test
+    void testMatchAll() {
+        assertThat(set.matchAll("1.2.3.4")).containsExactly(0, 1, 3);
+        assertThat(set.matchAll("abc")).containsExactly(2, 3);
+        assertThat(set.matchAll("")).isEmpty();
+    }
+
+    @Test
+    void testNames() {
+        assertThat(set.size()).isEqualTo(4);
+        assertThat(set.getNames()).containsExactly("ip", "number", "word", "any");
+    }
+
+    @Test
+    void testSingleMember() {
+        try (PatternSet single = rosie.compileSet(Collections.singletonMap("number", "[:digit:]+"))) {
+            assertThat(single.matchFirst("42")).isEqualTo(0);
+            assertThat(single.matchAll("42")).containsExactly(0);
+            assertThat(single.matchFirst("x")).isEqualTo(-1);
+        }
+    }
+
+    @Test
+    void testInvalidMember() {
+        assertThrows(RosieException.class, () -> rosie.compileSet(Collections.singletonMap("bad", "[:foo:]")));
+    }
+}
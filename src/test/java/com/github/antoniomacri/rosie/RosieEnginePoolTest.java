@@ -0,0 +1,114 @@
+package com.github.antoniomacri.rosie;
+
+import com.github.antoniomacri.rosie.encoding.Decoders;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+class RosieEnginePoolTest {
+    private RosieEnginePool pool;
+
+    @BeforeEach
+    void init() {
+        pool = new RosieEnginePool(2, 0, 10, TimeUnit.MILLISECONDS);
+    }
+
+    @AfterEach
+    void close() {
+        pool.close();
+    }
+
+
+    @Test
+    void testSetupIsReplayedOnEveryEngine() throws Exception {
+        pool.importPackage("net");
+
+        try (PooledEngine first = pool.acquire(); PooledEngine second = pool.acquire()) {
+            assertThat(first.getPattern("net.any").matches("1.2.3.4")).isTrue();
+            assertThat(second.getPattern("net.any").matches("1.2.3.4")).isTrue();
+        }
+    }
+
+    @Test
+    void testSetupReplayedOnBusyEngineWhenAcquired() throws Exception {
+        try (PooledEngine busy = pool.acquire()) {
+            // the setup runs on the idle engine, and must not wait for this one
+            pool.importPackage("net");
+        }
+
+        try (PooledEngine first = pool.acquire(); PooledEngine second = pool.acquire()) {
+            assertThat(first.getPattern("net.any").matches("1.2.3.4")).isTrue();
+            assertThat(second.getPattern("net.any").matches("1.2.3.4")).isTrue();
+        }
+    }
+
+    @Test
+    void testSetupRejectedWhenAllBusy() throws Exception {
+        try (PooledEngine first = pool.acquire(); PooledEngine second = pool.acquire()) {
+            assertThrows(RejectedExecutionException.class, () -> pool.importPackage("net"));
+        }
+        assertThat(pool.getStatistics().getBusy()).isEqualTo(0);
+        assertThrows(RosieException.class, () -> pool.match("net.any", "1.2.3.4", Decoders.BOOL_VALUE));
+    }
+
+    @Test
+    void testFailedSetupIsNotReplayed() throws Exception {
+        assertThrows(RosieException.class, () -> pool.load("x = ["));
+        pool.load("d = [:digit:]+");
+
+        try (PooledEngine first = pool.acquire(); PooledEngine second = pool.acquire()) {
+            assertThat(first.getPattern("d").matches("42")).isTrue();
+            assertThat(second.getPattern("d").matches("42")).isTrue();
+        }
+    }
+
+    @Test
+    void testMatch() {
+        Match match = pool.match("[:digit:]+", "123a", Decoders.LINE);
+
+        assertThat(match.isMatched()).isTrue();
+        assertThat(match.getRemainingBytes()).isEqualTo(1);
+        assertThat(pool.getStatistics().getMatchCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testAcquireRejectedWhenAllBusy() throws Exception {
+        try (PooledEngine first = pool.acquire(); PooledEngine second = pool.acquire()) {
+            assertThat(pool.getStatistics().getBusy()).isEqualTo(2);
+            assertThrows(RejectedExecutionException.class, () -> pool.acquire());
+        }
+        assertThat(pool.getStatistics().getBusy()).isEqualTo(0);
+        assertThat(pool.getStatistics().getRejections()).isEqualTo(1);
+    }
+
+    @Test
+    void testConcurrentMatches() throws Exception {
+        try (RosieEnginePool shared = new RosieEnginePool(2)) {
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            try {
+                List<Future<Boolean>> results = new ArrayList<>();
+                for (int i = 0; i < 100; i++) {
+                    results.add(executor.submit(() -> shared.matches("[:digit:]+", "123")));
+                }
+                for (Future<Boolean> result : results) {
+                    assertThat(result.get()).isTrue();
+                }
+            } finally {
+                executor.shutdown();
+            }
+            assertThat(shared.getStatistics().getMatchCount()).isEqualTo(100);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.github.antoniomacri.rosie;
+
+import com.github.antoniomacri.rosie.encoding.Decoders;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+class RosieEnginePrefilterTest {
+    private RosieEngine rosie;
+
+    @BeforeEach
+    void init() {
+        rosie = new RosieEngine();
+        rosie.setPrefilterEnabled(true);
+    }
+
+    @AfterEach
+    void close() {
+        rosie.close();
+    }
+
+
+    @Test
+    void testParseExpression() {
+        ParseResult result = rosie.parseExpression("\"ERROR\" [:digit:]+");
+        assertThat(result.result).contains("ERROR");
+    }
+
+    @Test
+    void testPrefilterDisabledByDefault() {
+        try (RosieEngine engine = new RosieEngine(); Pattern pattern = engine.compile("\"ERROR\"")) {
+            assertThat(engine.isPrefilterEnabled()).isFalse();
+            assertThat(pattern.getPrefilter()).isNull();
+        }
+    }
+
+    @Test
+    void testNoLiteral() {
+        try (Pattern pattern = rosie.compile("[:digit:]+")) {
+            assertThat(pattern.getPrefilter()).isNull();
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"\"ERROR\" [:digit:]+", "{\"sshd[\" [:digit:]+ \"]\"}", "\"ERROR\" / \"WARN\"",
+            "{\"ab\"}+ [:digit:]*", "ci:\"error\"", "!\"ERROR\" .", "\"ERROR\"?"})
+    void testSameResults(String expression) {
+        String[] inputs = {"ERROR 42", "sshd[123]", "WARN", "ababab1", "error", "INFO 1", "", "x", "é ERROR 7",
+                "  ERROR 1"};
+        try (RosieEngine plain = new RosieEngine(); Pattern expected = plain.compile(expression);
+             Pattern pattern = rosie.compile(expression)) {
+            for (String input : inputs) {
+                byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+                for (int start = 0; start <= Math.min(bytes.length, 2); start++) {
+                    String description = "\"" + input + "\" from " + start;
+                    Match expectedMatch = expected.match(input, start, Decoders.JSON);
+
+                    assertSameMatch(pattern.match(input, start, Decoders.JSON), expectedMatch, description);
+                    assertSameMatch(pattern.match(bytes, 0, bytes.length, start, Decoders.JSON), expectedMatch,
+                            description);
+                    assertThat(pattern.match(bytes, 0, bytes.length, start, Decoders.BOOL_VALUE))
+                            .as(description).isEqualTo(expected.matches(input, start));
+                }
+                FindResult found = pattern.find(input);
+                FindResult expectedFound = expected.find(input);
+                assertThat(found.isFound()).as(input).isEqualTo(expectedFound.isFound());
+                if (found.isFound()) {
+                    assertThat(found.getStart()).as(input).isEqualTo(expectedFound.getStart());
+                    assertThat(found.getEnd()).as(input).isEqualTo(expectedFound.getEnd());
+                }
+            }
+        }
+    }
+
+    @Test
+    void testSkipRate() {
+        try (Pattern pattern = rosie.compile("\"ERROR\" [:digit:]+")) {
+            assertThat(pattern.getPrefilter().getLiterals()).containsExactly("ERROR");
+
+            assertThat(pattern.matches("ERROR 1")).isTrue();
+            assertThat(pattern.matches("INFO 1")).isFalse();
+            Match match = pattern.match("INFO 1", Decoders.BOOL);
+            assertThat(match.isMatched()).isFalse();
+
+            assertThat(pattern.getPrefilter().getCheckCount()).isEqualTo(3);
+            assertThat(pattern.getPrefilter().getSkipCount()).isEqualTo(2);
+        }
+    }
+
+
+    private static void assertSameMatch(Match actual, Match expected, String description) {
+        assertThat(actual.isMatched()).as(description).isEqualTo(expected.isMatched());
+        assertThat(actual.getRemainingBytes()).as(description).isEqualTo(expected.getRemainingBytes());
+        assertThat(actual.getData()).as(description).isEqualTo(expected.getData());
+    }
+}
@@ -0,0 +1,86 @@
+package com.github.antoniomacri.rosie;
+
+import com.github.antoniomacri.rosie.encoding.Decoders;
+import com.github.antoniomacri.rosie.encoding.SpanDecoder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+class RosieEngineResultCacheTest {
+    private RosieEngine rosie;
+
+    @BeforeEach
+    void init() {
+        rosie = new RosieEngine();
+    }
+
+    @AfterEach
+    void close() {
+        rosie.close();
+    }
+
+
+    @Test
+    void testCachedResults() {
+        ResultCache cache = new ResultCache(100, 1 << 20);
+        try (Pattern pattern = rosie.compile("[:digit:]+")) {
+            pattern.setResultCache(cache);
+
+            Match first = pattern.match("123a", Decoders.LINE);
+            Match second = pattern.match("123a", Decoders.LINE);
+            assertThat(second.isMatched()).isTrue();
+            assertThat(second.getData()).isEqualTo(first.getData());
+            assertThat(second.getRemainingBytes()).isEqualTo(1);
+            assertThat(pattern.matches("123a")).isTrue();
+            assertThat(pattern.matches("abc")).isFalse();
+            assertThat(pattern.matches("abc")).isFalse();
+
+            ResultCacheStatistics statistics = cache.getStatistics();
+            assertThat(statistics.getHits()).isEqualTo(2);
+            assertThat(statistics.getMisses()).isEqualTo(3);
+        }
+    }
+
+    @Test
+    void testRawDecoderFromCache() {
+        try (Pattern pattern = rosie.compile("[:digit:]+")) {
+            pattern.setResultCache(new ResultCache(100, 1 << 20));
+
+            int end = pattern.match("123", Decoders.MATCH_NODE).getEnd();
+            assertThat(pattern.match("123", Decoders.MATCH_NODE).getEnd()).isEqualTo(end);
+            assertThat(pattern.getResultCache().getStatistics().getHits()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void testSpanDecoderFromCache() {
+        String expression = "{[:digit:]+}+ [:alpha:]*";
+        try (Pattern plain = rosie.compile(expression); Pattern pattern = rosie.compile(expression)) {
+            pattern.setResultCache(new ResultCache(100, 1 << 20));
+            SpanDecoder decoder = new SpanDecoder();
+            String expected = plain.match("123abc", new SpanDecoder()).toString();
+
+            // the miss and the hit decode the same bytes as the uncached match
+            assertThat(pattern.match("123abc", decoder).toString()).isEqualTo(expected);
+            assertThat(pattern.match("123abc", decoder).toString()).isEqualTo(expected);
+            assertThat(pattern.match("123abc", decoder).getEnd(0)).isEqualTo(6);
+            assertThat(pattern.getResultCache().getStatistics().getHits()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void testSharedByPool() {
+        ResultCache cache = new ResultCache(100, 1 << 20);
+        try (RosieEnginePool pool = new RosieEnginePool(2)) {
+            pool.setResultCache("[:digit:]+", cache);
+            for (int i = 0; i < 10; i++) {
+                assertThat(pool.matches("[:digit:]+", "42")).isTrue();
+            }
+        }
+        assertThat(cache.getStatistics().getMisses()).isEqualTo(1);
+        assertThat(cache.getStatistics().getHits()).isEqualTo(9);
+    }
+}
@@ -0,0 +1,34 @@
+package com.github.antoniomacri.rosie;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+class Utf8Test {
+    @ParameterizedTest
+    @ValueSource(strings = {"", "abc", "àèìòù", "日本語", "a😀b", "x\uD83Dy", "\uDE00"})
+    void testEncodeLikeString(String input) {
+        byte[] expected = input.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(Utf8.encodedLength(input, 0, input.length()));
+
+        Utf8.encode(input, buffer);
+
+        assertThat(buffer.array()).isEqualTo(expected);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"abc", "àèìòù", "日本語", "a😀b"})
+    void testCharIndexInvertsEncodedLength(String input) {
+        for (int i = 0; i <= input.length(); i++) {
+            if (i > 0 && i < input.length() && Character.isLowSurrogate(input.charAt(i))) {
+                continue;
+            }
+            assertThat(Utf8.charIndex(input, Utf8.encodedLength(input, 0, i))).isEqualTo(i);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.github.antoniomacri.rosie.encoding;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+class MatchNodeDecoderTest {
+    private final MatchNodeDecoder decoder = new MatchNodeDecoder();
+
+
+    private MatchNode decode(String json) {
+        byte[] bytes = ("xx" + json).getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip().position(2);
+        return decoder.decode(buffer, null);
+    }
+
+
+    @Test
+    void testNested() {
+        MatchNode node = decode("{\"type\":\"net.any\",\"s\":1,\"e\":8,\"data\":\"1.2.3.4\",\"subs\":"
+                + "[{\"type\":\"net.ip\",\"s\":1,\"e\":8,\"subs\":[{\"type\":\"net.ipv4\",\"s\":1,\"e\":8,\"data\":\"1.2.3.4\"}],"
+                + "\"data\":\"1.2.3.4\"}]}");
+
+        assertThat(node.getType()).isEqualTo("net.any");
+        assertThat(node.getStart()).isEqualTo(1);
+        assertThat(node.getEnd()).isEqualTo(8);
+        assertThat(node.getData()).isEqualTo("1.2.3.4");
+        assertThat(node.getSubs()).hasSize(1);
+        MatchNode leaf = node.getSubs().get(0).getSubs().get(0);
+        assertThat(leaf.getType()).isEqualTo("net.ipv4");
+        assertThat(leaf.getSubs()).isEmpty();
+        assertThat(node.find("net.ipv4")).isSameAs(leaf);
+        assertThat(node.find("num.int")).isNull();
+    }
+
+    @Test
+    void testTypeNamesInterned() {
+        MatchNode first = decode("{\"type\":\"word.any\",\"s\":1,\"e\":2,\"data\":\"a\"}");
+        MatchNode second = decode("{\"type\":\"word.any\",\"s\":3,\"e\":4,\"data\":\"b\"}");
+
+        assertThat(first.getType()).isSameAs("word.any");
+        assertThat(second.getType()).isSameAs(first.getType());
+    }
+
+    @Test
+    void testEscapes() {
+        MatchNode node = decode("{ \"type\" : \"*\", \"s\" : 1, \"e\" : 9,\n"
+                + "  \"data\" : \"a\\\"b\\\\c\\td\\u00e8é\" }");
+
+        assertThat(node.getData()).isEqualTo("a\"b\\c\tdèé");
+    }
+
+    @Test
+    void testUnknownFieldsSkipped() {
+        MatchNode node = decode("{\"type\":\"x\",\"extra\":{\"a\":[1,true,null,\"}\"]},\"s\":2,\"e\":3}");
+
+        assertThat(node.getStart()).isEqualTo(2);
+        assertThat(node.getData()).isNull();
+    }
+
+    @Test
+    void testNoData() {
+        assertThat(decoder.decode((ByteBuffer) null, null)).isNull();
+    }
+
+    @Test
+    void testInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> decode("{\"type\":\"x\""));
+        assertThrows(IllegalArgumentException.class, () -> decode("{\"s\":1}"));
+        assertThrows(IllegalArgumentException.class, () -> decode("{\"type\":\"x\"} ,"));
+    }
+}
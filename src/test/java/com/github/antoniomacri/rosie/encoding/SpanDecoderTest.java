@@ -0,0 +1,111 @@
+package com.github.antoniomacri.rosie.encoding;
+
+import com.github.antoniomacri.rosie.Match;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+class SpanDecoderTest {
+    private final SpanDecoder decoder = new SpanDecoder();
+
+
+    private static ByteBuffer encode(Object... items) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(256).order(ByteOrder.nativeOrder());
+        for (Object item : items) {
+            if (item instanceof String) {
+                byte[] name = ((String) item).getBytes(StandardCharsets.UTF_8);
+                buffer.putShort((short) name.length).put(name);
+            } else {
+                buffer.putInt((Integer) item);
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private Spans decode(ByteBuffer data) {
+        return decoder.decode(data, matched());
+    }
+
+    private static Match matched() {
+        Match match = mock(Match.class);
+        when(match.isMatched()).thenReturn(true);
+        return match;
+    }
+
+
+    @Test
+    void testNested() {
+        // net.any [1,8) > net.ip [1,8) > net.ipv4 [1,8), then a sibling
+        Spans spans = decode(encode(-1, "net.any", -1, "net.ip", -1, "net.ipv4", 8, 8, -9, "x", 10, 10));
+
+        assertThat(spans.isMatched()).isTrue();
+        assertThat(spans.size()).isEqualTo(4);
+        assertThat(spans.getType(0)).isEqualTo("net.any");
+        assertThat(spans.getStart(0)).isEqualTo(0);
+        assertThat(spans.getEnd(0)).isEqualTo(9);
+        assertThat(spans.getDepth(2)).isEqualTo(2);
+        assertThat(spans.getType(2)).isEqualTo("net.ipv4");
+        assertThat(spans.getEnd(2)).isEqualTo(7);
+        assertThat(spans.getDepth(3)).isEqualTo(1);
+        assertThat(spans.getStart(3)).isEqualTo(8);
+        assertThat(spans.getEnd(3)).isEqualTo(9);
+    }
+
+    @Test
+    void testTypeIds() {
+        int ipv4 = decoder.typeId("net.ipv4");
+
+        Spans spans = decode(encode(-1, "net.any", -1, "net.ipv4", 8, 8));
+
+        assertThat(spans.getTypeId(1)).isEqualTo(ipv4);
+        assertThat(spans.find(ipv4, 0)).isEqualTo(1);
+        assertThat(spans.find(decoder.typeId("net.ipv6"), 0)).isEqualTo(-1);
+        assertThat(decoder.typeName(spans.getTypeId(0))).isEqualTo("net.any");
+        assertThat(decoder.typeId("net.any")).isEqualTo(spans.getTypeId(0));
+    }
+
+    @Test
+    void testManyTypes() {
+        for (int i = 0; i < 1000; i++) {
+            assertThat(decoder.typeId("type" + i)).isEqualTo(i);
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertThat(decoder.typeId("type" + i)).isEqualTo(i);
+        }
+    }
+
+    @Test
+    void testReused() {
+        Spans first = decode(encode(-1, "a", -1, "b", 2, 3));
+        Spans second = decode(encode(-1, "a", 5));
+
+        assertThat(second).isSameAs(first);
+        assertThat(second.size()).isEqualTo(1);
+        assertThrows(IndexOutOfBoundsException.class, () -> second.getStart(1));
+    }
+
+    @Test
+    void testNoData() {
+        decode(encode(-1, "a", 2));
+
+        Spans spans = decoder.decode(null, mock(Match.class));
+
+        assertThat(spans.isMatched()).isFalse();
+        assertThat(spans.size()).isEqualTo(0);
+    }
+
+    @Test
+    void testInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> decode(encode(-1, "a")));
+        assertThrows(IllegalArgumentException.class, () -> decode(encode(3)));
+    }
+}
@@ -0,0 +1,48 @@
+package com.github.antoniomacri.rosie.lib;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+
+class NativeBackendTest {
+    @Test
+    void testSelectJna() {
+        assertThat(NativeBackend.select(NativeBackend.JNA).getName()).isEqualTo(NativeBackend.JNA);
+    }
+
+    @Test
+    void testSelectDefault() {
+        String expected = isForeignAvailable() ? NativeBackend.FFM : NativeBackend.JNA;
+        assertThat(NativeBackend.select(null).getName()).isEqualTo(expected);
+    }
+
+    @Test
+    void testSelectFfm() {
+        assumeTrue(isForeignAvailable(), "requires Java 22 or later");
+        assertThat(NativeBackend.select(NativeBackend.FFM).getName()).isEqualTo(NativeBackend.FFM);
+    }
+
+    @Test
+    void testSelectFfmUnavailable() {
+        assumeFalse(isForeignAvailable(), "the ffm backend is available");
+        assertThatThrownBy(() -> NativeBackend.select(NativeBackend.FFM)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void testSelectUnknown() {
+        assertThatThrownBy(() -> NativeBackend.select("jni")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+
+    /**
+     * Whether the Foreign Function &amp; Memory API is final, as required by the {@code ffm} backend.
+     */
+    private static boolean isForeignAvailable() {
+        String version = System.getProperty("java.specification.version");
+        return !version.startsWith("1.") && Integer.parseInt(version) >= 22;
+    }
+}
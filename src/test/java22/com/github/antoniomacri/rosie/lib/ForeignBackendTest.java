@@ -0,0 +1,118 @@
+package com.github.antoniomacri.rosie.lib;
+
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+import com.sun.jna.ptr.IntByReference;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+/**
+ * Runs the same calls through both backends, on the same engine, and compares the results.
+ */
+class ForeignBackendTest {
+    private final NativeBackend jna = NativeBackend.select(NativeBackend.JNA);
+    private final NativeBackend ffm = new ForeignBackend();
+
+    private Pointer engine;
+    private int pat;
+    private final Memory input = new Memory(RosieString.SIZE);
+    private final Memory match = new Memory(RosieMatch.SIZE);
+    private final Memory trace = new Memory(RosieString.SIZE + 4);
+    private Memory inputData;
+
+    @BeforeEach
+    void init() {
+        try (RosieString errors = RosieString.create();
+             RosieString expression = RosieString.create("{[:digit:]+}+ [:alpha:]*")) {
+            engine = RosieLib.rosie_new(errors);
+            IntByReference ref = new IntByReference();
+            assertThat(RosieLib.rosie_compile(engine, expression, ref, errors)).isEqualTo(0);
+            pat = ref.getValue();
+            assertThat(pat).isPositive();
+        }
+    }
+
+    @AfterEach
+    void close() {
+        RosieLib.rosie_free_rplx(engine, pat);
+        RosieLib.rosie_finalize(engine);
+    }
+
+
+    @ParameterizedTest
+    @ValueSource(strings = {"123abc", "123 456", "abc", ""})
+    void testMatch(String text) {
+        assertThat(ffm.getName()).isEqualTo(NativeBackend.FFM);
+        for (String encoding : new String[]{"json", "byte", "bool"}) {
+            assertThat(match(ffm, text, encoding)).isEqualTo(match(jna, text, encoding));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"123abc", "abc"})
+    void testTrace(String text) {
+        for (String style : new String[]{"condensed", "full"}) {
+            assertThat(trace(ffm, text, style)).isEqualTo(trace(jna, text, style));
+        }
+    }
+
+
+    /**
+     * Matches the given text, describing the result (whose data is only valid until the next call) as a string.
+     */
+    private String match(NativeBackend backend, String text, String encoding) {
+        setInput(text);
+        match.clear();
+        int ok = backend.match(engine, pat, 1, NativeMatch.encoderName(encoding), input, match);
+        assertThat(ok).isEqualTo(0);
+        Pointer dataPtr = match.getPointer(RosieMatch.DATA_PTR_OFFSET);
+        int dataLen = match.getInt(RosieMatch.DATA_LEN_OFFSET);
+        String result = dataPtr == null ? "status " + dataLen : hex(dataPtr.getByteArray(0, dataLen));
+        return result + ", leftover " + match.getInt(RosieMatch.LEFTOVER_OFFSET)
+                + ", abend " + match.getInt(RosieMatch.ABEND_OFFSET);
+    }
+
+    private String trace(NativeBackend backend, String text, String style) {
+        setInput(text);
+        trace.clear();
+        Pointer matched = trace.share(RosieString.SIZE);
+        int ok = backend.trace(engine, pat, 1, NativeMatch.encoderName(style), input, matched, trace);
+        assertThat(ok).isEqualTo(0);
+        Pointer tracePtr = trace.getPointer(RosieString.PTR_OFFSET);
+        int traceLen = trace.getInt(RosieString.LEN_OFFSET);
+        try {
+            String result = tracePtr == null ? "status " + traceLen
+                    : new String(tracePtr.getByteArray(0, traceLen), StandardCharsets.UTF_8);
+            return "matched " + matched.getInt(0) + ": " + result;
+        } finally {
+            if (tracePtr != null) {
+                Native.free(Pointer.nativeValue(tracePtr));
+            }
+        }
+    }
+
+    private void setInput(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        // kept in a field, so that it is not freed during the call
+        inputData = new Memory(Math.max(bytes.length, 1));
+        inputData.write(0, bytes, 0, bytes.length);
+        input.setInt(RosieString.LEN_OFFSET, bytes.length);
+        input.setPointer(RosieString.PTR_OFFSET, inputData);
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder builder = new StringBuilder();
+        for (byte b : bytes) {
+            builder.append(String.format("%02x", b));
+        }
+        return builder.toString();
+    }
+}
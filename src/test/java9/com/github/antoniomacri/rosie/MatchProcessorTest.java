@@ -0,0 +1,321 @@
+package com.github.antoniomacri.rosie;
+
+import com.github.antoniomacri.rosie.encoding.Decoder;
+import com.github.antoniomacri.rosie.encoding.Decoders;
+import com.github.antoniomacri.rosie.encoding.MatchNode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+class MatchProcessorTest {
+    private AsyncMatcher matcher;
+
+    @BeforeEach
+    void init() {
+        matcher = new AsyncMatcher(2);
+    }
+
+    @AfterEach
+    void close() {
+        matcher.close();
+    }
+
+
+    @Test
+    void testOrdered() throws Exception {
+        MatchProcessor<CharSequence, Boolean> processor = MatchProcessor.forStrings(matcher, "[:digit:]+",
+                Decoders.BOOL_VALUE, 4, true, ForkJoinPool.commonPool());
+        ListPublisher upstream = new ListPublisher(inputs(1000));
+        TestSubscriber<Boolean> subscriber = new TestSubscriber<>(Long.MAX_VALUE);
+        upstream.subscribe(processor);
+        processor.subscribe(subscriber);
+
+        subscriber.awaitTermination();
+        assertThat(subscriber.error).isNull();
+        assertThat(subscriber.items).hasSize(1000);
+        for (int i = 0; i < 1000; i++) {
+            assertThat(subscriber.items.get(i)).isEqualTo(i % 2 == 0);
+        }
+    }
+
+    @Test
+    void testUnordered() throws Exception {
+        MatchProcessor<CharSequence, String> processor = MatchProcessor.forStrings(matcher, "[:digit:]+",
+                new Decoder<String>("line") {
+                    @Override
+                    public String decode(Match match) {
+                        return match.isMatched() ? match.getData() : "-";
+                    }
+                }, 4, false, ForkJoinPool.commonPool());
+        ListPublisher upstream = new ListPublisher(inputs(1000));
+        TestSubscriber<String> subscriber = new TestSubscriber<>(Long.MAX_VALUE);
+        upstream.subscribe(processor);
+        processor.subscribe(subscriber);
+
+        subscriber.awaitTermination();
+        assertThat(subscriber.error).isNull();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            expected.add(i % 2 == 0 ? String.valueOf(i) : "-");
+        }
+        assertThat(subscriber.items).containsExactlyInAnyOrderElementsOf(expected);
+    }
+
+    @Test
+    void testDemand() throws Exception {
+        MatchProcessor<CharSequence, Boolean> processor = MatchProcessor.forStrings(matcher, "[:digit:]+",
+                Decoders.BOOL_VALUE);
+        ListPublisher upstream = new ListPublisher(inputs(100));
+        TestSubscriber<Boolean> subscriber = new TestSubscriber<>(3);
+        upstream.subscribe(processor);
+        processor.subscribe(subscriber);
+
+        Thread.sleep(200);
+        assertThat(subscriber.items).hasSize(3);
+        assertThat(subscriber.completed.getCount()).isEqualTo(1);
+
+        subscriber.subscription.request(97);
+        subscriber.awaitTermination();
+        assertThat(subscriber.items).hasSize(100);
+    }
+
+    @Test
+    void testBoundedBufferingWithSlowSubscriber() throws Exception {
+        int batchSize = 4;
+        MatchProcessor<CharSequence, Boolean> processor = MatchProcessor.forStrings(matcher, "[:digit:]+",
+                Decoders.BOOL_VALUE, batchSize, true, ForkJoinPool.commonPool());
+        ListPublisher upstream = new ListPublisher(inputs(10_000));
+        TestSubscriber<Boolean> subscriber = new TestSubscriber<>(1);
+        upstream.subscribe(processor);
+        processor.subscribe(subscriber);
+
+        int capacity = 2 * matcher.getSize() * batchSize;
+        for (int i = 0; i < 20; i++) {
+            Thread.sleep(10);
+            // the processor never holds more than its capacity, whatever the upstream could send
+            assertThat(upstream.requested()).isLessThanOrEqualTo(subscriber.items.size() + capacity);
+            subscriber.subscription.request(1);
+        }
+        assertThat(upstream.requested()).isLessThan(10_000);
+        subscriber.subscription.cancel();
+    }
+
+    @Test
+    void testCancel() throws Exception {
+        MatchProcessor<CharSequence, Boolean> processor = MatchProcessor.forStrings(matcher, "[:digit:]+",
+                Decoders.BOOL_VALUE);
+        ListPublisher upstream = new ListPublisher(inputs(10_000));
+        TestSubscriber<Boolean> subscriber = new TestSubscriber<>(5);
+        upstream.subscribe(processor);
+        processor.subscribe(subscriber);
+
+        Thread.sleep(100);
+        subscriber.subscription.cancel();
+        subscriber.subscription.request(100);
+        Thread.sleep(100);
+
+        assertThat(upstream.cancelled).isTrue();
+        assertThat(subscriber.items).hasSize(5);
+        assertThat(subscriber.completed.getCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testUpstreamErrorIsPropagated() throws Exception {
+        MatchProcessor<CharSequence, Boolean> processor = MatchProcessor.forStrings(matcher, "[:digit:]+",
+                Decoders.BOOL_VALUE);
+        TestSubscriber<Boolean> subscriber = new TestSubscriber<>(Long.MAX_VALUE);
+        processor.subscribe(subscriber);
+        RuntimeException failure = new RuntimeException("upstream failed");
+        processor.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+            }
+
+            @Override
+            public void cancel() {
+            }
+        });
+        processor.onNext("1");
+        processor.onError(failure);
+
+        subscriber.awaitTermination();
+        assertThat(subscriber.error).isSameAs(failure);
+    }
+
+    @Test
+    void testCompileErrorIsPropagated() throws Exception {
+        MatchProcessor<CharSequence, Boolean> processor = MatchProcessor.forStrings(matcher, "[:foo:]",
+                Decoders.BOOL_VALUE);
+        ListPublisher upstream = new ListPublisher(inputs(100));
+        TestSubscriber<Boolean> subscriber = new TestSubscriber<>(Long.MAX_VALUE);
+        upstream.subscribe(processor);
+        processor.subscribe(subscriber);
+
+        subscriber.awaitTermination();
+        assertThat(subscriber.error).isInstanceOf(RosieException.class);
+        assertThat(upstream.cancelled).isTrue();
+    }
+
+    @Test
+    void testNonMatchesDropped() throws Exception {
+        MatchProcessor<CharSequence, MatchNode> processor = MatchProcessor.forStrings(matcher, "[:digit:]+",
+                Decoders.MATCH_NODE);
+        ListPublisher upstream = new ListPublisher(inputs(100));
+        TestSubscriber<MatchNode> subscriber = new TestSubscriber<>(Long.MAX_VALUE);
+        upstream.subscribe(processor);
+        processor.subscribe(subscriber);
+
+        subscriber.awaitTermination();
+        assertThat(subscriber.error).isNull();
+        assertThat(subscriber.items).hasSize(50);
+    }
+
+    @Test
+    void testNoSignalBeforeOnSubscribeReturns() throws Exception {
+        MatchProcessor<CharSequence, Boolean> processor = MatchProcessor.forStrings(matcher, "[:digit:]+",
+                Decoders.BOOL_VALUE);
+        ListPublisher upstream = new ListPublisher(inputs(10));
+        upstream.subscribe(processor);
+        // let the results be ready before subscribing
+        Thread.sleep(200);
+
+        TestSubscriber<Boolean> subscriber = new TestSubscriber<Boolean>(Long.MAX_VALUE) {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                super.onSubscribe(subscription);
+                sleep(100);
+                subscribed = true;
+            }
+        };
+        processor.subscribe(subscriber);
+
+        subscriber.awaitTermination();
+        assertThat(subscriber.early).isFalse();
+        assertThat(subscriber.items).hasSize(10);
+    }
+
+
+    private static List<String> inputs(int count) {
+        List<String> inputs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            inputs.add(i % 2 == 0 ? String.valueOf(i) : "x" + i);
+        }
+        return inputs;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    /**
+     * Publishes a list of strings to a single subscriber, counting the requested items.
+     */
+    private static class ListPublisher implements Flow.Publisher<String> {
+        private final List<String> items;
+        private long requested;
+        private long demand;
+        private int next;
+        private boolean emitting;
+        private boolean done;
+        volatile boolean cancelled;
+
+        ListPublisher(List<String> items) {
+            this.items = items;
+        }
+
+        synchronized long requested() {
+            return requested;
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super String> subscriber) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                    synchronized (ListPublisher.this) {
+                        requested += n;
+                        demand += n;
+                        if (emitting) {
+                            return;
+                        }
+                        emitting = true;
+                        while (demand > 0 && next < items.size() && !cancelled) {
+                            demand--;
+                            subscriber.onNext(items.get(next++));
+                        }
+                        if (next == items.size() && !done && !cancelled) {
+                            done = true;
+                            subscriber.onComplete();
+                        }
+                        emitting = false;
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    cancelled = true;
+                }
+            });
+        }
+    }
+
+    private static class TestSubscriber<T> implements Flow.Subscriber<T> {
+        private final long initialRequest;
+        final List<T> items = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch completed = new CountDownLatch(1);
+        volatile Flow.Subscription subscription;
+        volatile Throwable error;
+        volatile boolean subscribed = true;
+        volatile boolean early;
+
+        TestSubscriber(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscribed = false;
+            this.subscription = subscription;
+            subscription.request(initialRequest);
+        }
+
+        @Override
+        public void onNext(T item) {
+            early |= !subscribed;
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            early |= !subscribed;
+            error = throwable;
+            completed.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            early |= !subscribed;
+            completed.countDown();
+        }
+
+        void awaitTermination() throws InterruptedException {
+            assertThat(completed.await(30, TimeUnit.SECONDS)).isTrue();
+        }
+    }
+}